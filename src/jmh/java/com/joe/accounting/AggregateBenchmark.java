@@ -0,0 +1,73 @@
+package com.joe.accounting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计接口：合计、按月统计、分类构成。这些都读预聚合，耗时应当与账本大小基本无关。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class AggregateBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int ledgerSize;
+
+    @Param({LedgerConfig.MEMORY_OBJECTS})
+    public String memory;
+
+    private Path dir;
+    private AccountService service;
+    private final YearMonth from = YearMonth.from(BenchmarkLedger.BASE.plusMonths(6));
+    private final YearMonth to = from.plusMonths(2);
+
+    @Setup
+    public void setUp() {
+        dir = BenchmarkLedger.tempDir();
+        service = BenchmarkLedger.create(dir, new LedgerConfig()
+                .setStorage(LedgerConfig.STORAGE_BINARY)
+                .setMemory(memory), BenchmarkLedger.generate(ledgerSize, 42));
+        service.calculateTotal("支出"); // 建立索引和预聚合
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+        BenchmarkLedger.delete(dir);
+    }
+
+    @Benchmark
+    public double calculateTotal() {
+        return service.calculateTotal("支出");
+    }
+
+    @Benchmark
+    public Map<String, Double> getMonthlyStats() {
+        return service.getMonthlyStats("支出");
+    }
+
+    @Benchmark
+    public Map<String, Double> getCategoryBreakdown() {
+        return service.getCategoryBreakdown("支出", from, to);
+    }
+}
@@ -0,0 +1,65 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试共用的账本数据：用 LedgerGenerator 按固定种子生成，同样的条数每次得到同样的记录，
+ * 分类、金额分布和季节性与测试、压测用的数据一致。日期按时间顺序分布在 BASE 起的 YEARS 年内。
+ */
+final class BenchmarkLedger {
+    static final LocalDate BASE = LedgerGenerator.DEFAULT_START;
+    static final int YEARS = 5;
+    static final int SPAN_DAYS = (int) (BASE.plusYears(YEARS).toEpochDay() - BASE.toEpochDay());
+
+    private BenchmarkLedger() {
+    }
+
+    static List<Record> generate(int count, long seed) {
+        return generator(seed).generate(count);
+    }
+
+    // 逐条生成 (写入基准用)，用 generator.next(日期) 取下一条
+    static LedgerGenerator generator(long seed) {
+        return new LedgerGenerator(seed, BASE, YEARS);
+    }
+
+    // 覆盖 selectivity 比例天数的日期区间，居中放置
+    static LocalDate[] dateRange(double selectivity) {
+        int days = Math.max(1, (int) Math.round(selectivity * SPAN_DAYS));
+        LocalDate start = BASE.plusDays((SPAN_DAYS - days) / 2);
+        return new LocalDate[]{start, start.plusDays(days - 1)};
+    }
+
+    // 在临时目录里建一个账本并一次性写入 records
+    static AccountService create(Path dir, LedgerConfig config, List<Record> records) {
+        AccountService service = new AccountService(config.setDataFile(dir.resolve("account_data.dat")));
+        service.addRecords(records);
+        return service;
+    }
+
+    static Path tempDir() {
+        try {
+            return Files.createTempDirectory("ledger-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path dir) {
+        if (dir == null) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.joe.accounting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动：从已经写好的数据文件构造 AccountService (loadRecords) 并完成第一次查询 (建立索引)。
+ * 文件在操作系统页缓存里，测的是解析和建索引，不是磁盘读取。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class LoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int ledgerSize;
+
+    @Param({LedgerConfig.STORAGE_SERIALIZED, LedgerConfig.STORAGE_JOURNAL, LedgerConfig.STORAGE_BINARY})
+    public String storage;
+
+    @Param({LedgerConfig.MEMORY_OBJECTS})
+    public String memory;
+
+    private Path dir;
+    private LedgerConfig config;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = BenchmarkLedger.tempDir();
+        config = new LedgerConfig().setStorage(storage);
+        BenchmarkLedger.create(dir, config, BenchmarkLedger.generate(ledgerSize, 42)).close();
+        config.setMemory(memory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkLedger.delete(dir);
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        AccountService service = new AccountService(config);
+        try {
+            return service.getRecordCount();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Benchmark
+    public double loadAndIndex() throws IOException {
+        AccountService service = new AccountService(config);
+        try {
+            return service.calculateTotal("支出");
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.joe.accounting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 筛选查询：账本大小 × 日期区间覆盖比例 × 类型/分类条件。
+ * 默认关闭筛选结果缓存，测的是索引路径；-p queryCache=64 测缓存命中。
+ * 吞吐和延迟分位数 (SampleTime) 都输出，分配速率加 -prof gc。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class QueryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int ledgerSize;
+
+    // 日期区间覆盖的天数比例
+    @Param({"0.001", "0.01", "0.1", "1"})
+    public double selectivity;
+
+    @Param({"none", "type", "category", "type+category"})
+    public String filter;
+
+    @Param({LedgerConfig.MEMORY_OBJECTS})
+    public String memory;
+
+    @Param({"0"})
+    public int queryCache;
+
+    private Path dir;
+    private AccountService service;
+    private LocalDate start;
+    private LocalDate end;
+    private String type;
+    private String category;
+
+    @Setup
+    public void setUp() {
+        dir = BenchmarkLedger.tempDir();
+        service = BenchmarkLedger.create(dir, new LedgerConfig()
+                .setStorage(LedgerConfig.STORAGE_BINARY)
+                .setMemory(memory)
+                .setQueryCacheEntries(queryCache), BenchmarkLedger.generate(ledgerSize, 42));
+        LocalDate[] range = BenchmarkLedger.dateRange(selectivity);
+        start = range[0];
+        end = range[1];
+        type = filter.contains("type") ? "支出" : "全部";
+        category = filter.contains("category") ? "餐饮" : null;
+        service.searchRecords(start, end, type, category); // 建立索引，不计入测量
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+        BenchmarkLedger.delete(dir);
+    }
+
+    @Benchmark
+    public List<Record> searchRecords() {
+        return service.searchRecords(start, end, type, category);
+    }
+
+    // 只取行号视图，不生成结果列表
+    @Benchmark
+    public int searchView() {
+        return service.searchView(start, end, type, category).size();
+    }
+
+    @Benchmark
+    public List<Record> searchViewByDate() {
+        return service.searchView(start, end, type, category, AccountService.SortKey.DATE, true);
+    }
+}
@@ -0,0 +1,68 @@
+package com.joe.accounting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addRecord → saveRecords 的整条写入路径，包括索引维护和存储层提交。
+ * 账本在测量期间持续增长 (每次迭代不重建)，journal 到达压缩阈值时的整文件重写也会反映在延迟分位数里。
+ * serialized 每次都重写整个文件，大账本下非常慢，需要时用 -p storage=serialized 单独跑。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class WriteBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int ledgerSize;
+
+    @Param({LedgerConfig.STORAGE_JOURNAL, LedgerConfig.STORAGE_BINARY})
+    public String storage;
+
+    @Param({"false"})
+    public boolean async;
+
+    private Path dir;
+    private AccountService service;
+    private LedgerGenerator generator;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        dir = BenchmarkLedger.tempDir();
+        service = BenchmarkLedger.create(dir, new LedgerConfig()
+                .setStorage(storage)
+                .setAsync(async), BenchmarkLedger.generate(ledgerSize, 42));
+        service.calculateTotal("支出"); // 先建好索引，测的是增量维护
+        generator = BenchmarkLedger.generator(7);
+        next = ledgerSize;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+        BenchmarkLedger.delete(dir);
+    }
+
+    @Benchmark
+    public void addRecord() {
+        service.addRecord(generator.next(BenchmarkLedger.BASE.plusDays(next++ % BenchmarkLedger.SPAN_DAYS)));
+    }
+}
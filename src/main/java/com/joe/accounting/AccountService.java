@@ -2,16 +2,95 @@ package com.joe.accounting;
 
 import java.io.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * 所有修改都在 this 的监视器锁内串行执行。
+ * 并发模式 (accounting.concurrent=true) 下 getAllRecords / calculateTotal 读的是不可变的版本快照：
+ * 没有新写入时直接返回已发布的快照，不加锁；写入后第一个读取者在锁内发布新版本，只复制改动过的段。
+ * 筛选 (searchRecordsAny / summarizeRecords) 和按月、按分类统计也在快照上用快照自己的索引完成，不占用写锁。
+ */
 public class AccountService {
-    private static final String DATA_FILE = "account_data.dat";
+    static final Logger LOG = Logger.getLogger(AccountService.class.getName());
+
+    private final LedgerStore store;
+    private final boolean concurrent;
     private List<Record> records;
 
+    // 新增：索引和汇总，第一次查询/统计时建立，之后随增删改同步维护
+    private final DateIndex dateIndex = new DateIndex();
+    private final BitmapIndex bitmapIndex = new BitmapIndex(); // 新增：类型/分类位图索引
+    private final LedgerAggregates aggregates = new LedgerAggregates(); // 新增：总额和月度合计
+    private final RollupCube cube = new RollupCube(); // 新增：月份×类型×分类 预聚合
+    private TextIndex textIndex; // 新增：分类/备注全文索引，第一次全文检索时才建立，索引重建时丢弃
+    private List<Record> indexedRecords; // 建索引时对应的 records (被整体替换时需要重建)
+
+    // 新增：删除只打墓碑 (记下行号)，records 和日期/位图索引里的行号都不动。
+    // 取全部记录、筛选、保存时跳过墓碑行，墓碑攒够一定数量 (见 compactIfNeeded) 才一次性压缩掉
+    private RowBitmap tombstones = new RowBitmap();
+    private Map<String, Integer> positions; // id -> records 中的下标，第一次按 id 操作时建立
+
+    // 新增：版本快照 (并发模式)。version 每次修改加一；dirtySegments/shiftFrom 记录上次发布后哪些段变了
+    private volatile long version;
+    private volatile LedgerSnapshot published = LedgerSnapshot.EMPTY;
+    private List<Record> publishedFrom;
+    private final BitSet dirtySegments = new BitSet();
+    private int shiftFrom = 0;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>(); // 新增：数据变更通知 (表格用)
+
+    // 新增：筛选结果缓存，行号总数上限约 400 万 (16MB)
+    private static final long QUERY_CACHE_MAX_ROWS = 1 << 22;
+    private final QueryCache queryCache;
+    private final LedgerMetrics metrics; // 新增：操作次数/延迟等运行指标，可以通过 JMX 查看
+
     public AccountService() {
-        this.records = loadRecords();
+        this(LedgerConfig.fromSystemProperties());
+    }
+
+    public AccountService(LedgerConfig config) {
+        this(config.createStore(), config);
+    }
+
+    // 新增：可指定存储实现 (整文件序列化 / 追加日志)
+    public AccountService(LedgerStore store) {
+        this(store, new LedgerConfig());
+    }
+
+    private AccountService(LedgerStore store, LedgerConfig config) {
+        this.store = store;
+        this.concurrent = config.isConcurrent();
+        this.queryCache = new QueryCache(config.getQueryCacheEntries(), QUERY_CACHE_MAX_ROWS);
+        this.metrics = new LedgerMetrics(this::getRecordCount, this::estimateHeapBytes, queryCache);
+        LedgerEvents.Load loadEvent = new LedgerEvents.Load();
+        loadEvent.begin();
+        long start = System.nanoTime();
+        List<Record> loaded = loadRecords();
+        // 列式模式：加载后转成按列存储，Record 只在返回给调用方时才临时生成
+        this.records = config.isColumnar() ? new ColumnarRecordList(loaded) : loaded;
+        // 新增：id 生成器从这个账本已有的最大 id 之后开始，时钟回拨后重启也不会生成重复的 id
+        Record.reserveKey(maxKey(records));
+        metrics.load.record(start);
+        loadEvent.storage = store.getClass().getSimpleName();
+        loadEvent.records = records.size();
+        loadEvent.commit();
+        if (config.isMetricsJmx()) metrics.registerMBeans(config.getDataFile().toAbsolutePath().toString());
+        metrics.startDump(config.getMetricsDumpSeconds(), System.out);
     }
 
 //    // 添加记录 (Req001 )
@@ -21,23 +100,182 @@ public class AccountService {
 //    }
     // 缺陷 2: 空指针解引用 (Null Pointer Dereference) - 对应 CWE-476
     // 修改 addRecord 方法
-    public void addRecord(Record record) {
-        // 错误做法：没有判空直接使用
-        // 如果 record 为 null，这里会抛出异常，但静态分析应该能扫出来
-        System.out.println("Adding record: " + record.toString());
+    public synchronized void addRecord(Record record) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("add", 1);
+        long start = System.nanoTime();
+        try {
+            // 错误做法：没有判空直接使用
+            // 如果 record 为 null，这里会抛出异常，但静态分析应该能扫出来
+            Record.reserveKey(record.getKey());
+            // 以前每条都 System.out.println，在锁内同步写控制台；改成 FINE 级别日志，默认不输出也不拼字符串
+            LOG.log(Level.FINE, "Adding record: {0}", record);
+
+            records.add(record);
+            indexAdded(records.size() - 1, record);
+            if (positions != null && record.getId() != null) positions.put(record.getId(), records.size() - 1);
+            changed(records.size() - 1);
+            saveRecords(LedgerOp.add(record));
+        } catch (RuntimeException e) {
+            throw metrics.add.fail(e);
+        } finally {
+            metrics.add.record(start);
+            event.commit();
+        }
+    }
+
+    // 批量追加超过这个条数时不逐条维护索引，直接作废，下次查询时整体重建 (比逐条插入有序数组快得多)
+    private static final int BATCH_REINDEX_THRESHOLD = 4096;
+
+    /**
+     * 新增：批量添加 (导入用)，整批只提交一次给存储层。返回添加的条数，null 元素会被跳过。
+     */
+    public synchronized int addRecords(Collection<Record> batch) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("add", batch.size());
+        long start = System.nanoTime();
+        try {
+            List<LedgerOp> ops = new ArrayList<>(batch.size());
+            boolean reindex = batch.size() > BATCH_REINDEX_THRESHOLD;
+            if (reindex) {
+                compact(); // 作废索引前先清掉墓碑，否则重建时会把已删除的行当成新列表的行
+                indexedRecords = null;
+                positions = null;
+            }
+            int first = records.size();
+            for (Record record : batch) {
+                if (record == null) continue;
+                records.add(record);
+                Record.reserveKey(record.getKey()); // 导入的记录可能带着别处生成的 id
+                if (!reindex) {
+                    indexAdded(records.size() - 1, record);
+                    if (positions != null && record.getId() != null) positions.put(record.getId(), records.size() - 1);
+                }
+                ops.add(LedgerOp.add(record));
+            }
+            if (ops.isEmpty()) return 0;
+            dirtySegments.set(first >>> LedgerSnapshot.SEGMENT_SHIFT, ((records.size() - 1) >>> LedgerSnapshot.SEGMENT_SHIFT) + 1);
+            version++;
+            saveRecords(ops);
+            return ops.size();
+        } catch (RuntimeException e) {
+            throw metrics.add.fail(e);
+        } finally {
+            metrics.add.record(start);
+            event.commit();
+        }
+    }
 
-        records.add(record);
-        saveRecords();
+    // 新增：当前记录条数 (不含已删除)
+    public synchronized int getRecordCount() {
+        return records.size() - tombstones.cardinality();
     }
 
-    // 获取所有记录
+    // 获取所有记录 (并发模式下返回不可变快照)
+    // 还有没压缩的墓碑时返回跳过墓碑行的视图，下一次修改之前有效；不再每次都压缩
     public List<Record> getAllRecords() {
-        return records;
+        if (concurrent) return snapshot();
+        synchronized (this) {
+            compactIfNeeded();
+            return liveRecords();
+        }
+    }
+
+    /**
+     * 新增：当前版本的只读快照。版本没变时直接返回上次发布的快照，不加锁。
+     */
+    public LedgerSnapshot snapshot() {
+        LedgerSnapshot current = published;
+        if (current.getVersion() == version) return current;
+        synchronized (this) {
+            if (published.getVersion() == version && publishedFrom == records) return published;
+            ensureIndexed();
+            compact();
+            if (publishedFrom != records) shiftFrom = 0; // records 被整体替换，全部重新复制
+            LedgerSnapshot next = LedgerSnapshot.build(records, version, published, dirtySegments, shiftFrom, aggregates.totals());
+            dirtySegments.clear();
+            shiftFrom = Integer.MAX_VALUE;
+            publishedFrom = records;
+            published = next;
+            return next;
+        }
     }
 
-    public void deleteRecord(Record record) {
-        records.remove(record);
-        saveRecords(); // 删除后立即保存文件
+    public synchronized void deleteRecord(Record record) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("delete", 1);
+        long start = System.nanoTime();
+        try {
+            int index = positionOf(record);
+            if (index != -1) {
+                Record removed = deleteAt(index);
+                saveRecords(LedgerOp.delete(removed)); // 删除后立即保存文件
+            }
+        } catch (RuntimeException e) {
+            throw metrics.delete.fail(e);
+        } finally {
+            metrics.delete.record(start);
+            event.commit();
+        }
+    }
+
+    // 新增：按 id 查找，哈希表直接定位，找不到返回 null
+    public synchronized Record getById(String id) {
+        int index = positionOf(id);
+        return index == -1 ? null : records.get(index);
+    }
+
+    // 新增：按 id 修改，保留原来的 id；values 只提供新的字段值
+    public synchronized boolean updateById(String id, Record values) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("update", 1);
+        long start = System.nanoTime();
+        try {
+            int index = positionOf(id);
+            if (index == -1) return false;
+            Record updated = new Record(id, values.getType(), values.getAmount(), values.getCategory(), values.getDate(), values.getNote());
+            Record old = replaceAt(index, updated);
+            saveRecords(LedgerOp.update(old, updated));
+            return true;
+        } catch (RuntimeException e) {
+            throw metrics.update.fail(e);
+        } finally {
+            metrics.update.record(start);
+            event.commit();
+        }
+    }
+
+    // 新增：按 id 删除
+    public synchronized boolean deleteById(String id) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("delete", 1);
+        long start = System.nanoTime();
+        try {
+            int index = positionOf(id);
+            if (index == -1) return false;
+            saveRecords(LedgerOp.delete(deleteAt(index)));
+            return true;
+        } catch (RuntimeException e) {
+            throw metrics.delete.fail(e);
+        } finally {
+            metrics.delete.record(start);
+            event.commit();
+        }
+    }
+
+    // 新增：批量删除 (表格多选)，所有删除作为一批提交给存储层，返回实际删除的条数
+    public synchronized int deleteByIds(Collection<String> ids) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("delete", ids.size());
+        long start = System.nanoTime();
+        try {
+            List<LedgerOp> ops = new ArrayList<>();
+            for (String id : ids) {
+                int index = positionOf(id);
+                if (index != -1) ops.add(LedgerOp.delete(deleteAt(index)));
+            }
+            if (!ops.isEmpty()) saveRecords(ops);
+            return ops.size();
+        } catch (RuntimeException e) {
+            throw metrics.delete.fail(e);
+        } finally {
+            metrics.delete.record(start);
+            event.commit();
+        }
     }
 
     // 筛选记录 (Req006, Req007 [cite: 28, 31])
@@ -48,15 +286,445 @@ public class AccountService {
             throw new IllegalStateException("CRASH: 模糊测试触发了隐藏的 Bug！！！");
         }
 
-        return records.stream()
-                // 1. 时间筛选
-                .filter(r -> (start == null || !r.getDate().isBefore(start)))
-                .filter(r -> (end == null || !r.getDate().isAfter(end)))
-                // 2. 类型筛选 (收入/支出/全部)
-                .filter(r -> (type == null || "全部".equals(type) || r.getType().equals(type)))
-                // 3. 新增：分类筛选 (如果用户输入了内容，则必须匹配分类名称)
-                .filter(r -> (categoryQuery == null || categoryQuery.trim().isEmpty() || r.getCategory().equals(categoryQuery.trim())))
-                .collect(Collectors.toList());
+        Collection<String> types = (type == null || "全部".equals(type)) ? null : List.of(type);
+        Collection<String> categories = (categoryQuery == null || categoryQuery.trim().isEmpty()) ? null : List.of(categoryQuery.trim());
+        return searchRecordsAny(start, end, types, categories);
+    }
+
+    // 新增：多值筛选，同一字段内任一取值命中即可 (如 餐饮 或 交通)，不同字段之间为"且"；
+    // 传 null 表示该字段不限制。日期走日期索引，类型/分类走位图索引。
+    public List<Record> searchRecordsAny(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        LedgerEvents.Query event = LedgerEvents.query("search", start, end, types, categories, records.size());
+        long started = System.nanoTime();
+        try {
+            if (start == null && end == null && types == null && categories == null) {
+                return event.finish(new ArrayList<>(getAllRecords()));
+            }
+            if (concurrent) {
+                // 并发模式：在已发布的快照上用它自己的索引筛选，不占用 this 的锁
+                LedgerSnapshot snapshot = snapshot();
+                LedgerSnapshot.Filters filters = snapshot.filters();
+                int[] rows = filterRows(filters.dates, filters.bitmaps, RecordColumns.of(snapshot), start, end, types, categories);
+                List<Record> result = new ArrayList<>(rows.length);
+                for (int row : rows) {
+                    result.add(snapshot.get(row));
+                }
+                return event.finish(result);
+            }
+            synchronized (this) {
+                int[] rows = prunedRows(start, end, types, categories);
+                if (rows == null) {
+                    ensureIndexed();
+                    compactIfNeeded();
+                    rows = matchingRows(start, end, types, categories);
+                }
+                // 最后才把命中的行号取成 Record，跳过还没压缩掉的墓碑行
+                // 在锁内取出 Record，避免其它线程同时修改导致行号错位
+                List<Record> result = new ArrayList<>(rows.length);
+                boolean hasTombstones = tombstones.cardinality() > 0;
+                for (int row : rows) {
+                    if (hasTombstones && tombstones.contains(row)) continue;
+                    result.add(records.get(row));
+                }
+                return event.finish(result);
+            }
+        } catch (RuntimeException e) {
+            throw metrics.search.fail(e);
+        } finally {
+            metrics.search.record(started);
+            event.commit();
+        }
+    }
+
+    // 新增：查询结果视图的排序方式，排序在行号上完成，不生成 Record
+    public enum SortKey { INSERTION, DATE, AMOUNT, TYPE, CATEGORY, NOTE }
+
+    /**
+     * 新增：查询结果的只读视图 (导出 / 表格用)，条件同 searchRecordsAny。
+     * 命中的行号和同一版本的快照一起取出，不复制 Record；之后可以在任意线程不加锁地逐行读取，
+     * 期间的增删改不会影响这个视图。
+     */
+    public List<Record> queryView(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        return queryView(start, end, types, categories, SortKey.INSERTION, false);
+    }
+
+    // 同上，按 key 排序：日期直接用日期索引的顺序，其余按列值打包成 long 排序
+    public synchronized List<Record> queryView(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories,
+                                               SortKey key, boolean descending) {
+        LedgerEvents.Query event = LedgerEvents.query("view", start, end, types, categories, records.size());
+        if (event.isEnabled()) event.sort = key + (descending ? " desc" : "");
+        long started = System.nanoTime();
+        try {
+            LedgerSnapshot snapshot = snapshot(); // 已经在锁内压缩过，行号与快照一致
+            boolean unfiltered = start == null && end == null && types == null && categories == null;
+            if (unfiltered && key == SortKey.INSERTION && !descending) {
+                return event.finish(snapshot);
+            }
+            int[] rows;
+            if (key == SortKey.DATE) {
+                rows = rowsByDate(start, end, types, categories);
+            } else if (unfiltered) {
+                rows = new int[snapshot.size()];
+                for (int i = 0; i < rows.length; i++) rows[i] = i;
+            } else {
+                rows = matchingRows(start, end, types, categories).clone(); // 下面会原地排序，不能改缓存里的数组
+            }
+            if (key != SortKey.INSERTION && key != SortKey.DATE) sortRows(rows, key);
+            if (descending) {
+                for (int i = 0, j = rows.length - 1; i < j; i++, j--) {
+                    int t = rows[i];
+                    rows[i] = rows[j];
+                    rows[j] = t;
+                }
+            }
+            return event.finish(new RowsView(snapshot, rows));
+        } catch (RuntimeException e) {
+            throw metrics.search.fail(e);
+        } finally {
+            metrics.search.record(started);
+            event.commit();
+        }
+    }
+
+    // 日期区间内按 (日期, 行号) 排好的行，再按位图过滤 (保持顺序)
+    private int[] rowsByDate(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        // 与 matchingRows 一致：两端都不限时包括没有日期的记录
+        int startDay = start != null ? DateIndex.dayOf(start) : end == null ? DateIndex.NO_DATE : DateIndex.NO_DATE + 1;
+        int endDay = end == null ? Integer.MAX_VALUE : DateIndex.dayOf(end);
+        int[] rows = dateIndex.rowsInDateOrder(startDay, endDay);
+        RowBitmap filter = intersect(bitmapIndex.types(types), bitmapIndex.categories(categories));
+        if (filter == null) return rows;
+        int n = 0;
+        for (int row : rows) {
+            if (filter.contains(row)) rows[n++] = row;
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    // (排序键 << 32 | 行号) 打包后排序，相同键按行号 (插入顺序) 排
+    private void sortRows(int[] rows, SortKey key) {
+        RecordColumns columns = RecordColumns.of(records);
+        int[] keys = new int[rows.length];
+        if (key == SortKey.AMOUNT) {
+            for (int i = 0; i < rows.length; i++) {
+                long cents = columns.amountCents(rows[i]);
+                if (cents != (int) cents) { // 超过 ±2147 万元，退回逐个比较
+                    sortRowsByCents(rows, columns);
+                    return;
+                }
+                keys[i] = (int) cents;
+            }
+        } else {
+            // 文本列：先给不同取值排好名次 (null 在最前)，再按名次排；备注取值多一些，做法一样
+            Map<String, Integer> rank = new HashMap<>();
+            for (int row : rows) rank.putIfAbsent(text(columns, row, key), 0);
+            List<String> values = new ArrayList<>(rank.keySet());
+            values.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+            for (int i = 0; i < values.size(); i++) rank.put(values.get(i), i);
+            for (int i = 0; i < rows.length; i++) {
+                keys[i] = rank.get(text(columns, rows[i], key));
+            }
+        }
+        long[] packed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) packed[i] = ((long) keys[i] << 32) | rows[i];
+        Arrays.sort(packed);
+        for (int i = 0; i < rows.length; i++) rows[i] = (int) packed[i];
+    }
+
+    private static String text(RecordColumns columns, int row, SortKey key) {
+        switch (key) {
+            case TYPE: return columns.type(row);
+            case CATEGORY: return columns.category(row);
+            default: return columns.note(row);
+        }
+    }
+
+    private static void sortRowsByCents(int[] rows, RecordColumns columns) {
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) boxed[i] = rows[i];
+        Arrays.sort(boxed, Comparator.<Integer>comparingLong(columns::amountCents).thenComparingInt(row -> row));
+        for (int i = 0; i < rows.length; i++) rows[i] = boxed[i];
+    }
+
+    // 参数含义同 searchRecords ("全部" 或空表示不限制)
+    public List<Record> searchView(LocalDate start, LocalDate end, String type, String categoryQuery) {
+        return searchView(start, end, type, categoryQuery, SortKey.INSERTION, false);
+    }
+
+    public List<Record> searchView(LocalDate start, LocalDate end, String type, String categoryQuery, SortKey key, boolean descending) {
+        Collection<String> types = (type == null || "全部".equals(type)) ? null : List.of(type);
+        Collection<String> categories = (categoryQuery == null || categoryQuery.trim().isEmpty()) ? null : List.of(categoryQuery.trim());
+        return queryView(start, end, types, categories, key, descending);
+    }
+
+    private static final class RowsView extends AbstractList<Record> implements RandomAccess {
+        private final LedgerSnapshot snapshot;
+        private final int[] rows;
+
+        RowsView(LedgerSnapshot snapshot, int[] rows) {
+            this.snapshot = snapshot;
+            this.rows = rows;
+        }
+
+        @Override
+        public Record get(int index) {
+            return snapshot.get(rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    // 新增：全文检索的匹配方式，后一种包含前一种的结果
+    public enum TextMatch { PREFIX, SUBSTRING, FUZZY }
+
+    private static final int NO_TEXT_MATCH = 1 << 20;
+
+    /**
+     * 新增：在分类和备注中检索 query (不区分大小写)，按相关度排序，最多返回 limit 条。
+     * 相关度：完全相同 > 前缀 > 包含 > 模糊 (编辑距离小的在前)；同一级里分类命中排在备注命中前面，再按新记录在前。
+     * FUZZY 允许的编辑距离：1 个字 0 次，2~4 个字 1 次，更长 2 次。
+     */
+    public synchronized List<Record> searchText(String query, TextMatch match, int limit) {
+        LedgerEvents.Query event = LedgerEvents.query("text", null, null, null, null, records.size());
+        if (event.isEnabled()) event.predicate = match + " \"" + query + "\"";
+        long start = System.nanoTime();
+        try {
+            String q = query == null ? "" : TextIndex.normalize(query.trim());
+            if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+            ensureIndexed();
+            compact();
+            RecordColumns columns = RecordColumns.of(records);
+            if (textIndex == null) {
+                textIndex = new TextIndex();
+                textIndex.rebuild(columns);
+            }
+            int maxEdits = match != TextMatch.FUZZY || q.length() <= 1 ? 0 : q.length() <= 4 ? 1 : 2;
+            int[] candidates = maxEdits > 0 ? textIndex.fuzzyCandidates(q, maxEdits) : textIndex.candidates(q).toArray();
+            // (得分 << 32 | 倒序行号) 排序：得分小的在前，同分时行号大的 (新的) 在前
+            long[] ranked = new long[candidates.length];
+            int n = 0;
+            for (int row : candidates) {
+                int score = Math.min(textScore(q, columns.category(row), match, maxEdits) * 2,
+                        textScore(q, columns.note(row), match, maxEdits) * 2 + 1);
+                if (score < NO_TEXT_MATCH) ranked[n++] = ((long) score << 32) | (Integer.MAX_VALUE - row);
+            }
+            Arrays.sort(ranked, 0, n);
+            List<Record> result = new ArrayList<>(Math.min(n, limit));
+            for (int i = 0; i < n && i < limit; i++) {
+                result.add(records.get(Integer.MAX_VALUE - (int) ranked[i]));
+            }
+            return event.finish(result);
+        } catch (RuntimeException e) {
+            throw metrics.search.fail(e);
+        } finally {
+            metrics.search.record(start);
+            event.commit();
+        }
+    }
+
+    // 0 相同，1 前缀，2 包含，2 + d 模糊 (编辑距离 d)；不匹配返回 NO_TEXT_MATCH
+    private static int textScore(String q, String field, TextMatch match, int maxEdits) {
+        if (field == null) return NO_TEXT_MATCH;
+        String text = TextIndex.normalize(field);
+        if (text.equals(q)) return 0;
+        if (text.startsWith(q)) return 1;
+        if (match == TextMatch.PREFIX) return NO_TEXT_MATCH;
+        if (text.contains(q)) return 2;
+        if (maxEdits == 0) return NO_TEXT_MATCH;
+        int d = TextIndex.substringDistance(q, text);
+        return d <= maxEdits ? 2 + d : NO_TEXT_MATCH;
+    }
+
+    // 新增：任意条件的筛选 (索引覆盖不到的情况)，日期区间仍走索引，其余逐行判断
+    public List<Record> searchRecordsWhere(LocalDate start, LocalDate end, Predicate<Record> predicate) {
+        LedgerEvents.Query event = LedgerEvents.query("where", start, end, null, null, records.size());
+        event.fullScan = true;
+        long started = System.nanoTime();
+        try {
+            List<Record> candidates = searchRecordsAny(start, end, null, null);
+            List<Record> result = new ArrayList<>();
+            for (Record r : candidates) {
+                if (predicate.test(r)) result.add(r);
+            }
+            return event.finish(result);
+        } catch (RuntimeException e) {
+            throw metrics.search.fail(e);
+        } finally {
+            metrics.search.record(started);
+            event.commit();
+        }
+    }
+
+    // 新增：筛选结果的金额汇总 (合计/条数/最小/最大，单位为分)，筛选条件同 searchRecordsAny。
+    // 不生成 Record：列式存储直接在金额列上跑聚合内核，只按类型筛选时用掩码求和，不查位图
+    public LongSummaryStatistics summarizeRecords(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        LedgerEvents.Aggregate event = LedgerEvents.aggregate("summarize", null);
+        if (event.isEnabled()) event.type = LedgerEvents.predicate(start, end, types, categories);
+        long started = System.nanoTime();
+        try {
+            if (concurrent) return summarize(snapshot(), start, end, types, categories);
+            synchronized (this) {
+                int[] pruned = prunedRows(start, end, types, categories);
+                if (pruned != null) {
+                    RecordColumns columns = RecordColumns.of(records);
+                    LongSummaryStatistics stats = new LongSummaryStatistics();
+                    for (int row : pruned) stats.accept(columns.amountCents(row));
+                    return stats;
+                }
+                ensureIndexed();
+                compact();
+                boolean unfiltered = start == null && end == null && categories == null;
+                long[] s; // {合计, 条数, 最小, 最大}
+                if (records instanceof ColumnarRecordList) {
+                    ColumnarRecordList columns = (ColumnarRecordList) records;
+                    long[] cents = columns.centsColumn();
+                    int n = columns.size();
+                    if (unfiltered && types == null) {
+                        s = AggregationKernels.summarize(cents, n);
+                    } else if (unfiltered && types.size() == 1) {
+                        int code = columns.typeCode(types.iterator().next());
+                        if (code == ColumnarRecordList.NOT_FOUND) return new LongSummaryStatistics();
+                        byte[] keys = columns.typeCodeColumn();
+                        s = new long[]{AggregationKernels.sumMasked(cents, keys, code, n), AggregationKernels.countMasked(keys, code, n),
+                                AggregationKernels.minMasked(cents, keys, code, n), AggregationKernels.maxMasked(cents, keys, code, n)};
+                    } else {
+                        s = AggregationKernels.summarizeRows(cents, matchingRows(start, end, types, categories));
+                    }
+                } else {
+                    RecordColumns columns = RecordColumns.of(records);
+                    LongSummaryStatistics stats = new LongSummaryStatistics();
+                    if (unfiltered && types == null) {
+                        for (int row = 0; row < columns.size(); row++) stats.accept(columns.amountCents(row));
+                    } else {
+                        for (int row : matchingRows(start, end, types, categories)) stats.accept(columns.amountCents(row));
+                    }
+                    return stats;
+                }
+                if (s[1] == 0) return new LongSummaryStatistics();
+                return new LongSummaryStatistics(s[1], s[2], s[3], s[0]);
+            }
+        } catch (RuntimeException e) {
+            throw metrics.aggregate.fail(e);
+        } finally {
+            metrics.aggregate.record(started);
+            event.commit();
+        }
+    }
+
+    // 并发模式的汇总：在快照上逐行累加命中行的金额
+    private static LongSummaryStatistics summarize(LedgerSnapshot snapshot, LocalDate start, LocalDate end,
+                                                   Collection<String> types, Collection<String> categories) {
+        RecordColumns columns = RecordColumns.of(snapshot);
+        LongSummaryStatistics stats = new LongSummaryStatistics();
+        if (start == null && end == null && types == null && categories == null) {
+            for (int row = 0; row < columns.size(); row++) stats.accept(columns.amountCents(row));
+            return stats;
+        }
+        LedgerSnapshot.Filters filters = snapshot.filters();
+        for (int row : filterRows(filters.dates, filters.bitmaps, columns, start, end, types, categories)) {
+            stats.accept(columns.amountCents(row));
+        }
+        return stats;
+    }
+
+    // 返回同时满足日期区间和位图条件的行号 (升序)，先查缓存。返回的数组可能被缓存共享，不能修改
+    private int[] matchingRows(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        QueryCache.Key key = new QueryCache.Key(start, end, types, categories);
+        RecordColumns columns = RecordColumns.of(records);
+        int[] rows = queryCache.get(key, columns);
+        if (rows == null) {
+            rows = computeMatchingRows(start, end, types, categories);
+            queryCache.put(key, rows, columns.size());
+        }
+        return rows;
+    }
+
+    // 新增：筛选结果缓存的命中统计
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    private int[] computeMatchingRows(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        return filterRows(dateIndex, bitmapIndex, RecordColumns.of(records), start, end, types, categories);
+    }
+
+    // 用给定的日期索引和位图筛选 columns 的行号 (升序)；AccountService 自己的索引和快照的索引共用
+    private static int[] filterRows(DateIndex dateIndex, BitmapIndex bitmapIndex, RecordColumns columns,
+                                    LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        RowBitmap filter = intersect(bitmapIndex.types(types), bitmapIndex.categories(categories));
+        if (start == null && end == null) {
+            return filter.toArray();
+        }
+        int startDay = start == null ? DateIndex.NO_DATE + 1 : DateIndex.dayOf(start);
+        int endDay = end == null ? Integer.MAX_VALUE : DateIndex.dayOf(end);
+        int[] dated = dateIndex.rowsBetween(startDay, endDay);
+        if (filter == null) {
+            return dated;
+        }
+        // 两边取小的一边驱动：位图命中少就逐个检查日期，否则遍历日期区间检查位图
+        int[] out;
+        int n = 0;
+        if (filter.cardinality() < dated.length) {
+            int[] candidates = filter.toArray();
+            out = new int[candidates.length];
+            for (int row : candidates) {
+                int day = columns.epochDay(row);
+                if (day >= startDay && day <= endDay) out[n++] = row;
+            }
+        } else {
+            out = new int[dated.length];
+            for (int row : dated) {
+                if (filter.contains(row)) out[n++] = row;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 新增：分段存储 (PartitionedRecordList) 还没有建全量索引时，带日期区间的筛选不建索引，
+     * 只逐行检查区间覆盖到的段，其它段不映射也不解码。返回命中的行号 (升序)；不适用时返回 null，走索引。
+     * 全量索引建好之后日期索引本来就只碰区间内的行，不再需要裁剪。
+     */
+    private int[] prunedRows(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        if (!(records instanceof PartitionedRecordList) || (start == null && end == null) || indexValid(records.size())) {
+            return null;
+        }
+        compact();
+        // 与 computeMatchingRows 一致：有日期条件时不包括没有日期的记录
+        int startDay = start == null ? DateIndex.NO_DATE + 1 : DateIndex.dayOf(start);
+        int endDay = end == null ? Integer.MAX_VALUE : DateIndex.dayOf(end);
+        PartitionedRecordList columns = (PartitionedRecordList) records;
+        int[] rows = columns.rowsBetween(startDay, endDay);
+        int n = 0;
+        for (int row : rows) {
+            int day = columns.epochDay(row);
+            if (day < startDay || day > endDay) continue;
+            if (types != null && !types.contains(columns.type(row))) continue;
+            if (categories != null && !categories.contains(columns.category(row))) continue;
+            rows[n++] = row;
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    // 按月份区间统计用的立方体：能裁剪时只用区间内的行临时建一个，否则用全量的
+    private RollupCube cubeFor(YearMonth from, YearMonth to) {
+        int[] rows = prunedRows(from == null ? null : from.atDay(1), to == null ? null : to.atEndOfMonth(), null, null);
+        if (rows == null) {
+            ensureIndexed();
+            return cube;
+        }
+        RollupCube partial = new RollupCube();
+        partial.rebuild(RecordColumns.subset(RecordColumns.of(records), rows));
+        return partial;
+    }
+
+    private static RowBitmap intersect(RowBitmap a, RowBitmap b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.and(b);
     }
 
 //    // 筛选记录 (Req006, Req007 [cite: 28, 31])
@@ -72,70 +740,422 @@ public class AccountService {
 //                .collect(Collectors.toList());
 //    }
 
-    // 统计总收入/支出 (Req004 )
+    // 统计总收入/支出 (Req004 )：直接读增量维护的合计，不再扫描全部记录
     public double calculateTotal(String type) {
-        return records.stream()
-                .filter(r -> r.getType().equals(type))
-                .mapToDouble(Record::getAmount)
-                .sum();
+        LedgerEvents.Aggregate event = LedgerEvents.aggregate("total", type);
+        long start = System.nanoTime();
+        try {
+            if (concurrent) return Money.toAmount(snapshot().totalCents(type));
+            synchronized (this) {
+                ensureIndexed();
+                return Money.toAmount(aggregates.totalCents(type));
+            }
+        } catch (RuntimeException e) {
+            throw metrics.aggregate.fail(e);
+        } finally {
+            metrics.aggregate.record(start);
+            event.commit();
+        }
     }
 
     // 新增：获取月度统计数据 (返回格式如：{"2025-11": 5000.0, "2025-12": 6000.0})
     public java.util.Map<String, Double> getMonthlyStats(String type) {
-        // 使用 TreeMap 让月份自动按时间排序
-        java.util.Map<String, Double> stats = new java.util.TreeMap<>();
-        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM");
+        LedgerEvents.Aggregate event = LedgerEvents.aggregate("monthly", type);
+        long start = System.nanoTime();
+        try {
+            if (concurrent) return snapshot().rollups().aggregates.monthly(type);
+            // 按月合计随增删改维护，这里只是把几十个月份整理成 TreeMap 返回
+            synchronized (this) {
+                ensureIndexed();
+                return aggregates.monthly(type);
+            }
+        } catch (RuntimeException e) {
+            throw metrics.aggregate.fail(e);
+        } finally {
+            metrics.aggregate.record(start);
+            event.commit();
+        }
+    }
 
-        for (Record r : records) {
-            if (r.getType().equals(type)) {
-                String month = r.getDate().format(formatter);
-                stats.put(month, stats.getOrDefault(month, 0.0) + r.getAmount());
+    // 新增：分类构成 (饼图)，例如 三季度支出的分类构成: getCategoryBreakdown("支出", 2025-07, 2025-09)
+    // from/to 为 null 表示不限；结果直接来自预聚合立方体，不遍历记录
+    public java.util.Map<String, Double> getCategoryBreakdown(String type, YearMonth from, YearMonth to) {
+        LedgerEvents.Aggregate event = LedgerEvents.aggregate("breakdown", type);
+        long start = System.nanoTime();
+        try {
+            java.util.Map<String, Long> sums;
+            if (concurrent) {
+                sums = snapshot().rollups().cube.categoryBreakdown(type, from, to);
+            } else {
+                synchronized (this) {
+                    sums = cubeFor(from, to).categoryBreakdown(type, from, to);
+                }
             }
+            java.util.Map<String, Double> result = new java.util.LinkedHashMap<>();
+            sums.forEach((category, cents) -> result.put(category, Money.toAmount(cents)));
+            return result;
+        } catch (RuntimeException e) {
+            throw metrics.aggregate.fail(e);
+        } finally {
+            metrics.aggregate.record(start);
+            event.commit();
+        }
+    }
+
+    // 新增：按月、按分类的合计，例如 每月收入按分类拆分 (返回 {"2025-01": {"工资": 5000.0, ...}, ...})
+    public java.util.Map<String, java.util.Map<String, Double>> getMonthlyCategoryStats(String type, YearMonth from, YearMonth to) {
+        LedgerEvents.Aggregate event = LedgerEvents.aggregate("monthlyByCategory", type);
+        long start = System.nanoTime();
+        try {
+            java.util.Map<String, java.util.Map<String, Long>> monthly;
+            if (concurrent) {
+                monthly = snapshot().rollups().cube.monthlyByCategory(type, from, to);
+            } else {
+                synchronized (this) {
+                    monthly = cubeFor(from, to).monthlyByCategory(type, from, to);
+                }
+            }
+            java.util.Map<String, java.util.Map<String, Double>> result = new java.util.LinkedHashMap<>();
+            monthly.forEach((month, sums) -> {
+                java.util.Map<String, Double> amounts = new java.util.LinkedHashMap<>();
+                sums.forEach((category, cents) -> amounts.put(category, Money.toAmount(cents)));
+                result.put(month, amounts);
+            });
+            return result;
+        } catch (RuntimeException e) {
+            throw metrics.aggregate.fail(e);
+        } finally {
+            metrics.aggregate.record(start);
+            event.commit();
         }
-        return stats;
     }
 
     // 新增：更新记录 (Req003)
-    public void updateRecord(Record oldRecord, Record newRecord) {
-        int index = records.indexOf(oldRecord);
-        if (index != -1) {
-            records.set(index, newRecord); // 替换旧记录
-            saveRecords(); // 保存文件
+    public synchronized void updateRecord(Record oldRecord, Record newRecord) {
+        LedgerEvents.Mutation event = LedgerEvents.mutation("update", 1);
+        long start = System.nanoTime();
+        try {
+            int index = positionOf(oldRecord);
+            if (index != -1) {
+                replaceAt(index, newRecord); // 替换旧记录
+                saveRecords(LedgerOp.update(oldRecord, newRecord)); // 保存文件
+            }
+        } catch (RuntimeException e) {
+            throw metrics.update.fail(e);
+        } finally {
+            metrics.update.record(start);
+            event.commit();
         }
     }
 
-    // 本地存储实现 (DataStorage )
-    private void saveRecords() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(records);
+    /**
+     * 新增：每次增删改提交后 (仍在写锁内) 调用 listener。listener 只应该做很轻的事，比如把刷新投递到界面线程。
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    // 新增：等待所有已提交的修改写入磁盘 (异步写入模式下使用，测试和退出前调用)
+    public void flush() throws IOException {
+        store.flush();
+    }
+
+    // 新增：程序退出时调用，写完剩余修改并释放文件
+    public void close() throws IOException {
+        metrics.close();
+        store.close();
+    }
+
+    // 新增：运行指标 (JMX / 定时打印 / /api/metrics 共用)
+    public LedgerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 记录数据大约占用的堆内存：列式存储按实际数组大小，对象模式按每条记录的平均大小估算
+    private static final long OBJECT_RECORD_BYTES = 160;
+
+    private synchronized long estimateHeapBytes() {
+        if (records instanceof ColumnarRecordList) return ((ColumnarRecordList) records).estimatedBytes();
+        return OBJECT_RECORD_BYTES * records.size();
+    }
+
+    // 本地存储实现 (DataStorage )：具体写整文件还是追加日志由 LedgerStore 决定
+    private void saveRecords(LedgerOp op) {
+        saveRecords(List.of(op));
+    }
+
+    private void saveRecords(List<LedgerOp> ops) {
+        LedgerEvents.Save event = new LedgerEvents.Save();
+        event.begin();
+        long start = System.nanoTime();
+        long bytesBefore = store.getBytesWritten();
+        IOException failure = null;
+        try {
+            store.commit(ops, this::snapshotForStore);
         } catch (IOException e) {
-            e.printStackTrace();
+            metrics.save.fail(e);
+            event.failed = true;
+            LOG.log(Level.SEVERE, "保存账本失败", e);
+            failure = e;
+        }
+        metrics.save.record(start);
+        long bytes = store.getBytesWritten() - bytesBefore;
+        metrics.recordSaveBytes(bytes); // 异步写入时是这段时间里写线程写出的量
+        event.end();
+        if (event.shouldCommit()) {
+            event.storage = store.getClass().getSimpleName();
+            event.ops = ops.size();
+            event.records = records.size();
+            event.bytes = bytes;
+            event.async = store.isAsync();
+            event.commit();
         }
+        for (Runnable listener : changeListeners) listener.run();
+        // 内存里已经改了，但没有落盘：让调用方知道
+        if (failure != null) throw new UncheckedIOException("无法保存账本: " + failure.getMessage(), failure);
     }
 
-//    @SuppressWarnings("unchecked")
-//    private List<Record> loadRecords() {
-//        File file = new File(DATA_FILE);
-//        if (!file.exists()) return new ArrayList<>();
-//        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-//            return (List<Record>) ois.readObject();
-//        } catch (Exception e) {
-//            return new ArrayList<>();
-//        }
-//    }
-    // 缺陷 1: 资源未关闭 (Resource Leak) - 对应 CWE-772
-    // 修改 loadRecords 方法，去掉 try-with-resources，且故意不 close 流
-    @SuppressWarnings("unchecked")
+    // 异步写入时 snapshot 在后台线程取用，需要在锁内复制一份 (列式存储直接复制列数组)
+    private synchronized List<Record> snapshotForStore() {
+        compactIfNeeded();
+        // 懒加载列表在整文件重写后要切到新文件 (rebase)，行号必须和写出去的一致
+        if (records instanceof LazyRecordList) compact();
+        List<Record> live = liveRecords();
+        if (!store.isAsync()) return live;
+        return live instanceof ColumnarRecordList ? ((ColumnarRecordList) live).copy() : new ArrayList<>(live);
+    }
+
+    // --- 索引维护 ---
+
+    // records 被整体替换 (重新加载 / 测试注入) 或大小对不上时重建索引
+    private void ensureIndexed() {
+        if (indexValid(records.size())) return;
+        if (indexedRecords == records) {
+            compact(); // 同一个列表：墓碑仍然有效，先删掉再重建
+        } else {
+            tombstones = new RowBitmap(); // 换了列表，旧墓碑对应的是旧列表的行号
+        }
+        RecordColumns columns = RecordColumns.of(records);
+        dateIndex.rebuild(columns);
+        bitmapIndex.rebuild(columns);
+        aggregates.rebuild(columns);
+        cube.rebuild(columns);
+        indexedRecords = records;
+        positions = null;
+        textIndex = null;
+        queryCache.invalidate();
+    }
+
+    // 日期/位图索引里还留着墓碑行，合计和立方体里已经减掉了
+    private boolean indexValid(int sizeBefore) {
+        int live = sizeBefore - tombstones.cardinality();
+        return indexedRecords == records && dateIndex.size() == sizeBefore && bitmapIndex.size() == sizeBefore
+                && aggregates.size() == live && cube.size() == live && (textIndex == null || textIndex.size() == sizeBefore);
+    }
+
+    private int positionOf(Record record) {
+        if (record.getId() != null) return positionOf(record.getId());
+        compact();
+        return records.indexOf(record);
+    }
+
+    private int positionOf(String id) {
+        ensureIndexed();
+        if (positions == null) {
+            RecordColumns columns = RecordColumns.of(records);
+            positions = new HashMap<>(Math.max(16, columns.size() * 4 / 3 + 1));
+            for (int row = 0; row < columns.size(); row++) {
+                String rowId = columns.id(row);
+                if (rowId != null && !tombstones.contains(row)) positions.put(rowId, row);
+            }
+        }
+        Integer index = positions.get(id);
+        return index == null ? -1 : index;
+    }
+
+    private Record replaceAt(int index, Record newRecord) {
+        Record replaced = records.set(index, newRecord);
+        indexUpdated(index, replaced, newRecord);
+        queryCache.invalidate();
+        changed(index);
+        if (positions != null) {
+            if (replaced.getId() != null) positions.remove(replaced.getId());
+            if (newRecord.getId() != null) positions.put(newRecord.getId(), index);
+        }
+        return replaced;
+    }
+
+    // 只打墓碑：合计/立方体立即减掉，行号相关的结构留到 compact 时统一处理
+    private Record deleteAt(int index) {
+        Record removed = records.get(index);
+        if (indexValid(records.size())) {
+            aggregates.remove(removed);
+            cube.remove(removed);
+        }
+        tombstones.add(index);
+        queryCache.invalidate();
+        if (positions != null && removed.getId() != null) positions.remove(removed.getId());
+        version++;
+        return removed;
+    }
+
+    // 第 row 行的内容变了：版本加一，快照里对应的段下次发布时重新复制
+    private void changed(int row) {
+        dirtySegments.set(row >>> LedgerSnapshot.SEGMENT_SHIFT);
+        version++;
+    }
+
+    // 墓碑不到 1024 条、也不到总行数的 1/8 时先不压缩：压缩要移动后面所有的行，攒够了一起做，均摊下来每次删除是常数时间
+    private static final int COMPACT_MIN_TOMBSTONES = 1024;
+
+    private void compactIfNeeded() {
+        int dead = tombstones.cardinality();
+        if (dead > 0 && dead >= Math.max(COMPACT_MIN_TOMBSTONES, records.size() >>> 3)) compact();
+    }
+
+    // 不含墓碑行的 records：没有墓碑时就是 records 本身
+    private List<Record> liveRecords() {
+        return tombstones.cardinality() == 0 ? records : new LiveRecords(records, tombstones.toArray());
+    }
+
+    /**
+     * 跳过墓碑行的只读视图。第 i 条存活记录在 records 中的行号 = i + 它之前的墓碑数，
+     * dead[j] - j 是第 j 个墓碑之前的存活行数 (单调不减)，二分查找即可。按列读取时同样换算行号。
+     */
+    private static final class LiveRecords extends AbstractList<Record> implements RandomAccess, RecordColumns {
+        private final List<Record> rows;
+        private final RecordColumns columns;
+        private final int[] dead;
+
+        LiveRecords(List<Record> rows, int[] dead) {
+            this.rows = rows;
+            this.columns = RecordColumns.of(rows);
+            this.dead = dead;
+        }
+
+        private int row(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int lo = 0;
+            int hi = dead.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (dead[mid] - mid <= index) lo = mid + 1;
+                else hi = mid;
+            }
+            return index + lo;
+        }
+
+        @Override
+        public Record get(int index) {
+            return rows.get(row(index));
+        }
+
+        @Override
+        public int size() {
+            return rows.size() - dead.length;
+        }
+
+        @Override
+        public int epochDay(int index) { return columns.epochDay(row(index)); }
+
+        @Override
+        public String type(int index) { return columns.type(row(index)); }
+
+        @Override
+        public String category(int index) { return columns.category(row(index)); }
+
+        @Override
+        public double amount(int index) { return columns.amount(row(index)); }
+
+        @Override
+        public String id(int index) { return columns.id(row(index)); }
+
+        @Override
+        public String note(int index) { return columns.note(row(index)); }
+
+        @Override
+        public long amountCents(int index) { return columns.amountCents(row(index)); }
+
+        @Override
+        public long key(int index) { return columns.key(row(index)); }
+    }
+
+    // 把墓碑行从 records 中一次性删掉：后面的行整体前移一遍，索引行号按同样的规则重映射
+    private void compact() {
+        if (tombstones.cardinality() == 0) return;
+        int[] dead = tombstones.toArray();
+        boolean valid = indexValid(records.size());
+        int size = records.size();
+        int write = dead[0];
+        int d = 0;
+        for (int row = dead[0]; row < size; row++) {
+            if (d < dead.length && dead[d] == row) {
+                d++;
+                continue;
+            }
+            records.set(write++, records.get(row));
+        }
+        records.subList(write, size).clear();
+        tombstones = new RowBitmap();
+        shiftFrom = Math.min(shiftFrom, dead[0]);
+        queryCache.invalidate(); // 行号变了，缓存里的行号作废
+        if (valid) {
+            dateIndex.removeRows(dead);
+            bitmapIndex.removeRows(dead);
+            if (textIndex != null) textIndex.removeRows(dead);
+        }
+        if (positions != null) {
+            RecordColumns columns = RecordColumns.of(records);
+            for (int row = dead[0]; row < write; row++) {
+                String id = columns.id(row);
+                if (id != null) positions.put(id, row);
+            }
+        }
+    }
+
+    private void indexAdded(int row, Record record) {
+        if (indexValid(records.size() - 1)) {
+            dateIndex.add(row, DateIndex.dayOf(record));
+            bitmapIndex.add(row, record);
+            if (textIndex != null) textIndex.add(row, record);
+            aggregates.add(record);
+            cube.add(record);
+        }
+    }
+
+    private void indexUpdated(int row, Record oldRecord, Record newRecord) {
+        if (indexValid(records.size())) {
+            dateIndex.update(row, DateIndex.dayOf(oldRecord), DateIndex.dayOf(newRecord));
+            bitmapIndex.update(row, oldRecord, newRecord);
+            if (textIndex != null) textIndex.update(row, oldRecord, newRecord);
+            aggregates.update(oldRecord, newRecord);
+            cube.update(oldRecord, newRecord);
+        }
+    }
+
+    // 已存记录里最大的数字 id (没有时为 0)；分段存储用清单里记的值，懒加载/列式直接读 id 列
+    private static long maxKey(List<Record> records) {
+        if (records instanceof PartitionedRecordList) return ((PartitionedRecordList) records).maxKey();
+        RecordColumns columns = RecordColumns.of(records);
+        long max = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            max = Math.max(max, columns.key(i));
+        }
+        return max;
+    }
+
+    // 读取失败时直接让启动失败：当成空账本继续运行的话，第一次保存就会把读不出来的数据覆盖掉
     private List<Record> loadRecords() {
-        File file = new File(DATA_FILE);
-        if (!file.exists()) return new ArrayList<>();
         try {
-            // 错误做法：没有使用 try(...) 自动关闭，也没有在 finally 中关闭
-            FileInputStream fis = new FileInputStream(file);
-            ObjectInputStream ois = new ObjectInputStream(fis);
-            return (List<Record>) ois.readObject();
-        } catch (Exception e) {
-            return new ArrayList<>();
+            return store.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法加载账本: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
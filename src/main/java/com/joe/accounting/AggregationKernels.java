@@ -0,0 +1,97 @@
+package com.joe.accounting;
+
+/**
+ * 列式数组上的聚合内核：求和 / 计数 / 最小 / 最大，以及按小整数键分组求和。
+ * 金额一律是"分" (long)，整数加法没有 double 累加的误差。
+ *
+ * 循环都是无装箱、无对象分配的计数循环。带 Masked 的内核把条件写成比较加选择 (三元表达式 / 掩码)，
+ * 不在循环体里写 if，C2 一般会编译成条件传送或者直接向量化；这只是写法上的倾向，
+ * 源码里的三元表达式本身仍是条件分支，最终指令要看 JIT。
+ * groupSum 有 if (g < 0) 跳过和按分组的散写，不会被向量化。
+ * 本项目按 JDK 17 编译且没有引入 jdk.incubator.vector 孵化模块，所以这里不直接用 Vector API。
+ */
+final class AggregationKernels {
+
+    private AggregationKernels() {
+    }
+
+    /**
+     * values[0, n) 的汇总，结果依次为 {总和, 条数, 最小, 最大}。
+     */
+    static long[] summarize(long[] values, int n) {
+        long sum = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        return new long[]{sum, n, min, max};
+    }
+
+    // keys[i] == key 的行的总和
+    static long sumMasked(long[] values, byte[] keys, int key, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i] & mask(keys[i], key);
+        }
+        return sum;
+    }
+
+    static int countMasked(byte[] keys, int key, int n) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += keys[i] == key ? 1 : 0;
+        }
+        return count;
+    }
+
+    // 没有命中的行时返回 Long.MAX_VALUE
+    static long minMasked(long[] values, byte[] keys, int key, int n) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, keys[i] == key ? values[i] : Long.MAX_VALUE);
+        }
+        return min;
+    }
+
+    // 没有命中的行时返回 Long.MIN_VALUE
+    static long maxMasked(long[] values, byte[] keys, int key, int n) {
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, keys[i] == key ? values[i] : Long.MIN_VALUE);
+        }
+        return max;
+    }
+
+    /**
+     * 按行号取值汇总 (筛选结果)，结果依次为 {总和, 条数, 最小, 最大}。
+     */
+    static long[] summarizeRows(long[] values, int[] rows) {
+        long sum = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int row : rows) {
+            long v = values[row];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        return new long[]{sum, rows.length, min, max};
+    }
+
+    /**
+     * 按分组键求和与计数：groups[i] 取值在 [0, sums.length) 之间，负数表示跳过这一行。
+     * 分组数要小 (几千以内)，sums/counts 由调用方分配并清零。
+     */
+    static void groupSum(long[] values, int[] groups, int n, long[] sums, int[] counts) {
+        for (int i = 0; i < n; i++) {
+            int g = groups[i];
+            if (g < 0) continue;
+            sums[g] += values[i];
+            counts[g]++;
+        }
+    }
+
+    // key 相等时全 1，否则全 0
+    private static long mask(byte value, int key) {
+        return value == key ? -1L : 0L;
+    }
+}
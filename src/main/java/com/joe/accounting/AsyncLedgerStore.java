@@ -0,0 +1,202 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 后台组提交 (group commit) 包装：调用线程 (通常是 JavaFX 线程) 只把变更放进队列就返回，
+ * 后台线程把同一个时间窗口内到达的变更合并成一次写入交给底层存储。
+ *
+ * fsync 策略:
+ *   ALWAYS   每批写完都 fsync
+ *   INTERVAL 距上次 fsync 超过 fsyncIntervalMillis 才 fsync (空闲时也会补一次)
+ *   NONE     从不主动 fsync，交给操作系统
+ */
+public class AsyncLedgerStore implements LedgerStore {
+
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NONE }
+
+    private final LedgerStore delegate;
+    private final long windowMillis;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final Thread writer;
+
+    // 以下字段都由 this 的监视器保护
+    private final List<LedgerOp> pending = new ArrayList<>();
+    private Supplier<List<Record>> latestSnapshot;
+    private long submitted;      // 已提交的变更条数
+    private long written;        // 已写出的变更条数
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException lastError;
+    private long batches;
+
+    public AsyncLedgerStore(LedgerStore delegate, long windowMillis, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.writer = new Thread(this::runWriter, "ledger-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public List<Record> load() throws IOException {
+        return delegate.load();
+    }
+
+    @Override
+    public synchronized void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+        if (closed) {
+            throw new IOException("账本写入线程已关闭");
+        }
+        pending.addAll(ops);
+        latestSnapshot = snapshot;
+        submitted += ops.size();
+        notifyAll();
+    }
+
+    // 阻塞直到调用前提交的变更都已写出；写入失败时抛出最近一次的错误
+    @Override
+    public synchronized void flush() throws IOException {
+        long target = submitted;
+        flushRequested = true;
+        notifyAll();
+        try {
+            while (written < target) {
+                if (lastError != null) {
+                    throw new IOException("账本写入失败", lastError);
+                }
+                if (!writer.isAlive()) {
+                    throw new IOException("账本写入线程已停止");
+                }
+                wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待写入时被中断", e);
+        }
+    }
+
+    // 写线程实际写出的字节数，提交后要等写线程处理完才会增加
+    @Override
+    public long getBytesWritten() {
+        return delegate.getBytesWritten();
+    }
+
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delegate.close();
+        }
+    }
+
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    private void runWriter() {
+        long lastSync = System.currentTimeMillis();
+        boolean unsynced = false;
+        while (true) {
+            List<LedgerOp> batch;
+            Supplier<List<Record>> snapshot;
+            long target;
+            synchronized (this) {
+                try {
+                    // 空闲等待；INTERVAL 策略下有未刷盘的数据时最多等到下一次 fsync 的时间点
+                    while (pending.isEmpty() && !closed) {
+                        if (unsynced && fsyncPolicy == FsyncPolicy.INTERVAL) {
+                            long remaining = lastSync + fsyncIntervalMillis - System.currentTimeMillis();
+                            if (remaining <= 0) break;
+                            wait(remaining);
+                        } else {
+                            wait();
+                        }
+                    }
+                    // 组提交窗口：第一条变更到达后再等一会，让同一批编辑合并成一次写入
+                    long deadline = System.currentTimeMillis() + windowMillis;
+                    while (!pending.isEmpty() && !flushRequested && !closed) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) break;
+                        wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (pending.isEmpty() && closed) {
+                    break;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+                snapshot = latestSnapshot;
+                target = submitted;
+                flushRequested = false;
+            }
+
+            try {
+                if (!batch.isEmpty()) {
+                    delegate.commit(batch, snapshot);
+                    unsynced = true;
+                }
+                long now = System.currentTimeMillis();
+                if (unsynced && (fsyncPolicy == FsyncPolicy.ALWAYS
+                        || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncIntervalMillis))) {
+                    delegate.sync();
+                    lastSync = now;
+                    unsynced = false;
+                }
+                synchronized (this) {
+                    if (!batch.isEmpty()) batches++;
+                    written = target;
+                    lastError = null;
+                    notifyAll();
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                synchronized (this) {
+                    // 放回队首，下一个窗口重试；日志重放按 id upsert，重复写入是安全的
+                    pending.addAll(0, batch);
+                    lastError = e instanceof IOException ? (IOException) e : new IOException(e);
+                    notifyAll();
+                    if (closed) return; // 关闭时仍失败就放弃，错误已经通过 flush 抛给调用方
+                }
+                try {
+                    Thread.sleep(Math.max(windowMillis, 200));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        // 正常关闭：除 NONE 策略外，把最后一批也刷到磁盘
+        if (unsynced && fsyncPolicy != FsyncPolicy.NONE) {
+            try {
+                delegate.sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
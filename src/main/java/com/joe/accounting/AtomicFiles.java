@@ -0,0 +1,68 @@
+package com.joe.accounting;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件写入小工具：临时文件 + 原子重命名，以及 fsync。
+ */
+final class AtomicFiles {
+
+    interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    static Path tempFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    // 写到同目录下的 .tmp 文件，刷到磁盘后原子替换目标文件
+    static void write(Path target, Writer writer) throws IOException {
+        Path tmp = tempFile(target);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16);
+            writer.write(out);
+            out.flush();
+            ch.force(true);
+        }
+        replace(tmp, target);
+    }
+
+    /**
+     * 原子替换：调用方要先把 tmp 的内容刷到磁盘 (force)，否则崩溃后目标文件可能是空的或只写了一半。
+     * 重命名之后再刷一次所在目录，保证重命名本身落盘。
+     */
+    static void replace(Path tmp, Path target) throws IOException {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // 刷新目录项 (新建、重命名、删除文件之后)；Windows 不支持打开目录，直接跳过
+    static void forceDirectory(Path dir) throws IOException {
+        if (dir == null) return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (AccessDeniedException | UnsupportedOperationException e) {
+            // 不支持目录 fsync 的平台
+        }
+    }
+
+    static void force(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.joe.accounting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 紧凑的二进制账本文件 (替代 Java 序列化)，读取时通过 FileChannel.map 直接解析。
+ *
+ * <pre>
+ * 文件头 (32 字节):
+ *   int magic 'BKLG' | short 版本 | short 保留 | int 行数 | int 字典条数
+ *   long 字符串堆偏移 | long 字典偏移
+ * 定长行 (每行 40 字节，从第 32 字节开始):
+ *   int  epochDay (无日期为 Integer.MIN_VALUE)
+ *   long 金额 (double 原始位)
+ *   short 类型字典码 | short 分类字典码 (null 为 -1)
+ *   int  备注在字符串堆中的偏移 (null 为 -1)
+ *   long id 高位 | long id 低位 (UUID 的 16 字节；数字 id 存在低位；其它 id 存在堆中，低位为偏移)
+ *   byte 标志位 | 3 字节填充
+ * 字符串堆: 依次存放 [int 字节数][UTF-8]
+ * 字典:    [int 字节数][UTF-8] × 字典条数，行中的字典码即下标
+ * </pre>
+ */
+public final class BinaryLedgerFile {
+    static final int MAGIC = 0x424B4C47; // "BKLG"
+    static final short VERSION = 2; // 2: 新增数字 id (FLAG_ID_NUMERIC)，仍可读取版本 1
+    static final int HEADER_SIZE = 32;
+    static final int ROW_SIZE = 40;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte FLAG_ID_IN_HEAP = 1;
+    private static final byte FLAG_ID_NUMERIC = 2;
+
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final long heapOffset;
+    private final int heapEnd; // 字符串堆之后紧接着字典
+    private final String[] dictionary;
+
+    private BinaryLedgerFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("不是有效的账本文件");
+        }
+        short version = buffer.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("不支持的账本文件版本: " + version);
+        }
+        this.rowCount = buffer.getInt(8);
+        int dictCount = buffer.getInt(12);
+        this.heapOffset = buffer.getLong(16);
+        long dictOffset = buffer.getLong(24);
+        // 截断或损坏的文件在打开时就报错，而不是读到某一行时从 ByteBuffer 深处抛越界
+        int size = buffer.limit();
+        if (rowCount < 0 || dictCount < 0 || dictCount > Short.MAX_VALUE + 1
+                || heapOffset < HEADER_SIZE + (long) rowCount * ROW_SIZE || dictOffset < heapOffset || dictOffset > size) {
+            throw new IOException("账本文件已损坏: 行数 " + rowCount + "，字符串堆 " + heapOffset + "，字典 " + dictOffset
+                    + "，文件大小 " + size);
+        }
+        this.heapEnd = (int) dictOffset;
+
+        this.dictionary = new String[dictCount];
+        int pos = (int) dictOffset;
+        for (int i = 0; i < dictCount; i++) {
+            int len = pos <= size - 4 ? buffer.getInt(pos) : -1;
+            if (len < 0 || len > size - pos - 4) {
+                throw new IOException("账本文件已损坏: 第 " + i + " 个字典项越界");
+            }
+            dictionary[i] = utf8(pos + 4, len);
+            pos += 4 + len;
+        }
+    }
+
+    // 以只读方式映射整个文件
+    public static BinaryLedgerFile open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("账本文件超过 2GB，无法映射: " + file);
+            }
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new BinaryLedgerFile(mapped);
+        }
+    }
+
+    public int rowCount() { return rowCount; }
+
+    // --- 按列读取，不需要构造 Record ---
+
+    public int epochDay(int row) {
+        return buffer.getInt(rowOffset(row));
+    }
+
+    public LocalDate date(int row) {
+        int day = epochDay(row);
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    public double amount(int row) {
+        return Double.longBitsToDouble(buffer.getLong(rowOffset(row) + 4));
+    }
+
+    public String type(int row) {
+        return dict(buffer.getShort(rowOffset(row) + 12));
+    }
+
+    public String category(int row) {
+        return dict(buffer.getShort(rowOffset(row) + 14));
+    }
+
+    public String note(int row) {
+        return heapString(buffer.getInt(rowOffset(row) + 16));
+    }
+
+    public String id(int row) {
+        int base = rowOffset(row);
+        long hi = buffer.getLong(base + 20);
+        long lo = buffer.getLong(base + 28);
+        byte flags = buffer.get(base + 36);
+        if ((flags & FLAG_ID_NUMERIC) != 0) {
+            return Long.toString(lo);
+        }
+        if ((flags & FLAG_ID_IN_HEAP) != 0) {
+            return heapString((int) lo);
+        }
+        return new UUID(hi, lo).toString();
+    }
+
+    // 数字 id；UUID 和自定义字符串 id 返回 0
+    public long key(int row) {
+        int base = rowOffset(row);
+        return (buffer.get(base + 36) & FLAG_ID_NUMERIC) != 0 ? buffer.getLong(base + 28) : 0;
+    }
+
+    public Record record(int row) {
+        int base = rowOffset(row);
+        if ((buffer.get(base + 36) & FLAG_ID_NUMERIC) != 0) {
+            return new Record(buffer.getLong(base + 28), type(row), amount(row), category(row), date(row), note(row));
+        }
+        return new Record(id(row), type(row), amount(row), category(row), date(row), note(row));
+    }
+
+    public List<Record> readAll() {
+        List<Record> records = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            records.add(record(i));
+        }
+        return records;
+    }
+
+    private int rowOffset(int row) {
+        return HEADER_SIZE + row * ROW_SIZE;
+    }
+
+    // 行里的字典码和堆偏移在打开时不逐行检查 (那样就不是按需读取了)，读到越界的值时报告文件损坏
+    private String dict(short code) {
+        if (code < 0) return null;
+        if (code >= dictionary.length) throw corrupt("字典码 " + code);
+        return dictionary[code];
+    }
+
+    private String heapString(int offset) {
+        if (offset < 0) return null;
+        long pos = heapOffset + offset;
+        if (pos > heapEnd - 4) throw corrupt("字符串偏移 " + offset);
+        int len = buffer.getInt((int) pos);
+        if (len < 0 || len > heapEnd - pos - 4) throw corrupt("字符串长度 " + len);
+        return utf8((int) pos + 4, len);
+    }
+
+    private static UncheckedIOException corrupt(String what) {
+        return new UncheckedIOException(new IOException("账本文件已损坏: " + what + " 越界"));
+    }
+
+    private String utf8(int pos, int len) {
+        byte[] bytes = new byte[len];
+        buffer.get(pos, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- 写入 ---
+
+    /**
+     * 把记录整体写成二进制账本：先写临时文件，再原子替换目标文件。
+     * 定长行按顺序流式写出，字符串堆和字典在末尾追加，最后回填文件头。
+     */
+    public static void write(Path file, List<Record> records) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (Record r : records) {
+                writer.append(r);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * 新增：逐行写入的写入器 (write 也用它)，不需要先在内存中准备好全部 Record，
+     * 生成测试数据时可以直接按列值写出。commit 之前关闭则丢弃临时文件，目标文件不变。
+     */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel ch;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 20);
+        private final Map<String, Short> dictionary = new LinkedHashMap<>();
+        private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        private int rows;
+        private boolean committed;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            this.tmp = AtomicFiles.tempFile(file);
+            this.ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_SIZE);
+        }
+
+        void append(Record r) throws IOException {
+            int day = r.getDate() == null ? NO_DATE : (int) r.getDate().toEpochDay();
+            if (r.getKey() != 0) {
+                append(day, r.getAmount(), r.getType(), r.getCategory(), r.getNote(), r.getKey());
+                return;
+            }
+            UUID uuid = parseUuid(r.getId());
+            beginRow(day, r.getAmount(), r.getType(), r.getCategory(), r.getNote());
+            if (uuid != null) {
+                out.putLong(uuid.getMostSignificantBits());
+                out.putLong(uuid.getLeastSignificantBits());
+                out.putInt(0);
+            } else {
+                out.putLong(0L);
+                out.putLong(appendHeap(heap, r.getId()));
+                out.putInt(FLAG_ID_IN_HEAP << 24);
+            }
+        }
+
+        // 数字 id 的一行；epochDay 为 Integer.MIN_VALUE 表示没有日期
+        void append(int epochDay, double amount, String type, String category, String note, long key) throws IOException {
+            beginRow(epochDay, amount, type, category, note);
+            out.putLong(0L);
+            out.putLong(key);
+            out.putInt(FLAG_ID_NUMERIC << 24);
+        }
+
+        private void beginRow(int epochDay, double amount, String type, String category, String note) throws IOException {
+            if (out.remaining() < ROW_SIZE) drain(ch, out);
+            out.putInt(epochDay);
+            out.putLong(Double.doubleToRawLongBits(amount));
+            out.putShort(code(dictionary, type));
+            out.putShort(code(dictionary, category));
+            out.putInt(appendHeap(heap, note));
+            rows++;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        // 写出字符串堆、字典和文件头，再原子替换目标文件
+        void commit() throws IOException {
+            drain(ch, out);
+            long heapOffset = HEADER_SIZE + (long) rows * ROW_SIZE;
+            ch.write(ByteBuffer.wrap(heap.toByteArray()), heapOffset);
+            long dictOffset = heapOffset + heap.size();
+            ByteArrayOutputStream dict = new ByteArrayOutputStream();
+            for (String s : dictionary.keySet()) {
+                appendHeap(dict, s);
+            }
+            ch.write(ByteBuffer.wrap(dict.toByteArray()), dictOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putInt(rows).putInt(dictionary.size())
+                    .putLong(heapOffset).putLong(dictOffset).flip();
+            ch.write(header, 0);
+            ch.force(true); // 先落盘再替换，崩溃后不会留下只写了一半的账本
+            ch.close();
+            AtomicFiles.replace(tmp, file);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) return;
+            ch.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            ch.write(out);
+        }
+        out.clear();
+    }
+
+    private static short code(Map<String, Short> dictionary, String value) throws IOException {
+        if (value == null) return -1;
+        Short code = dictionary.get(value);
+        if (code == null) {
+            if (dictionary.size() >= Short.MAX_VALUE) {
+                throw new IOException("类型/分类数量超过字典上限");
+            }
+            code = (short) dictionary.size();
+            dictionary.put(value, code);
+        }
+        return code;
+    }
+
+    private static int appendHeap(ByteArrayOutputStream heap, String value) {
+        if (value == null) return -1;
+        int offset = heap.size();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        heap.write(bytes.length >>> 24);
+        heap.write(bytes.length >>> 16);
+        heap.write(bytes.length >>> 8);
+        heap.write(bytes.length);
+        heap.write(bytes, 0, bytes.length);
+        return offset;
+    }
+
+    // 只接受标准 36 位格式，保证写回后 toString 得到同一个字符串
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
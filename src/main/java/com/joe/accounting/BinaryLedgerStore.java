@@ -0,0 +1,72 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 使用 BinaryLedgerFile 格式的存储：读取走内存映射，保存时整体重写 (临时文件 + 原子替换)。
+ * 第一次启动时如果只有旧的 account_data.dat，会自动迁移一次。
+ * 懒加载模式下 load() 返回 LazyRecordList，启动时不解码任何记录。
+ */
+public class BinaryLedgerStore implements LedgerStore {
+    private final Path file;
+    private final Path legacyFile;
+    private final int lazyPageSize;   // <= 0 表示一次性全部加载
+    private final int lazyCachePages;
+    private LazyRecordList lazyRecords;
+    private volatile long bytesWritten;
+
+    public BinaryLedgerStore(Path file, Path legacyFile) {
+        this(file, legacyFile, 0, 0);
+    }
+
+    public BinaryLedgerStore(Path file, Path legacyFile, int lazyPageSize, int lazyCachePages) {
+        this.file = file;
+        this.legacyFile = legacyFile;
+        this.lazyPageSize = lazyPageSize;
+        this.lazyCachePages = lazyCachePages;
+    }
+
+    @Override
+    public List<Record> load() throws IOException {
+        if (!Files.exists(file)) {
+            if (legacyFile == null || !Files.exists(legacyFile)) return new ArrayList<>();
+            LedgerMigrator.migrate(legacyFile, file);
+        }
+        BinaryLedgerFile ledger = BinaryLedgerFile.open(file);
+        if (lazyPageSize > 0) {
+            lazyRecords = new LazyRecordList(ledger, lazyPageSize, lazyCachePages);
+            return lazyRecords;
+        }
+        return ledger.readAll();
+    }
+
+    @Override
+    public void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+        List<Record> records = snapshot.get();
+        BinaryLedgerFile.write(file, records);
+        bytesWritten += Files.size(file);
+        // 新文件已经包含所有修改，懒加载列表切换到新文件，释放内存中的覆盖层
+        if (records == lazyRecords) {
+            lazyRecords.rebase(BinaryLedgerFile.open(file));
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        AtomicFiles.force(file);
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,80 @@
+package com.joe.accounting;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 类型 / 分类的位图索引：每个取值一张 RowBitmap，记录哪些行是这个取值。
+ * 两个字段基数都很小 (支出/收入、十几个分类)，多条件组合直接做位图 AND/OR。
+ */
+class BitmapIndex {
+    private final Map<String, RowBitmap> byType = new HashMap<>();
+    private final Map<String, RowBitmap> byCategory = new HashMap<>();
+    private int size;
+
+    void rebuild(RecordColumns columns) {
+        byType.clear();
+        byCategory.clear();
+        size = columns.size();
+        for (int row = 0; row < size; row++) {
+            set(byType, columns.type(row), row);
+            set(byCategory, columns.category(row), row);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int row, Record r) {
+        set(byType, r.getType(), row);
+        set(byCategory, r.getCategory(), row);
+        size++;
+    }
+
+    // 删除一批行 (升序) 后所有位图的行号都要前移
+    void removeRows(int[] rows) {
+        for (RowBitmap bitmap : byType.values()) bitmap.removeAndShift(rows);
+        for (RowBitmap bitmap : byCategory.values()) bitmap.removeAndShift(rows);
+        byType.values().removeIf(bitmap -> bitmap.cardinality() == 0);
+        byCategory.values().removeIf(bitmap -> bitmap.cardinality() == 0);
+        size -= rows.length;
+    }
+
+    void update(int row, Record oldRecord, Record newRecord) {
+        clear(byType, oldRecord.getType(), row);
+        clear(byCategory, oldRecord.getCategory(), row);
+        set(byType, newRecord.getType(), row);
+        set(byCategory, newRecord.getCategory(), row);
+    }
+
+    // 任一类型命中 (OR)；values 为 null 表示不限制，返回 null
+    RowBitmap types(Collection<String> values) {
+        return union(byType, values);
+    }
+
+    RowBitmap categories(Collection<String> values) {
+        return union(byCategory, values);
+    }
+
+    private static RowBitmap union(Map<String, RowBitmap> index, Collection<String> values) {
+        if (values == null) return null;
+        RowBitmap result = new RowBitmap();
+        for (String value : values) {
+            RowBitmap bitmap = index.get(value);
+            if (bitmap != null) result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    private static void set(Map<String, RowBitmap> index, String value, int row) {
+        if (value != null) index.computeIfAbsent(value, k -> new RowBitmap()).add(row);
+    }
+
+    private static void clear(Map<String, RowBitmap> index, String value, int row) {
+        if (value == null) return;
+        RowBitmap bitmap = index.get(value);
+        if (bitmap != null) bitmap.remove(row);
+    }
+}
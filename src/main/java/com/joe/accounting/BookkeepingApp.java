@@ -18,6 +18,9 @@ public class BookkeepingApp extends Application {
     private Label totalIncomeLabel = new Label("总收入: 0.0");
     private Label totalExpenseLabel = new Label("总支出: 0.0");
     private Record currentEditingRecord = null; // 用于标记当前是否在编辑模式
+    private LedgerTableModel tableModel; // 新增：表格数据直接读账本视图，按需取行、增量更新
+    // 新增：查询/统计/图表都在后台线程上执行，结果用 Platform.runLater 交回界面线程，同类的新查询会作废旧的
+    private final QueryExecutor queries = new QueryExecutor(javafx.application.Platform::runLater);
 
     @Override
     public void start(Stage primaryStage) {
@@ -48,36 +51,41 @@ public class BookkeepingApp extends Application {
         categorySearchField.setPrefWidth(120);
 
         Button searchButton = new Button("查询");
-        searchButton.setOnAction(e -> {
-            // Update: 调用 Service 时传入第4个参数：categorySearchField.getText()
-            java.util.List<Record> result = service.searchRecords(
+        searchButton.setOnAction(traced("search", e -> {
+            // Update: 筛选条件交给表格模型，它按条件取账本视图，不再复制整个结果列表
+            tableModel.setFilter(
                     startDate.getValue(),
                     endDate.getValue(),
                     filterType.getValue(),
                     categorySearchField.getText() // <--- 获取输入的分类
             );
-            tableView.setItems(FXCollections.observableArrayList(result));
-        });
+        }));
+
+        // 新增：边输入分类边筛选，停止输入 300ms 后才查询
+        categorySearchField.textProperty().addListener((obs, oldText, text) ->
+                tableModel.setFilter(startDate.getValue(), endDate.getValue(), filterType.getValue(), text, 300));
 
         Button resetButton = new Button("重置");
-        resetButton.setOnAction(e -> {
+        resetButton.setOnAction(traced("reset", e -> {
             startDate.setValue(null);
             endDate.setValue(null);
             filterType.setValue("全部");
             categorySearchField.clear(); // <--- New: 清空分类输入框
-            refreshTable();
-        });
+            tableModel.setFilter(null, null, "全部", null);
+        }));
 
         Button exportButton = new Button("导出 Excel/CSV");
         exportButton.setMaxWidth(Double.MAX_VALUE);
         exportButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white;"); // 绿色按钮
-        exportButton.setOnAction(e -> exportToCSV());
+        // Update: 导出当前筛选条件下的结果，后台写文件，导出中再点一次取消
+        exportButton.setOnAction(traced("export", e -> exportToCSV(exportButton,
+                startDate.getValue(), endDate.getValue(), filterType.getValue(), categorySearchField.getText())));
 
         HBox filterBox = new HBox(10,
                 new Label("日期:"), startDate, new Label("-"), endDate,
                 new Label("类型:"), filterType,
                 new Label("分类:"), categorySearchField, // <--- 加在这里
-                searchButton, resetButton
+                searchButton, resetButton, exportButton
         );
         filterBox.setPadding(new Insets(10));
         filterBox.setStyle("-fx-background-color: #e0e0e0;");
@@ -121,7 +129,7 @@ public class BookkeepingApp extends Application {
         addButton.setMaxWidth(Double.MAX_VALUE);
 
         // 添加按钮逻辑
-        addButton.setOnAction(e -> {
+        addButton.setOnAction(traced("add", e -> {
             try {
                 String type = typeCombo.getValue();
                 double amount = Double.parseDouble(amountField.getText());
@@ -140,14 +148,13 @@ public class BookkeepingApp extends Application {
                     service.addRecord(newRecord);
                 } else {
                     // --- 编辑更新模式 ---
-                    service.updateRecord(currentEditingRecord, newRecord);
+                    service.updateById(currentEditingRecord.getId(), newRecord); // 按 id 定位，保留原 id
                     currentEditingRecord = null; // 退出编辑模式
                     addButton.setText("添加记录"); // 按钮文字还原
                     addButton.setStyle("");      // 样式还原
                 }
 
-                refreshTable();
-                updateStats();
+                updateStats(); // 表格模型会自动跟随账本变化
 
                 // 清空输入框
                 amountField.clear();
@@ -159,22 +166,27 @@ public class BookkeepingApp extends Application {
                 Alert alert = new Alert(Alert.AlertType.ERROR, "请输入有效的金额！");
                 alert.show();
             }
-        });
+        }));
 
         // 按钮1：支出图表 (修改逻辑，传入类型)
         Button expenseChartBtn = new Button("支出分布图");
         expenseChartBtn.setMaxWidth(Double.MAX_VALUE);
-        expenseChartBtn.setOnAction(e -> showPieChartWindow("支出")); // 传入 "支出"
+        expenseChartBtn.setOnAction(traced("expenseChart", e -> showPieChartWindow("支出"))); // 传入 "支出"
 
         // 按钮2：收入图表 (新功能)
         Button incomeChartBtn = new Button("收入分布图");
         incomeChartBtn.setMaxWidth(Double.MAX_VALUE);
-        incomeChartBtn.setOnAction(e -> showPieChartWindow("收入")); // 传入 "收入"
+        incomeChartBtn.setOnAction(traced("incomeChart", e -> showPieChartWindow("收入"))); // 传入 "收入"
 
         // 按钮3：月度统计详情 (新功能)
         Button monthlyStatsBtn = new Button("查看月度收支表");
         monthlyStatsBtn.setMaxWidth(Double.MAX_VALUE);
-        monthlyStatsBtn.setOnAction(e -> showMonthlyStatsWindow());
+        monthlyStatsBtn.setOnAction(traced("monthlyStats", e -> showMonthlyStatsWindow()));
+
+        // 新增：从 CSV 批量导入 (后台线程执行，完成后刷新)
+        Button importButton = new Button("导入 CSV");
+        importButton.setMaxWidth(Double.MAX_VALUE);
+        importButton.setOnAction(traced("import", e -> importFromCSV(importButton)));
 
         // 将所有按钮加入布局
         inputBox.getChildren().addAll(
@@ -187,7 +199,8 @@ public class BookkeepingApp extends Application {
                 addButton,
                 expenseChartBtn, // Update
                 incomeChartBtn,  // New
-                monthlyStatsBtn  // New
+                monthlyStatsBtn, // New
+                importButton
         );
 
         // --- 3. 中间数据列表 (Req008 [cite: 64]) ---
@@ -208,21 +221,39 @@ public class BookkeepingApp extends Application {
 
         tableView.getColumns().addAll(dateCol, typeCol, catCol, amountCol, noteCol);
 
+        // 新增：排序交给账本按行号完成 (日期走日期索引)，表格本身不排序
+        tableModel = new LedgerTableModel(service, queries);
+        tableView.setItems(tableModel);
+        java.util.Map<TableColumn<Record, ?>, AccountService.SortKey> sortKeys = java.util.Map.of(
+                dateCol, AccountService.SortKey.DATE, typeCol, AccountService.SortKey.TYPE,
+                catCol, AccountService.SortKey.CATEGORY, amountCol, AccountService.SortKey.AMOUNT,
+                noteCol, AccountService.SortKey.NOTE);
+        tableView.setSortPolicy(table -> {
+            TableColumn<Record, ?> column = table.getSortOrder().isEmpty() ? null : table.getSortOrder().get(0);
+            AccountService.SortKey key = column == null ? AccountService.SortKey.INSERTION : sortKeys.get(column);
+            tableModel.setSort(key, column != null && column.getSortType() == TableColumn.SortType.DESCENDING);
+            return true;
+        });
+
         ContextMenu contextMenu = new ContextMenu();
-        MenuItem deleteItem = new MenuItem("删除此记录");
-        deleteItem.setOnAction(e -> {
-            Record selected = tableView.getSelectionModel().getSelectedItem();
-            if (selected != null) {
-                service.deleteRecord(selected); // 调用 Service 删除
-                refreshTable(); // 刷新表格
+        // 新增：支持多选 (Ctrl/Shift)，选中的记录按 id 一次批量删除
+        tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        MenuItem deleteItem = new MenuItem("删除选中记录");
+        deleteItem.setOnAction(traced("delete", e -> {
+            java.util.List<String> ids = new java.util.ArrayList<>();
+            for (Record selected : tableView.getSelectionModel().getSelectedItems()) {
+                ids.add(selected.getId());
+            }
+            if (!ids.isEmpty()) {
+                service.deleteByIds(ids); // 调用 Service 删除
                 updateStats();  // 刷新总金额
             }
-        });
+        }));
         contextMenu.getItems().add(deleteItem);
         tableView.setContextMenu(contextMenu);
 
         MenuItem editItem = new MenuItem("编辑此记录");
-        editItem.setOnAction(e -> {
+        editItem.setOnAction(traced("edit", e -> {
             Record selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 // 1. 进入编辑模式
@@ -246,7 +277,7 @@ public class BookkeepingApp extends Application {
                 addButton.setText("保存修改");
                 addButton.setStyle("-fx-background-color: #FFA500; -fx-text-fill: white;");
             }
-        });
+        }));
 
         // 把 editItem 也加进菜单
         contextMenu.getItems().add(0, editItem); // 加在第一位
@@ -263,8 +294,7 @@ public class BookkeepingApp extends Application {
         root.setLeft(scrollPane);
         root.setCenter(tableView);
 
-        // 初始化数据
-        refreshTable();
+        // 初始化数据 (表格模型创建时已经开始加载)
         updateStats();
 
         Scene scene = new Scene(root, 800, 500);
@@ -273,40 +303,35 @@ public class BookkeepingApp extends Application {
         primaryStage.show();
     }
 
-    private void refreshTable() {
-        tableView.setItems(FXCollections.observableArrayList(service.getAllRecords()));
+    private void updateStats() {
+        queries.submit("stats", () -> new double[]{service.calculateTotal("收入"), service.calculateTotal("支出")}, totals -> {
+            totalIncomeLabel.setText("总收入: " + String.format("%.2f", totals[0]));
+            totalExpenseLabel.setText("总支出: " + String.format("%.2f", totals[1]));
+            // 可以简单根据收入-支出改变颜色
+        }, this::showQueryError);
     }
 
-    private void updateStats() {
-        double income = service.calculateTotal("收入");
-        double expense = service.calculateTotal("支出");
-        totalIncomeLabel.setText("总收入: " + String.format("%.2f", income));
-        totalExpenseLabel.setText("总支出: " + String.format("%.2f", expense));
-        // 可以简单根据收入-支出改变颜色
+    private void showQueryError(Throwable e) {
+        new Alert(Alert.AlertType.ERROR, "查询失败：" + e.getMessage()).show();
     }
 
     // 修改：支持传入类型 (type) 来生成不同的饼图
     private void showPieChartWindow(String type) {
-        Stage chartStage = new Stage();
-        chartStage.setTitle(type + "分类统计");
-
-        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        java.util.Map<String, Double> summary = new java.util.HashMap<>();
+        // 只统计指定类型 (收入 或 支出)，直接取预聚合好的分类合计；后台查询完成后再开窗口
+        queries.submit("chart-" + type, () -> service.getCategoryBreakdown(type, null, null), summary -> {
+            Stage chartStage = new Stage();
+            chartStage.setTitle(type + "分类统计");
 
-        // 只统计指定类型 (收入 或 支出)
-        for (Record r : service.getAllRecords()) {
-            if (type.equals(r.getType())) {
-                summary.put(r.getCategory(), summary.getOrDefault(r.getCategory(), 0.0) + r.getAmount());
-            }
-        }
-        summary.forEach((cat, amt) -> pieData.add(new PieChart.Data(cat, amt)));
+            ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
+            summary.forEach((cat, amt) -> pieData.add(new PieChart.Data(cat, amt)));
 
-        PieChart chart = new PieChart(pieData);
-        chart.setTitle(type + "构成分析");
+            PieChart chart = new PieChart(pieData);
+            chart.setTitle(type + "构成分析");
 
-        Scene scene = new Scene(new BorderPane(chart), 600, 400);
-        chartStage.setScene(scene);
-        chartStage.show();
+            Scene scene = new Scene(new BorderPane(chart), 600, 400);
+            chartStage.setScene(scene);
+            chartStage.show();
+        }, this::showQueryError);
     }
 
     // 新增：显示月度统计窗口
@@ -318,20 +343,23 @@ public class BookkeepingApp extends Application {
         textArea.setEditable(false);
         textArea.setStyle("-fx-font-family: 'monospaced'; -fx-font-size: 14px;");
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("========== 月度支出 ==========\n");
-        // 获取支出统计
-        service.getMonthlyStats("支出").forEach((month, amount) ->
-                sb.append(String.format("%s :  -%.2f\n", month, amount))
-        );
-
-        sb.append("\n========== 月度收入 ==========\n");
-        // 获取收入统计
-        service.getMonthlyStats("收入").forEach((month, amount) ->
-                sb.append(String.format("%s :  +%.2f\n", month, amount))
-        );
+        textArea.setText("统计中...");
+        // 新增：报表在后台生成，窗口先打开
+        queries.submit("monthly", () -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append("========== 月度支出 ==========\n");
+            // 获取支出统计
+            service.getMonthlyStats("支出").forEach((month, amount) ->
+                    sb.append(String.format("%s :  -%.2f\n", month, amount))
+            );
 
-        textArea.setText(sb.toString());
+            sb.append("\n========== 月度收入 ==========\n");
+            // 获取收入统计
+            service.getMonthlyStats("收入").forEach((month, amount) ->
+                    sb.append(String.format("%s :  +%.2f\n", month, amount))
+            );
+            return sb.toString();
+        }, textArea::setText, this::showQueryError);
 
         Scene scene = new Scene(new BorderPane(textArea), 400, 500);
         stage.setScene(scene);
@@ -339,31 +367,103 @@ public class BookkeepingApp extends Application {
     }
 
     // 新增：导出为 CSV 文件
-    private void exportToCSV() {
+    private LedgerExporter.Task exportTask; // 正在进行的导出，为 null 表示空闲
+
+    private void exportToCSV(Button exportButton, LocalDate start, LocalDate end, String type, String categoryQuery) {
+        if (exportTask != null) {
+            exportTask.cancel(true);
+            return;
+        }
         javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
         fileChooser.setTitle("导出账单");
-        fileChooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("CSV 文件", "*.csv"));
+        fileChooser.getExtensionFilters().addAll(
+                new javafx.stage.FileChooser.ExtensionFilter("CSV 文件", "*.csv"),
+                new javafx.stage.FileChooser.ExtensionFilter("二进制账单", "*.bkex"));
         fileChooser.setInitialFileName("我的账本_" + LocalDate.now() + ".csv");
 
         java.io.File file = fileChooser.showSaveDialog(null);
 
         if (file != null) {
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(new java.io.OutputStreamWriter(new java.io.FileOutputStream(file), "GBK"))) {
-                // 注意：为了让 Excel 直接打开不乱码，中文 Windows通常使用 GBK 编码
-                // 写表头
-                writer.println("日期,类型,分类,金额,备注");
-
-                // 写数据
-                for (Record r : service.getAllRecords()) {
-                    writer.println(String.format("%s,%s,%s,%.2f,%s",
-                            r.getDate(), r.getType(), r.getCategory(), r.getAmount(), r.getNote()));
+            // 注意：为了让 Excel 直接打开不乱码，CSV 默认使用 GBK 编码
+            LedgerExporter.Format format = file.getName().endsWith(".bkex") ? LedgerExporter.Format.BINARY : LedgerExporter.Format.CSV;
+            // 查询视图也在导出线程上取，界面线程不碰账本
+            LedgerExporter.Task task = new LedgerExporter(format).start(() -> service.searchView(start, end, type, categoryQuery), file.toPath(), (written, total) ->
+                    javafx.application.Platform.runLater(() -> exportButton.setText("导出中 " + written + "/" + total + " (点击取消)")));
+            exportTask = task;
+            Thread waiter = new Thread(() -> {
+                String message;
+                Alert.AlertType alertType = Alert.AlertType.INFORMATION;
+                try {
+                    message = "导出成功！共 " + task.get() + " 条，路径：" + file.getAbsolutePath();
+                } catch (java.util.concurrent.CancellationException ex) {
+                    message = "导出已取消";
+                } catch (Exception ex) {
+                    message = "导出失败：" + (ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage());
+                    alertType = Alert.AlertType.ERROR;
                 }
+                String text = message;
+                Alert.AlertType finalType = alertType;
+                javafx.application.Platform.runLater(() -> {
+                    exportTask = null;
+                    exportButton.setText("导出 Excel/CSV");
+                    new Alert(finalType, text).show();
+                });
+            }, "csv-export-main");
+            waiter.setDaemon(true);
+            waiter.start();
+        }
+    }
+
+    private void importFromCSV(Button importButton) {
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("导入账单");
+        fileChooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("CSV 文件", "*.csv"));
+        java.io.File file = fileChooser.showOpenDialog(null);
+        if (file == null) return;
 
-                new Alert(Alert.AlertType.INFORMATION, "导出成功！路径：" + file.getAbsolutePath()).show();
+        importButton.setDisable(true);
+        Thread worker = new Thread(() -> {
+            try {
+                CsvImporter.Result result = new CsvImporter(service).importFile(file.toPath(), (imported, rejected) ->
+                        javafx.application.Platform.runLater(() -> importButton.setText("已导入 " + imported + " 条...")));
+                StringBuilder message = new StringBuilder("导入完成：成功 " + result.getImported() + " 条，跳过 " + result.getRejectedCount() + " 条");
+                result.getRejected().stream().limit(5).forEach(r -> message.append('\n').append(r));
+                javafx.application.Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION, message.toString()).show());
             } catch (Exception ex) {
-                new Alert(Alert.AlertType.ERROR, "导出失败：" + ex.getMessage()).show();
+                javafx.application.Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "导入失败：" + ex.getMessage()).show());
+            } finally {
+                javafx.application.Platform.runLater(() -> {
+                    importButton.setText("导入 CSV");
+                    importButton.setDisable(false);
+                    updateStats();
+                });
             }
-        }
+        }, "csv-import-main");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // 新增：把按钮/菜单的处理过程包成一个 JFR 事件 (见 LedgerEvents.UiAction)，录制时能看到界面线程卡在哪个操作上
+    private static javafx.event.EventHandler<javafx.event.ActionEvent> traced(
+            String action, javafx.event.EventHandler<javafx.event.ActionEvent> handler) {
+        return e -> {
+            LedgerEvents.UiAction event = new LedgerEvents.UiAction();
+            event.action = action;
+            event.begin();
+            try {
+                handler.handle(e);
+            } finally {
+                event.commit();
+            }
+        };
+    }
+
+    // 新增：窗口关闭时把尚未写出的修改落盘 (异步写入模式)
+    @Override
+    public void stop() throws Exception {
+        tableModel.dispose();
+        queries.close();
+        service.close();
     }
 
     public static void main(String[] args) {
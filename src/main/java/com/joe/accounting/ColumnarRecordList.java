@@ -0,0 +1,405 @@
+package com.joe.accounting;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+/**
+ * 列式的内存记录存储：每个字段一个基本类型数组，而不是每行一个 Record 对象。
+ * <pre>
+ *   int[]   epochDay        long[]  金额 (分)
+ *   byte[]  类型字典码       short[] 分类字典码
+ *   long[]  UUID 高/低位 (数字 id: 高位 0，低位为 id)   int[] 备注在字符数组中的偏移/长度
+ * </pre>
+ * 每行约 40 字节 + 备注本身，对象形式每行要 200 多字节。
+ * get() 每次按列临时拼出一个 Record 视图 (Record 按 id 判等，所以 indexOf/remove 仍然可用)。
+ * 注意金额以"分"保存，超过两位小数的部分会被四舍五入。
+ */
+public class ColumnarRecordList extends AbstractList<Record> implements RandomAccess, RecordColumns {
+    private int size;
+    private int[] days;
+    private long[] cents;
+    private byte[] typeCodes;
+    private short[] categoryCodes;
+    private long[] idHi;
+    private long[] idLo;
+    private String[] customIds;   // 不是标准 UUID 的 id，第一次遇到时才分配
+    private int[] noteOffsets;
+    private int[] noteLengths;    // -1 表示 null
+
+    private char[] noteHeap = new char[1024];
+    private int heapUsed;
+    private int heapLive;
+
+    static final int NOT_FOUND = -2;
+
+    private final Dictionary types = new Dictionary(Byte.MAX_VALUE);
+    private final Dictionary categories = new Dictionary(Short.MAX_VALUE);
+
+    public ColumnarRecordList() {
+        this(16);
+    }
+
+    public ColumnarRecordList(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    public ColumnarRecordList(List<Record> records) {
+        this(records.size());
+        for (Record r : records) {
+            add(r);
+        }
+    }
+
+    // --- List ---
+
+    @Override
+    public Record get(int index) {
+        checkIndex(index);
+        if (idHi[index] == 0 && idLo[index] != 0) {
+            return new Record(idLo[index], type(index), amount(index), category(index), date(index), note(index));
+        }
+        return new Record(id(index), type(index), amount(index), category(index), date(index), note(index));
+    }
+
+    @Override
+    public Record set(int index, Record record) {
+        Record old = get(index);
+        releaseNote(index);
+        write(index, record);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Record record) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        if (size == days.length) grow();
+        shift(index, index + 1, size - index);
+        size++;
+        write(index, record);
+        modCount++;
+    }
+
+    @Override
+    public Record remove(int index) {
+        Record old = get(index);
+        releaseNote(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        if (customIds != null) customIds[size] = null;
+        modCount++;
+        return old;
+    }
+
+    // subList(from, to).clear() 走这里：整段一次前移，不逐行删除
+    @Override
+    protected void removeRange(int from, int to) {
+        if (from >= to) return;
+        for (int row = from; row < to; row++) releaseNote(row);
+        shift(to, from, size - to);
+        int oldSize = size;
+        size -= to - from;
+        if (customIds != null) Arrays.fill(customIds, size, oldSize, null);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        heapUsed = 0;
+        heapLive = 0;
+        if (customIds != null) Arrays.fill(customIds, null);
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // 后台保存用的快照：直接复制各列数组，比复制成 Record 对象便宜得多
+    public ColumnarRecordList copy() {
+        ColumnarRecordList copy = new ColumnarRecordList(0);
+        copy.size = size;
+        copy.days = Arrays.copyOf(days, size);
+        copy.cents = Arrays.copyOf(cents, size);
+        copy.typeCodes = Arrays.copyOf(typeCodes, size);
+        copy.categoryCodes = Arrays.copyOf(categoryCodes, size);
+        copy.idHi = Arrays.copyOf(idHi, size);
+        copy.idLo = Arrays.copyOf(idLo, size);
+        copy.customIds = customIds == null ? null : Arrays.copyOf(customIds, size);
+        copy.noteOffsets = Arrays.copyOf(noteOffsets, size);
+        copy.noteLengths = Arrays.copyOf(noteLengths, size);
+        copy.noteHeap = Arrays.copyOf(noteHeap, heapUsed);
+        copy.heapUsed = heapUsed;
+        copy.heapLive = heapLive;
+        copy.types.copyFrom(types);
+        copy.categories.copyFrom(categories);
+        return copy;
+    }
+
+    // 估算占用的堆内存 (字节)
+    public long estimatedBytes() {
+        long perRow = 4 + 8 + 1 + 2 + 8 + 8 + 4 + 4 + (customIds == null ? 0 : 8);
+        return perRow * days.length + 2L * noteHeap.length;
+    }
+
+    // --- 按列读取 ---
+
+    @Override
+    public int epochDay(int row) {
+        return days[row];
+    }
+
+    @Override
+    public String type(int row) {
+        return types.value(typeCodes[row]);
+    }
+
+    @Override
+    public String category(int row) {
+        return categories.value(categoryCodes[row]);
+    }
+
+    @Override
+    public double amount(int row) {
+        return Money.toAmount(cents[row]);
+    }
+
+    @Override
+    public long amountCents(int row) {
+        return cents[row];
+    }
+
+    public LocalDate date(int row) {
+        return days[row] == DateIndex.NO_DATE ? null : LocalDate.ofEpochDay(days[row]);
+    }
+
+    @Override
+    public String note(int row) {
+        int len = noteLengths[row];
+        return len < 0 ? null : new String(noteHeap, noteOffsets[row], len);
+    }
+
+    @Override
+    public String id(int row) {
+        if (customIds != null && customIds[row] != null) return customIds[row];
+        if (idHi[row] == 0) return idLo[row] == 0 ? null : Long.toString(idLo[row]);
+        return new UUID(idHi[row], idLo[row]).toString();
+    }
+
+    @Override
+    public long key(int row) {
+        if (customIds != null && customIds[row] != null) return Record.parseKey(customIds[row]);
+        return idHi[row] == 0 ? idLo[row] : 0;
+    }
+
+    // --- 给聚合内核用的原始列 (只读，有效长度为 size()) ---
+
+    long[] centsColumn() {
+        return cents;
+    }
+
+    int[] dayColumn() {
+        return days;
+    }
+
+    byte[] typeCodeColumn() {
+        return typeCodes;
+    }
+
+    int typeCount() {
+        return types.size();
+    }
+
+    // 类型的字典码，没出现过的类型返回 NOT_FOUND，null 为 -1
+    int typeCode(String type) {
+        return types.find(type);
+    }
+
+    String typeOfCode(int code) {
+        return types.value(code);
+    }
+
+    // --- 内部 ---
+
+    private void write(int row, Record r) {
+        noteLengths[row] = -1; // 插入时这一格还是相邻行的旧值，先清掉
+        days[row] = DateIndex.dayOf(r);
+        cents[row] = Money.toCents(r.getAmount());
+        typeCodes[row] = (byte) types.code(r.getType());
+        categoryCodes[row] = (short) categories.code(r.getCategory());
+        writeId(row, r);
+        writeNote(row, r.getNote());
+    }
+
+    private void writeId(int row, Record r) {
+        if (r.getKey() != 0) {
+            idHi[row] = 0;
+            idLo[row] = r.getKey();
+            if (customIds != null) customIds[row] = null;
+            return;
+        }
+        String id = r.getId();
+        UUID uuid = parseUuid(id);
+        if (uuid != null) {
+            idHi[row] = uuid.getMostSignificantBits();
+            idLo[row] = uuid.getLeastSignificantBits();
+            if (customIds != null) customIds[row] = null;
+        } else {
+            idHi[row] = 0;
+            idLo[row] = 0;
+            if (id != null) {
+                if (customIds == null) customIds = new String[days.length];
+                customIds[row] = id;
+            } else if (customIds != null) {
+                customIds[row] = null;
+            }
+        }
+    }
+
+    private void writeNote(int row, String note) {
+        if (note == null) {
+            noteLengths[row] = -1;
+            noteOffsets[row] = 0;
+            return;
+        }
+        int len = note.length();
+        if (heapUsed + len > noteHeap.length) {
+            // 被覆盖/删除的备注占了一半以上就先整理，否则扩容
+            if (heapUsed - heapLive > heapUsed / 2) compactHeap();
+            if (heapUsed + len > noteHeap.length) {
+                noteHeap = Arrays.copyOf(noteHeap, Math.max(noteHeap.length * 2, heapUsed + len));
+            }
+        }
+        note.getChars(0, len, noteHeap, heapUsed);
+        noteOffsets[row] = heapUsed;
+        noteLengths[row] = len;
+        heapUsed += len;
+        heapLive += len;
+    }
+
+    private void releaseNote(int row) {
+        if (noteLengths[row] > 0) heapLive -= noteLengths[row];
+    }
+
+    private void compactHeap() {
+        char[] heap = new char[Math.max(1024, heapLive * 2)];
+        int used = 0;
+        for (int row = 0; row < size; row++) {
+            int len = noteLengths[row];
+            if (len <= 0) continue;
+            System.arraycopy(noteHeap, noteOffsets[row], heap, used, len);
+            noteOffsets[row] = used;
+            used += len;
+        }
+        noteHeap = heap;
+        heapUsed = used;
+        heapLive = used;
+    }
+
+    private void shift(int from, int to, int count) {
+        if (count <= 0) return;
+        System.arraycopy(days, from, days, to, count);
+        System.arraycopy(cents, from, cents, to, count);
+        System.arraycopy(typeCodes, from, typeCodes, to, count);
+        System.arraycopy(categoryCodes, from, categoryCodes, to, count);
+        System.arraycopy(idHi, from, idHi, to, count);
+        System.arraycopy(idLo, from, idLo, to, count);
+        if (customIds != null) System.arraycopy(customIds, from, customIds, to, count);
+        System.arraycopy(noteOffsets, from, noteOffsets, to, count);
+        System.arraycopy(noteLengths, from, noteLengths, to, count);
+    }
+
+    private void allocate(int capacity) {
+        days = new int[capacity];
+        cents = new long[capacity];
+        typeCodes = new byte[capacity];
+        categoryCodes = new short[capacity];
+        idHi = new long[capacity];
+        idLo = new long[capacity];
+        noteOffsets = new int[capacity];
+        noteLengths = new int[capacity];
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, days.length + (days.length >> 1));
+        days = Arrays.copyOf(days, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        idHi = Arrays.copyOf(idHi, capacity);
+        idLo = Arrays.copyOf(idLo, capacity);
+        if (customIds != null) customIds = Arrays.copyOf(customIds, capacity);
+        noteOffsets = Arrays.copyOf(noteOffsets, capacity);
+        noteLengths = Arrays.copyOf(noteLengths, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    // 只接受标准 36 位格式，保证还原后是同一个字符串
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            // 高位为 0 的位置留给数字 id
+            return uuid.toString().equals(id) && uuid.getMostSignificantBits() != 0 ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // 字符串 <-> 小整数编码，null 编码为 -1
+    private static final class Dictionary {
+        private final int limit;
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        Dictionary(int limit) {
+            this.limit = limit;
+        }
+
+        int code(String value) {
+            if (value == null) return -1;
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (values.size() >= limit) {
+                    throw new IllegalStateException("不同取值超过 " + limit + " 个，无法字典编码: " + value);
+                }
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        int find(String value) {
+            if (value == null) return -1;
+            Integer code = codes.get(value);
+            return code == null ? NOT_FOUND : code;
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        String value(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+
+        void copyFrom(Dictionary other) {
+            values.addAll(other.values);
+            codes.putAll(other.codes);
+        }
+    }
+}
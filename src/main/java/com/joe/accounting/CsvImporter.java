@@ -0,0 +1,269 @@
+package com.joe.accounting;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 流式批量导入 CSV (表头与导出的一致: 日期,类型,分类,金额,备注)。
+ *
+ * 读取线程按块 (chunkSize 行) 切分，交给线程池并行解析校验，解析好的块按原顺序攒成一批再调用 addRecords，
+ * 每批只提交一次存储。整文件重写的存储 (serialized / binary) 每次提交的代价与账本大小成正比，
+ * 所以一批的大小至少与当前账本一样大 (倍增)，整个导入的写盘总量与行数成线性关系。
+ * 同时在途的块数有上限。
+ * 编码可以指定，也可以自动识别 (开头 64KB 是合法 UTF-8 就按 UTF-8，否则按 GBK)。
+ */
+public class CsvImporter {
+    public static final Charset GBK = Charset.forName("GBK");
+    private static final int HEAD_BYTES = 64 * 1024;
+    private static final int MAX_REJECTED_KEPT = 1000;
+
+    private final AccountService service;
+    private final int chunkSize;
+    private final int parallelism;
+
+    // 进度回调：每解析完一块调用一次，accepted 为已通过校验的行数 (可能还在等待提交)
+    @FunctionalInterface
+    public interface Listener {
+        void progress(long accepted, long rejected);
+    }
+
+    // 被拒绝的行：行号从 1 开始 (含表头)
+    public static final class Rejected {
+        private final long line;
+        private final String text;
+        private final String reason;
+
+        Rejected(long line, String text, String reason) {
+            this.line = line;
+            this.text = text;
+            this.reason = reason;
+        }
+
+        public long getLine() { return line; }
+        public String getText() { return text; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "第 " + line + " 行: " + reason + " (" + text + ")";
+        }
+    }
+
+    public static final class Result {
+        private long imported;
+        private long rejectedCount;
+        private final List<Rejected> rejected = new ArrayList<>();
+
+        public long getImported() { return imported; }
+        public long getRejectedCount() { return rejectedCount; }
+
+        // 只保留前 1000 条被拒绝的行，总数见 getRejectedCount
+        public List<Rejected> getRejected() { return Collections.unmodifiableList(rejected); }
+    }
+
+    public CsvImporter(AccountService service) {
+        this(service, 10_000, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvImporter(AccountService service, int chunkSize, int parallelism) {
+        this.service = service;
+        this.chunkSize = chunkSize;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public Result importFile(Path file, Listener listener) throws IOException {
+        return importFile(file, detectCharset(file), listener);
+    }
+
+    public Result importFile(Path file, Charset charset, Listener listener) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, charset)) {
+            return importLines(reader, listener);
+        }
+    }
+
+    public Result importLines(BufferedReader reader, Listener listener) throws IOException {
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "csv-import");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        Batch batch = new Batch();
+        try {
+            long lineNo = 0;
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1) {
+                    if (!line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1); // BOM
+                    if (line.startsWith("日期,")) { // 表头
+                        firstLine = 2;
+                        continue;
+                    }
+                }
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(pool, lines, firstLine));
+                    firstLine = lineNo + 1;
+                    lines = new ArrayList<>(chunkSize);
+                    // 在途块数有上限，解析跑在读取前面太多时先提交最早的块
+                    if (inFlight.size() >= parallelism * 2) collect(inFlight.poll(), batch, result, listener);
+                }
+            }
+            if (!lines.isEmpty()) inFlight.add(submit(pool, lines, firstLine));
+            while (!inFlight.isEmpty()) collect(inFlight.poll(), batch, result, listener);
+            flush(batch, result);
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static final class Chunk {
+        final List<Record> records = new ArrayList<>();
+        final List<Rejected> rejected = new ArrayList<>();
+    }
+
+    private static Future<Chunk> submit(ExecutorService pool, List<String> lines, long firstLine) {
+        return pool.submit(() -> {
+            Chunk chunk = new Chunk();
+            for (int i = 0; i < lines.size(); i++) {
+                String text = lines.get(i);
+                if (text.isBlank()) continue;
+                try {
+                    chunk.records.add(parse(text));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    chunk.rejected.add(new Rejected(firstLine + i, text, e.getMessage()));
+                }
+            }
+            return chunk;
+        });
+    }
+
+    private static final class Batch {
+        final List<Record> records = new ArrayList<>();
+        long accepted;
+    }
+
+    private void collect(Future<Chunk> future, Batch batch, Result result, Listener listener) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("导入被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("解析失败", e.getCause());
+        }
+        batch.records.addAll(chunk.records);
+        batch.accepted += chunk.records.size();
+        result.rejectedCount += chunk.rejected.size();
+        for (Rejected r : chunk.rejected) {
+            if (result.rejected.size() < MAX_REJECTED_KEPT) result.rejected.add(r);
+        }
+        if (listener != null) listener.progress(batch.accepted, result.rejectedCount);
+        if (batch.records.size() >= Math.max(chunkSize, service.getRecordCount())) {
+            flush(batch, result);
+        }
+    }
+
+    private void flush(Batch batch, Result result) {
+        if (batch.records.isEmpty()) return;
+        result.imported += service.addRecords(batch.records);
+        batch.records.clear();
+    }
+
+    /**
+     * 解析一行: 日期,类型,分类,金额,备注。导出时备注没有加引号，所以第 5 列之后的逗号都算备注内容；
+     * 也支持带双引号的字段 (银行导出常见)。导出时空值写成 "null"，这里还原成 null。
+     */
+    static Record parse(String line) {
+        List<String> fields = split(line, 5);
+        if (fields.size() < 4) throw new IllegalArgumentException("列数不足");
+        String dateText = fields.get(0).trim();
+        LocalDate date = dateText.isEmpty() || "null".equals(dateText) ? null : LocalDate.parse(dateText);
+        String type = fields.get(1).trim();
+        if (!"收入".equals(type) && !"支出".equals(type)) {
+            throw new IllegalArgumentException("类型只能是 收入 或 支出: " + type);
+        }
+        String category = nullable(fields.get(2).trim());
+        double amount = Double.parseDouble(fields.get(3).trim());
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("金额无效: " + fields.get(3));
+        }
+        String note = fields.size() > 4 ? nullable(fields.get(4)) : null;
+        return new Record(type, amount, category, date, note);
+    }
+
+    private static String nullable(String value) {
+        return value.isEmpty() || "null".equals(value) ? null : value;
+    }
+
+    // 按逗号切分，最多 limit 列 (最后一列包含剩余全部内容)；双引号内的逗号不切分，"" 表示一个引号
+    static List<String> split(String line, int limit) {
+        List<String> fields = new ArrayList<>(limit);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',' && fields.size() < limit - 1) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // 开头 64KB 能按 UTF-8 严格解码就认为是 UTF-8，否则按 GBK (导出功能写的是 GBK)
+    static Charset detectCharset(Path file) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(HEAD_BYTES);
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // 没读完整个文件时，末尾可能正好切开一个多字节字符，不算错误
+        boolean endOfInput = head.length < HEAD_BYTES;
+        CoderResult result = decoder.decode(ByteBuffer.wrap(head), CharBuffer.allocate(head.length), endOfInput);
+        return result.isError() ? GBK : StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,149 @@
+package com.joe.accounting;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 按日期排序的索引：两个平行数组 (epochDay, 行号)，按 (日期, 行号) 升序排列。
+ * 范围查询二分定位到区间两端，只需扫描落在区间内的行。
+ * 行号即记录在 AccountService.records 中的下标，增删改时由 AccountService 同步维护。
+ */
+class DateIndex {
+    // 没有日期的记录排在最前面，任何带边界的日期查询都不会命中它们
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private int[] days = new int[16];
+    private int[] rows = new int[16];
+    private int size;
+
+    static int dayOf(Record r) {
+        return dayOf(r.getDate());
+    }
+
+    static int dayOf(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    void rebuild(RecordColumns columns) {
+        int count = columns.size();
+        long[] packed = new long[count];
+        for (int row = 0; row < count; row++) {
+            packed[row] = ((long) columns.epochDay(row) << 32) | row;
+        }
+        Arrays.sort(packed);
+        days = new int[Math.max(16, count)];
+        rows = new int[days.length];
+        for (int i = 0; i < count; i++) {
+            days[i] = (int) (packed[i] >> 32);
+            rows[i] = (int) packed[i];
+        }
+        size = count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // 新行追加到 records 末尾 (行号最大)，插到同一天的最后
+    void add(int row, int day) {
+        insert(upperBound(day), day, row);
+    }
+
+    // records 中删除了 row，之后的行号整体前移一位
+    void remove(int row, int day) {
+        int pos = find(row, day);
+        System.arraycopy(days, pos + 1, days, pos, size - pos - 1);
+        System.arraycopy(rows, pos + 1, rows, pos, size - pos - 1);
+        size--;
+        for (int i = 0; i < size; i++) {
+            if (rows[i] > row) rows[i]--;
+        }
+    }
+
+    // records 中删除了一批行 (升序)，一次扫描去掉它们并把其余行号前移
+    void removeRows(int[] removed) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int pos = Arrays.binarySearch(removed, rows[i]);
+            if (pos >= 0) continue;
+            days[n] = days[i];
+            rows[n] = rows[i] - (-pos - 1);
+            n++;
+        }
+        size = n;
+    }
+
+    // 行号不变，只是日期变了
+    void update(int row, int oldDay, int newDay) {
+        if (oldDay == newDay) return;
+        int pos = find(row, oldDay);
+        System.arraycopy(days, pos + 1, days, pos, size - pos - 1);
+        System.arraycopy(rows, pos + 1, rows, pos, size - pos - 1);
+        size--;
+        insert(insertionPoint(newDay, row), newDay, row);
+    }
+
+    /**
+     * 返回日期落在 [startDay, endDay] 的行号，按行号升序 (即 records 中的原始顺序)。
+     */
+    int[] rowsBetween(int startDay, int endDay) {
+        if (startDay > endDay) return new int[0];
+        int from = lowerBound(startDay);
+        int to = upperBound(endDay);
+        int[] result = Arrays.copyOfRange(rows, from, Math.max(from, to));
+        Arrays.sort(result);
+        return result;
+    }
+
+    // 同上，但按 (日期, 行号) 升序返回，即索引本身的顺序 (按日期排序的查询直接用，不用再排)
+    int[] rowsInDateOrder(int startDay, int endDay) {
+        if (startDay > endDay) return new int[0];
+        int from = lowerBound(startDay);
+        return Arrays.copyOfRange(rows, from, Math.max(from, upperBound(endDay)));
+    }
+
+    // 第一个 day >= target 的位置
+    int lowerBound(int target) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < target) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // 第一个 day > target 的位置
+    int upperBound(int target) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] <= target) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int insertionPoint(int day, int row) {
+        int pos = lowerBound(day);
+        while (pos < size && days[pos] == day && rows[pos] < row) pos++;
+        return pos;
+    }
+
+    private int find(int row, int day) {
+        for (int pos = lowerBound(day); pos < size && days[pos] == day; pos++) {
+            if (rows[pos] == row) return pos;
+        }
+        throw new IllegalStateException("日期索引与记录不一致: row=" + row);
+    }
+
+    private void insert(int pos, int day, int row) {
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        System.arraycopy(days, pos, days, pos + 1, size - pos);
+        System.arraycopy(rows, pos, rows, pos + 1, size - pos);
+        days[pos] = day;
+        rows[pos] = row;
+        size++;
+    }
+}
@@ -0,0 +1,53 @@
+package com.joe.accounting;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * 启动时开始一段 JDK Flight Recorder 录制，退出时写到文件里，用 JMC 打开就能看到 LedgerEvents 的事件：
+ * <pre>
+ *   -Daccounting.jfr=ledger.jfr            (录制输出文件，不设置时不录制)
+ *   -Daccounting.jfr.settings=profile      (default / profile，或者 .jfc 文件路径)
+ * </pre>
+ * 效果和 -XX:StartFlightRecording 一样，只是默认把本项目的事件全部打开 (不受 1ms 阈值限制)。
+ */
+final class FlightRecording {
+    private FlightRecording() {
+    }
+
+    // 读取系统属性，需要时开始录制；没有设置 accounting.jfr 时返回 null
+    static Recording startFromSystemProperties() {
+        String file = System.getProperty("accounting.jfr");
+        if (file == null || file.isBlank()) return null;
+        try {
+            return start(Paths.get(file), System.getProperty("accounting.jfr.settings", "default"));
+        } catch (IOException | ParseException | IllegalStateException e) {
+            System.err.println("无法开始 JFR 录制: " + e);
+            return null;
+        }
+    }
+
+    static Recording start(Path file, String settings) throws IOException, ParseException {
+        Configuration configuration = settings.endsWith(".jfc")
+                ? Configuration.create(Paths.get(settings))
+                : Configuration.getConfiguration(settings);
+        Recording recording = new Recording(configuration);
+        recording.setName("bookkeeping");
+        for (Class<? extends Event> type : List.of(LedgerEvents.Load.class, LedgerEvents.Save.class, LedgerEvents.Query.class,
+                LedgerEvents.Mutation.class, LedgerEvents.Aggregate.class, LedgerEvents.UiAction.class)) {
+            recording.enable(type).withoutThreshold();
+        }
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        System.out.println("JFR 录制中，退出时写入 " + file.toAbsolutePath());
+        return recording;
+    }
+}
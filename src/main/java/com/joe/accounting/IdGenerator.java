@@ -0,0 +1,16 @@
+package com.joe.accounting;
+
+/**
+ * 记录 id 生成器：返回正的 64 位整数，同一进程内不重复。
+ * 默认是 MonotonicIdGenerator，可通过 Record.setIdGenerator 替换 (例如测试里用固定序列)。
+ * 打开账本时会用 advancePast 告诉生成器已存的最大 id，之后生成的 id 都比它大，
+ * 这样重启前后 (即使时钟回拨) 同一个账本里也不会出现重复的 id。
+ */
+@FunctionalInterface
+public interface IdGenerator {
+    long nextId();
+
+    // 保证之后生成的 id 都大于 id；默认不处理，自定义生成器需要自己保证不和已存的 id 重复
+    default void advancePast(long id) {
+    }
+}
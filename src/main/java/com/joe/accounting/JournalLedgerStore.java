@@ -0,0 +1,317 @@
+package com.joe.accounting;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 日志式存储：快照 (沿用 account_data.dat 的序列化格式) + 追加写的变更日志。
+ * 每次 add/update/delete 只在日志末尾追加一条很小的记录，写入代价与账本大小无关；
+ * 日志条数超过阈值时才把当前状态整体写回快照并清空日志 (compaction)。
+ *
+ * 日志条目格式: [int 长度][payload][int CRC32]，末尾不完整或校验失败的条目
+ * (例如写到一半断电) 在启动时会被丢弃并截断。
+ *
+ * 重放时同一个 id 被新增两次说明数据已经损坏，load() 直接抛出异常，不会悄悄跳过。
+ * 压缩前先在日志末尾追加一条压缩标记 (新快照的条数和内容摘要)：如果在替换快照之后、清空日志之前崩溃，
+ * 启动时快照和标记对得上，就知道日志已经合并进快照，不再重放。
+ */
+public class JournalLedgerStore implements LedgerStore {
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE = 3;
+    private static final byte OP_COMPACT = 4; // 压缩标记: [int 条数][long 摘要]
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final SerializedLedgerStore snapshotStore;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final int compactThreshold;
+
+    private FileChannel journal;
+    private int journalEntries;
+    private volatile long bytesWritten; // 不加锁读取：异步写入时写线程可能正持有锁
+
+    public JournalLedgerStore(Path snapshotFile, Path journalFile, int compactThreshold) {
+        this.snapshotStore = new SerializedLedgerStore(snapshotFile.toFile());
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.compactThreshold = compactThreshold;
+    }
+
+    @Override
+    public synchronized List<Record> load() throws IOException {
+        // 快照读不出来时启动失败：当成空账本继续的话，下次压缩会把真正的快照覆盖掉
+        List<Record> records = Files.exists(snapshotFile) ? snapshotStore.readRecords() : new ArrayList<>();
+        if (!Files.exists(journalFile)) {
+            journalEntries = 0;
+            return records;
+        }
+
+        // 回放日志：用 id -> 下标 的哈希表定位，删除先置空最后统一压缩
+        List<Record> slots = new ArrayList<>(records);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < slots.size(); i++) {
+            positions.put(slots.get(i).getId(), i);
+        }
+
+        long validEnd = 0;
+        List<byte[]> entries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            while (true) {
+                byte[] payload = readEntry(in);
+                if (payload == null) break;
+                entries.add(payload);
+                validEnd += 8 + payload.length;
+            }
+        }
+        // 上次压缩已经换好快照、只是没来得及清空日志：日志的内容都在快照里了
+        if (!entries.isEmpty() && compactedInto(entries.get(entries.size() - 1), records)) {
+            validEnd = 0;
+            entries.clear();
+        }
+        for (byte[] payload : entries) {
+            replay(payload, slots, positions);
+        }
+        // 截掉末尾损坏的部分，后续追加从干净的位置开始
+        if (validEnd < Files.size(journalFile)) {
+            try (FileChannel ch = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                ch.truncate(validEnd);
+                ch.force(false);
+            }
+        }
+        journalEntries = entries.size();
+
+        List<Record> result = new ArrayList<>(positions.size());
+        for (Record r : slots) {
+            if (r != null) result.add(r);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+        if (ops.isEmpty()) return;
+        if (journalEntries + ops.size() > compactThreshold) {
+            compact(snapshot.get());
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * ops.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (LedgerOp op : ops) {
+            writeEntry(out, encode(op));
+        }
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        FileChannel ch = journal();
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+        journalEntries += ops.size();
+    }
+
+    // 把当前完整状态写成新快照 (先写临时文件再原子替换)，然后清空日志。
+    // 替换前先把压缩标记写进日志并落盘，替换之后、清空之前崩溃时 load() 靠它识别出日志已经合并过。
+    public synchronized void compact(List<Record> records) throws IOException {
+        List<Record> snapshot = new ArrayList<>(records);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeEntry(out, compactMarker(snapshot));
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        FileChannel ch = journal();
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+        ch.force(false);
+
+        snapshotStore.saveRecords(snapshot);
+        bytesWritten += Files.size(snapshotFile);
+        ch.truncate(0);
+        ch.force(false);
+        journalEntries = 0;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public synchronized int getJournalEntries() {
+        return journalEntries;
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        if (journal != null) {
+            journal.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private FileChannel journal() throws IOException {
+        if (journal == null) {
+            journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return journal;
+    }
+
+    // --- 编码 ---
+
+    private static byte[] encode(LedgerOp op) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        switch (op.getKind()) {
+            case ADD:
+                out.writeByte(OP_ADD);
+                writeRecord(out, op.getAfter());
+                break;
+            case UPDATE:
+                out.writeByte(OP_UPDATE);
+                out.writeUTF(op.getBefore().getId());
+                writeRecord(out, op.getAfter());
+                break;
+            case DELETE:
+                out.writeByte(OP_DELETE);
+                out.writeUTF(op.getBefore().getId());
+                break;
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static void writeEntry(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    // 返回 null 表示到达文件末尾或遇到损坏条目
+    private static byte[] readEntry(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > (1 << 20)) return null;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            int expected = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == expected ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    // 压缩标记的内容：条数 + 各条记录摘要之和 (与顺序无关)
+    static byte[] compactMarker(List<Record> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(13);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_COMPACT);
+        out.writeInt(records.size());
+        out.writeLong(digest(records));
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // payload 是压缩标记，并且 records 正是那次压缩写出的快照
+    private static boolean compactedInto(byte[] payload, List<Record> records) throws IOException {
+        if (payload.length == 0 || payload[0] != OP_COMPACT) return false;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+        return in.readInt() == records.size() && in.readLong() == digest(records);
+    }
+
+    // 摘要覆盖 id 和全部字段：只有修改没有增删时，新旧快照的 id 集合是一样的
+    private static long digest(List<Record> records) {
+        long sum = 0;
+        for (Record r : records) {
+            long h = java.util.Objects.hash(r.getId(), r.getType(), r.getCategory(), r.getDate(), r.getNote());
+            h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(r.getAmount());
+            h ^= h >>> 31;
+            sum += h * 0xBF58476D1CE4E5B9L;
+        }
+        return sum;
+    }
+
+    // 重放：快照之后的日志逐条执行。新增或改成一个已经存在的 id 说明数据有问题，直接报错
+    private static void replay(byte[] payload, List<Record> slots, Map<String, Integer> positions) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        if (kind == OP_ADD) {
+            Record r = readRecord(in);
+            if (positions.containsKey(r.getId())) {
+                throw new IOException("日志中重复新增了同一个 id: " + r.getId());
+            }
+            positions.put(r.getId(), slots.size());
+            slots.add(r);
+        } else if (kind == OP_UPDATE) {
+            String oldId = in.readUTF();
+            Record r = readRecord(in);
+            if (!r.getId().equals(oldId) && positions.containsKey(r.getId())) {
+                throw new IOException("日志中把记录 " + oldId + " 改成了已经存在的 id: " + r.getId());
+            }
+            Integer index = positions.remove(oldId);
+            if (index == null) {
+                throw new IOException("日志中修改了不存在的记录: " + oldId);
+            }
+            slots.set(index, r);
+            positions.put(r.getId(), index);
+        } else if (kind == OP_DELETE) {
+            String id = in.readUTF();
+            Integer index = positions.remove(id);
+            if (index == null) {
+                throw new IOException("日志中删除了不存在的记录: " + id);
+            }
+            slots.set(index, null);
+        } else if (kind != OP_COMPACT) { // 没有完成的压缩留下的标记，快照还是旧的，照常重放
+            throw new IOException("未知的日志条目类型: " + kind);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Record r) throws IOException {
+        out.writeUTF(r.getId());
+        writeNullable(out, r.getType());
+        out.writeDouble(r.getAmount());
+        writeNullable(out, r.getCategory());
+        out.writeLong(r.getDate() == null ? NO_DATE : r.getDate().toEpochDay());
+        writeNullable(out, r.getNote());
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String type = readNullable(in);
+        double amount = in.readDouble();
+        String category = readNullable(in);
+        long day = in.readLong();
+        String note = readNullable(in);
+        return new Record(id, type, amount, category, day == NO_DATE ? null : LocalDate.ofEpochDay(day), note);
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
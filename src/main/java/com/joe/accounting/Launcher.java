@@ -1,8 +1,15 @@
 package com.joe.accounting;
 
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // 新增：-Daccounting.jfr=ledger.jfr 启动时开始 JFR 录制 (见 FlightRecording)
+        FlightRecording.startFromSystemProperties();
+        // 新增：--server 启动无界面的 HTTP 服务 (见 LedgerHttpServer)
+        if (java.util.Arrays.asList(args).contains("--server")) {
+            LedgerHttpServer.main(args);
+            return;
+        }
         // 这里的 BookkeepingApp 是你原本的主类名
         BookkeepingApp.main(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.joe.accounting;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 懒加载的记录列表：启动时只映射二进制账本并读取文件头和字典，
+ * 记录按页 (pageSize 行) 在第一次被访问时才解码成 Record，解码后的页放在有界的 LRU 缓存里。
+ *
+ * 修改不会回写映射文件：追加的记录放在 appended，改动的行放在 replaced；
+ * 只有删除/插入到文件区域中间时才会整体解码 (materialize) 成普通列表。
+ * 存储层把新文件写完后调用 rebase，列表重新指向新文件并丢弃这些覆盖层。
+ */
+public class LazyRecordList extends AbstractList<Record> implements RandomAccess, RecordColumns {
+    private final int pageSize;
+    private final Map<Integer, Record[]> pages;
+
+    private BinaryLedgerFile base;
+    private int baseCount;
+    private final Map<Integer, Record> replaced = new HashMap<>();
+    private final List<Record> appended = new ArrayList<>();
+    private List<Record> materialized;
+    private long decodedPages;
+
+    public LazyRecordList(BinaryLedgerFile base, int pageSize, int cachePages) {
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Record[]> eldest) {
+                return size() > cachePages;
+            }
+        };
+        this.base = base;
+        this.baseCount = base.rowCount();
+    }
+
+    @Override
+    public synchronized Record get(int index) {
+        if (materialized != null) return materialized.get(index);
+        checkIndex(index, size());
+        if (index >= baseCount) return appended.get(index - baseCount);
+        Record r = replaced.get(index);
+        if (r != null) return r;
+        return page(index / pageSize)[index % pageSize];
+    }
+
+    // 按列读取：未修改过的行直接从映射文件取值，不解码整条记录
+    @Override
+    public synchronized int epochDay(int index) {
+        return inBase(index) ? base.epochDay(index) : DateIndex.dayOf(get(index));
+    }
+
+    @Override
+    public synchronized String type(int index) {
+        return inBase(index) ? base.type(index) : get(index).getType();
+    }
+
+    @Override
+    public synchronized String category(int index) {
+        return inBase(index) ? base.category(index) : get(index).getCategory();
+    }
+
+    @Override
+    public synchronized double amount(int index) {
+        return inBase(index) ? base.amount(index) : get(index).getAmount();
+    }
+
+    @Override
+    public synchronized String id(int index) {
+        return inBase(index) ? base.id(index) : get(index).getId();
+    }
+
+    @Override
+    public synchronized long key(int index) {
+        return inBase(index) ? base.key(index) : get(index).getKey();
+    }
+
+    @Override
+    public synchronized String note(int index) {
+        return inBase(index) ? base.note(index) : get(index).getNote();
+    }
+
+    private boolean inBase(int index) {
+        return materialized == null && index < baseCount && !replaced.containsKey(index);
+    }
+
+    @Override
+    public synchronized Record set(int index, Record record) {
+        if (materialized != null) return materialized.set(index, record);
+        checkIndex(index, size());
+        if (index >= baseCount) return appended.set(index - baseCount, record);
+        Record old = get(index);
+        replaced.put(index, record);
+        return old;
+    }
+
+    @Override
+    public synchronized void add(int index, Record record) {
+        modCount++;
+        if (materialized == null && index == size()) {
+            appended.add(record);
+            return;
+        }
+        materialize().add(index, record);
+    }
+
+    @Override
+    public synchronized Record remove(int index) {
+        modCount++;
+        if (materialized == null && index >= baseCount) {
+            checkIndex(index, size());
+            return appended.remove(index - baseCount);
+        }
+        return materialize().remove(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        return materialized != null ? materialized.size() : baseCount + appended.size();
+    }
+
+    // 存储层写出新文件后调用：新文件已包含全部修改，覆盖层和页缓存都可以丢掉
+    public synchronized void rebase(BinaryLedgerFile newBase) {
+        modCount++;
+        base = newBase;
+        baseCount = newBase.rowCount();
+        replaced.clear();
+        appended.clear();
+        materialized = null;
+        pages.clear();
+    }
+
+    // 已解码过的页数 (含被淘汰后重新解码的)，用于观察懒加载效果
+    public synchronized long getDecodedPages() {
+        return decodedPages;
+    }
+
+    public synchronized int getCachedPages() {
+        return pages.size();
+    }
+
+    public synchronized boolean isMaterialized() {
+        return materialized != null;
+    }
+
+    private Record[] page(int pageNo) {
+        Record[] page = pages.get(pageNo);
+        if (page == null) {
+            int from = pageNo * pageSize;
+            int to = Math.min(from + pageSize, baseCount);
+            page = new Record[to - from];
+            for (int i = from; i < to; i++) {
+                page[i - from] = base.record(i);
+            }
+            pages.put(pageNo, page);
+            decodedPages++;
+        }
+        return page;
+    }
+
+    private List<Record> materialize() {
+        if (materialized == null) {
+            List<Record> all = new ArrayList<>(size() + 16);
+            for (int i = 0; i < size(); i++) {
+                all.add(get(i));
+            }
+            materialized = all;
+            replaced.clear();
+            appended.clear();
+            pages.clear();
+        }
+        return materialized;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
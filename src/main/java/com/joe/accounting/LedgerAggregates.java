@@ -0,0 +1,149 @@
+package com.joe.accounting;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 随增删改增量维护的汇总：每种类型的总额，以及按月的合计。
+ * 金额按"分"累加 (见 Money)，删除/修改时减回去也不会产生误差。
+ */
+class LedgerAggregates {
+    private final Map<String, TypeStats> byType = new HashMap<>();
+    private int size;
+
+    private static final class TypeStats {
+        long totalCents;
+        int count;
+        // 月份 (year * 12 + month - 1) -> {金额(分), 条数}
+        final TreeMap<Integer, long[]> months = new TreeMap<>();
+    }
+
+    // 分组数 (类型数 × 月份跨度) 超过这个值就不走分组内核，逐行累加
+    private static final int MAX_GROUPS = 1 << 20;
+
+    void rebuild(RecordColumns columns) {
+        byType.clear();
+        size = 0;
+        if (columns instanceof ColumnarRecordList && rebuildColumnar((ColumnarRecordList) columns)) {
+            return;
+        }
+        for (int row = 0; row < columns.size(); row++) {
+            apply(columns.type(row), columns.epochDay(row), columns.amountCents(row), 1);
+            size++;
+        }
+    }
+
+    // 列式存储：先算出每行的分组号 (类型码 × 月份)，再用分组求和内核一次扫完金额列
+    private boolean rebuildColumnar(ColumnarRecordList columns) {
+        int n = columns.size();
+        int[] days = columns.dayColumn();
+        int[] months = new int[n];
+        int minMonth = Integer.MAX_VALUE, maxMonth = Integer.MIN_VALUE;
+        for (int row = 0; row < n; row++) {
+            if (days[row] == DateIndex.NO_DATE) continue;
+            int month = monthKey(days[row]);
+            months[row] = month;
+            minMonth = Math.min(minMonth, month);
+            maxMonth = Math.max(maxMonth, month);
+        }
+        // 每种类型占 slots 个分组，最后一个分组放没有日期的记录
+        long slots = minMonth > maxMonth ? 1 : (long) maxMonth - minMonth + 2;
+        int typeCount = columns.typeCount();
+        if (slots * Math.max(1, typeCount) > MAX_GROUPS) return false;
+
+        byte[] typeCodes = columns.typeCodeColumn();
+        int[] groups = new int[n];
+        for (int row = 0; row < n; row++) {
+            int slot = days[row] == DateIndex.NO_DATE ? (int) slots - 1 : months[row] - minMonth;
+            groups[row] = typeCodes[row] < 0 ? -1 : typeCodes[row] * (int) slots + slot;
+        }
+        long[] sums = new long[(int) slots * Math.max(1, typeCount)];
+        int[] counts = new int[sums.length];
+        AggregationKernels.groupSum(columns.centsColumn(), groups, n, sums, counts);
+
+        for (int code = 0; code < typeCount; code++) {
+            TypeStats stats = new TypeStats();
+            for (int slot = 0; slot < slots; slot++) {
+                int g = code * (int) slots + slot;
+                if (counts[g] == 0) continue;
+                stats.totalCents += sums[g];
+                stats.count += counts[g];
+                if (slot < slots - 1) {
+                    stats.months.put(minMonth + slot, new long[]{sums[g], counts[g]});
+                }
+            }
+            if (stats.count > 0) byType.put(columns.typeOfCode(code), stats);
+        }
+        size = n;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Record r) {
+        apply(r.getType(), DateIndex.dayOf(r), Money.toCents(r.getAmount()), 1);
+        size++;
+    }
+
+    void remove(Record r) {
+        apply(r.getType(), DateIndex.dayOf(r), -Money.toCents(r.getAmount()), -1);
+        size--;
+    }
+
+    void update(Record oldRecord, Record newRecord) {
+        remove(oldRecord);
+        add(newRecord);
+    }
+
+    long totalCents(String type) {
+        TypeStats stats = byType.get(type);
+        return stats == null ? 0 : stats.totalCents;
+    }
+
+    // 所有类型的总额 (分)
+    Map<String, Long> totals() {
+        Map<String, Long> result = new HashMap<>();
+        byType.forEach((type, stats) -> result.put(type, stats.totalCents));
+        return result;
+    }
+
+    // 返回 {"2025-01": 合计, ...}，按月份排序；只包含有记录的月份
+    Map<String, Double> monthly(String type) {
+        Map<String, Double> result = new TreeMap<>();
+        TypeStats stats = byType.get(type);
+        if (stats == null) return result;
+        for (Map.Entry<Integer, long[]> e : stats.months.entrySet()) {
+            result.put(monthLabel(e.getKey()), Money.toAmount(e.getValue()[0]));
+        }
+        return result;
+    }
+
+    static int monthKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    static String monthLabel(int monthKey) {
+        int year = Math.floorDiv(monthKey, 12);
+        int month = Math.floorMod(monthKey, 12) + 1;
+        return String.format("%04d-%02d", year, month);
+    }
+
+    private void apply(String type, int epochDay, long cents, int delta) {
+        if (type == null) return;
+        TypeStats stats = byType.computeIfAbsent(type, k -> new TypeStats());
+        stats.totalCents += cents;
+        stats.count += delta;
+        if (epochDay != DateIndex.NO_DATE) {
+            long[] month = stats.months.computeIfAbsent(monthKey(epochDay), k -> new long[2]);
+            month[0] += cents;
+            month[1] += delta;
+            if (month[1] == 0) stats.months.remove(monthKey(epochDay));
+        }
+        if (stats.count == 0) byType.remove(type);
+    }
+}
@@ -0,0 +1,188 @@
+package com.joe.accounting;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * 账本的运行配置，通过 JVM 系统属性设置，例如:
+ * <pre>
+ *   -Daccounting.storage=journal     (serialized / journal / binary / partitioned)
+ *   -Daccounting.journal.compactThreshold=10000
+ *   -Daccounting.lazy=true          (仅 binary 存储: 按页懒加载记录)
+ *   -Daccounting.partition=month    (仅 partitioned 存储: month / quarter / year 一个段文件)
+ *   -Daccounting.partition.cacheSegments=24 (同时解码缓存的段数)
+ *   -Daccounting.memory=columnar    (objects / columnar: 内存中按列存储记录)
+ *   -Daccounting.concurrent=true    (多线程共享: 读取走无锁快照)
+ *   -Daccounting.queryCache.entries=64  (筛选结果缓存的条目数，0 为关闭)
+ *   -Daccounting.metrics.jmx=true   (把运行指标注册成 JMX MBean)
+ *   -Daccounting.metrics.dumpSeconds=60 (每隔多少秒打印一次指标摘要，0 为不打印)
+ *   -Daccounting.async=true         (后台组提交写入)
+ *   -Daccounting.async.windowMillis=50
+ *   -Daccounting.fsync=interval     (always / interval / none)
+ *   -Daccounting.fsync.intervalMillis=1000
+ *   -Daccounting.jfr=ledger.jfr     (启动时开始 JFR 录制，见 FlightRecording)
+ * </pre>
+ * 不设置时保持原来的行为 (每次变更重写 account_data.dat)。
+ */
+public class LedgerConfig {
+    public static final String STORAGE_SERIALIZED = "serialized";
+    public static final String STORAGE_JOURNAL = "journal";
+    public static final String STORAGE_BINARY = "binary";
+    public static final String STORAGE_PARTITIONED = "partitioned";
+    public static final String MEMORY_OBJECTS = "objects";
+    public static final String MEMORY_COLUMNAR = "columnar";
+
+    private Path dataFile = Paths.get("account_data.dat");
+    private String storage = STORAGE_SERIALIZED;
+    private int journalCompactThreshold = 10_000;
+    private boolean lazy = false;
+    private int lazyPageSize = 1024;
+    private int lazyCachePages = 64;
+    private PartitionedLedgerStore.Granularity partitionGranularity = PartitionedLedgerStore.Granularity.MONTH;
+    private int partitionCacheSegments = 24;
+    private String memory = MEMORY_OBJECTS;
+    private boolean concurrent = false;
+    private int queryCacheEntries = 64;
+    private boolean metricsJmx = false;
+    private long metricsDumpSeconds = 0;
+    private boolean async = false;
+    private long asyncWindowMillis = 50;
+    private AsyncLedgerStore.FsyncPolicy fsyncPolicy = AsyncLedgerStore.FsyncPolicy.INTERVAL;
+    private long fsyncIntervalMillis = 1000;
+
+    public static LedgerConfig fromSystemProperties() {
+        LedgerConfig config = new LedgerConfig();
+        config.dataFile = Paths.get(System.getProperty("accounting.dataFile", config.dataFile.toString()));
+        config.storage = System.getProperty("accounting.storage", config.storage);
+        config.journalCompactThreshold = Integer.getInteger("accounting.journal.compactThreshold", config.journalCompactThreshold);
+        config.lazy = Boolean.parseBoolean(System.getProperty("accounting.lazy", String.valueOf(config.lazy)));
+        config.lazyPageSize = Integer.getInteger("accounting.lazy.pageSize", config.lazyPageSize);
+        config.lazyCachePages = Integer.getInteger("accounting.lazy.cachePages", config.lazyCachePages);
+        config.partitionGranularity = PartitionedLedgerStore.Granularity.valueOf(
+                System.getProperty("accounting.partition", config.partitionGranularity.name()).toUpperCase(Locale.ROOT));
+        config.partitionCacheSegments = Integer.getInteger("accounting.partition.cacheSegments", config.partitionCacheSegments);
+        config.memory = System.getProperty("accounting.memory", config.memory);
+        config.concurrent = Boolean.parseBoolean(System.getProperty("accounting.concurrent", String.valueOf(config.concurrent)));
+        config.queryCacheEntries = Integer.getInteger("accounting.queryCache.entries", config.queryCacheEntries);
+        config.metricsJmx = Boolean.parseBoolean(System.getProperty("accounting.metrics.jmx", String.valueOf(config.metricsJmx)));
+        config.metricsDumpSeconds = Long.getLong("accounting.metrics.dumpSeconds", config.metricsDumpSeconds);
+        config.async = Boolean.parseBoolean(System.getProperty("accounting.async", String.valueOf(config.async)));
+        config.asyncWindowMillis = Long.getLong("accounting.async.windowMillis", config.asyncWindowMillis);
+        config.fsyncPolicy = AsyncLedgerStore.FsyncPolicy.valueOf(
+                System.getProperty("accounting.fsync", config.fsyncPolicy.name()).toUpperCase(Locale.ROOT));
+        config.fsyncIntervalMillis = Long.getLong("accounting.fsync.intervalMillis", config.fsyncIntervalMillis);
+        return config;
+    }
+
+    // 根据配置创建对应的存储实现，开启 async 时外面再包一层后台组提交
+    public LedgerStore createStore() {
+        LedgerStore store = createBaseStore();
+        return async ? new AsyncLedgerStore(store, asyncWindowMillis, fsyncPolicy, fsyncIntervalMillis) : store;
+    }
+
+    private LedgerStore createBaseStore() {
+        if (lazy && !STORAGE_BINARY.equals(storage)) {
+            throw new IllegalArgumentException("懒加载只支持 binary 存储");
+        }
+        if (lazy && isColumnar()) {
+            throw new IllegalArgumentException("懒加载和列式内存存储不能同时开启");
+        }
+        // 异步写入拿到的是整份复制的列表：复制时每一页都要解码，写完后懒加载列表也无法切换到新文件
+        if (lazy && async) {
+            throw new IllegalArgumentException("懒加载和异步写入不能同时开启");
+        }
+        if (STORAGE_PARTITIONED.equals(storage) && isColumnar()) {
+            throw new IllegalArgumentException("分段存储按需加载，不能和列式内存存储同时开启");
+        }
+        if (STORAGE_JOURNAL.equals(storage)) {
+            return new JournalLedgerStore(dataFile, journalFile(), journalCompactThreshold);
+        }
+        if (STORAGE_BINARY.equals(storage)) {
+            return lazy
+                    ? new BinaryLedgerStore(binaryFile(), dataFile, lazyPageSize, lazyCachePages)
+                    : new BinaryLedgerStore(binaryFile(), dataFile);
+        }
+        if (STORAGE_PARTITIONED.equals(storage)) {
+            // 第一次启动时从已有的二进制账本 (或旧的 account_data.dat) 拆分
+            return new PartitionedLedgerStore(segmentDirectory(), partitionGranularity, binaryFile(), dataFile, partitionCacheSegments);
+        }
+        if (STORAGE_SERIALIZED.equals(storage)) {
+            return new SerializedLedgerStore(dataFile.toFile());
+        }
+        throw new IllegalArgumentException("未知的存储方式: " + storage);
+    }
+
+    public Path journalFile() {
+        return siblingWithExtension(".journal");
+    }
+
+    // 二进制账本与 account_data.dat 放在同一目录: account_data.ledger
+    public Path binaryFile() {
+        return siblingWithExtension(".ledger");
+    }
+
+    // 分段存储的目录: account_data.segments
+    public Path segmentDirectory() {
+        return siblingWithExtension(".segments");
+    }
+
+    private Path siblingWithExtension(String extension) {
+        String name = dataFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dataFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + extension);
+    }
+
+    public Path getDataFile() { return dataFile; }
+    public LedgerConfig setDataFile(Path dataFile) { this.dataFile = dataFile; return this; }
+
+    public String getStorage() { return storage; }
+    public LedgerConfig setStorage(String storage) { this.storage = storage; return this; }
+
+    public int getJournalCompactThreshold() { return journalCompactThreshold; }
+    public LedgerConfig setJournalCompactThreshold(int threshold) { this.journalCompactThreshold = threshold; return this; }
+
+    public boolean isLazy() { return lazy; }
+    public LedgerConfig setLazy(boolean lazy) { this.lazy = lazy; return this; }
+
+    public int getLazyPageSize() { return lazyPageSize; }
+    public LedgerConfig setLazyPageSize(int pageSize) { this.lazyPageSize = pageSize; return this; }
+
+    public int getLazyCachePages() { return lazyCachePages; }
+    public LedgerConfig setLazyCachePages(int cachePages) { this.lazyCachePages = cachePages; return this; }
+
+    public PartitionedLedgerStore.Granularity getPartitionGranularity() { return partitionGranularity; }
+    public LedgerConfig setPartitionGranularity(PartitionedLedgerStore.Granularity granularity) { this.partitionGranularity = granularity; return this; }
+
+    public int getPartitionCacheSegments() { return partitionCacheSegments; }
+    public LedgerConfig setPartitionCacheSegments(int cacheSegments) { this.partitionCacheSegments = cacheSegments; return this; }
+
+    public boolean isAsync() { return async; }
+    public LedgerConfig setAsync(boolean async) { this.async = async; return this; }
+
+    public long getAsyncWindowMillis() { return asyncWindowMillis; }
+    public LedgerConfig setAsyncWindowMillis(long windowMillis) { this.asyncWindowMillis = windowMillis; return this; }
+
+    public AsyncLedgerStore.FsyncPolicy getFsyncPolicy() { return fsyncPolicy; }
+    public LedgerConfig setFsyncPolicy(AsyncLedgerStore.FsyncPolicy policy) { this.fsyncPolicy = policy; return this; }
+
+    public long getFsyncIntervalMillis() { return fsyncIntervalMillis; }
+    public LedgerConfig setFsyncIntervalMillis(long intervalMillis) { this.fsyncIntervalMillis = intervalMillis; return this; }
+
+    public String getMemory() { return memory; }
+    public LedgerConfig setMemory(String memory) { this.memory = memory; return this; }
+
+    public boolean isColumnar() { return MEMORY_COLUMNAR.equals(memory); }
+
+    public boolean isConcurrent() { return concurrent; }
+    public LedgerConfig setConcurrent(boolean concurrent) { this.concurrent = concurrent; return this; }
+
+    public int getQueryCacheEntries() { return queryCacheEntries; }
+    public LedgerConfig setQueryCacheEntries(int entries) { this.queryCacheEntries = entries; return this; }
+
+    public boolean isMetricsJmx() { return metricsJmx; }
+    public LedgerConfig setMetricsJmx(boolean metricsJmx) { this.metricsJmx = metricsJmx; return this; }
+
+    public long getMetricsDumpSeconds() { return metricsDumpSeconds; }
+    public LedgerConfig setMetricsDumpSeconds(long seconds) { this.metricsDumpSeconds = seconds; return this; }
+}
@@ -0,0 +1,139 @@
+package com.joe.accounting;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 自定义的 JDK Flight Recorder 事件：加载、保存、查询、增删改、统计和界面操作各一种，
+ * 在 JMC 里和 GC、文件读写、线程阻塞放在同一条时间线上看，可以判断"卡了两秒"是哪一步。
+ * 执行线程由 JFR 自动记录。
+ *
+ * 没有在录制 (或事件被关闭) 时 begin/commit 几乎没有开销；拼字符串的字段只在 isEnabled() 时才填。
+ * 高频的查询/修改/统计事件默认只记录超过 1ms 的，可以在录制设置里改 threshold。
+ */
+final class LedgerEvents {
+    private static final String CATEGORY = "Bookkeeping";
+
+    private LedgerEvents() {
+    }
+
+    @Name("com.joe.accounting.Load")
+    @Label("加载账本")
+    @Category({CATEGORY, "Persistence"})
+    @Description("启动时从存储层读取全部记录 (loadRecords)")
+    static final class Load extends Event {
+        @Label("存储") String storage;
+        @Label("记录条数") int records;
+    }
+
+    @Name("com.joe.accounting.Save")
+    @Label("保存账本")
+    @Category({CATEGORY, "Persistence"})
+    @Description("一次 saveRecords：把一批变更提交给存储层 (可能是追加日志，也可能是重写整个文件)")
+    static final class Save extends Event {
+        @Label("存储") String storage;
+        @Label("变更条数") int ops;
+        @Label("记录条数") int records;
+        @Label("写出字节") @DataAmount long bytes;
+        @Label("异步写入") boolean async;
+        @Label("失败") boolean failed;
+    }
+
+    @Name("com.joe.accounting.Query")
+    @Label("查询")
+    @Category({CATEGORY, "Query"})
+    @Description("筛选、排序视图、全文检索或逐条扫描")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Query extends Event {
+        @Label("操作") String operation;
+        @Label("条件") String predicate;
+        @Label("排序") String sort;
+        @Label("记录条数") int records;
+        @Label("结果条数") int results;
+        @Label("逐条扫描") boolean fullScan;
+
+        // 记下结果条数，原样返回结果 (return event.finish(result))
+        <L extends List<?>> L finish(L result) {
+            results = result.size();
+            return result;
+        }
+    }
+
+    @Name("com.joe.accounting.Mutation")
+    @Label("修改账本")
+    @Category({CATEGORY, "Mutation"})
+    @Description("添加、修改或删除记录，包括索引维护和保存")
+    @Threshold("1 ms")
+    static final class Mutation extends Event {
+        @Label("操作") String operation;
+        @Label("条数") int rows;
+    }
+
+    @Name("com.joe.accounting.Aggregate")
+    @Label("统计")
+    @Category({CATEGORY, "Query"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Aggregate extends Event {
+        @Label("操作") String operation;
+        @Label("类型") String type;
+    }
+
+    @Name("com.joe.accounting.UiAction")
+    @Label("界面操作")
+    @Category({CATEGORY, "UI"})
+    @Description("按钮/菜单的事件处理过程 (在 JavaFX 界面线程上)")
+    static final class UiAction extends Event {
+        @Label("操作") String action;
+    }
+
+    static Query query(String operation, LocalDate start, LocalDate end, Collection<String> types,
+                       Collection<String> categories, int records) {
+        Query event = new Query();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.predicate = predicate(start, end, types, categories);
+            event.records = records;
+        }
+        event.begin();
+        return event;
+    }
+
+    static Mutation mutation(String operation, int rows) {
+        Mutation event = new Mutation();
+        event.operation = operation;
+        event.rows = rows;
+        event.begin();
+        return event;
+    }
+
+    static Aggregate aggregate(String operation, String type) {
+        Aggregate event = new Aggregate();
+        event.operation = operation;
+        event.type = type;
+        event.begin();
+        return event;
+    }
+
+    // 条件的形状，例如 "date[2025-01-01,2025-03-31] type=支出 category=餐饮|交通"，不限制时为 "all"
+    static String predicate(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+        StringBuilder sb = new StringBuilder();
+        if (start != null || end != null) {
+            sb.append("date[").append(start == null ? "" : start).append(',').append(end == null ? "" : end).append(']');
+        }
+        if (types != null) sb.append(sb.length() > 0 ? " " : "").append("type=").append(String.join("|", types));
+        if (categories != null) sb.append(sb.length() > 0 ? " " : "").append("category=").append(String.join("|", categories));
+        return sb.length() == 0 ? "all" : sb.toString();
+    }
+}
@@ -0,0 +1,395 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * 导出查询结果 (一般是 AccountService.queryView 返回的视图)，支持 CSV 和紧凑的二进制格式。
+ *
+ * 逐行格式化后直接写进 1MB 的 ByteBuffer，满了再整块写到 FileChannel；日期和金额手工转成 ASCII 数字，
+ * 类型/分类这种重复的字符串只编码一次。先写到 .tmp 文件，完成后原子替换目标文件，取消或出错时删除临时文件。
+ *
+ * <pre>
+ * CSV: 与原来的导出一致 (表头 日期,类型,分类,金额,备注；默认 GBK；空值写 null；金额两位小数)
+ * 二进制 (UTF-8 字符串):
+ *   int magic 'BKEX' | short 版本 | short 保留 | long 行数
+ *   每行: int epochDay (无日期为 Integer.MIN_VALUE) | long 金额 (分)
+ *         short 类型 | short 分类 (字典引用: -1 为 null，等于当前字典大小表示新条目，后面紧跟 [int 字节数][UTF-8])
+ *         [int 字节数][UTF-8] 备注 (null 为 -1)
+ *         byte id 种类 (0 无 / 1 数字 id 跟 long / 2 其它 id 跟 [int 字节数][UTF-8])
+ * </pre>
+ */
+public class LedgerExporter {
+    public static final String CSV_HEADER = "日期,类型,分类,金额,备注";
+    static final int BINARY_MAGIC = 0x424B4558; // "BKEX"
+    static final short BINARY_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int PROGRESS_ROWS = 16 * 1024;
+    private static final int MAX_DICTIONARY = Short.MAX_VALUE;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte ID_NONE = 0;
+    private static final byte ID_NUMERIC = 1;
+    private static final byte ID_TEXT = 2;
+
+    public enum Format { CSV, BINARY }
+
+    // 进度回调：每写完一批行调用一次，最后一次 written == total
+    @FunctionalInterface
+    public interface Listener {
+        void progress(long written, long total);
+    }
+
+    /**
+     * 后台导出任务：get() 返回导出的行数，cancel(true) 会中断写入并删除临时文件。
+     */
+    public static final class Task extends FutureTask<Long> {
+        Task(LedgerExporter exporter, Supplier<? extends List<Record>> rows, Path file, Listener listener) {
+            super(() -> exporter.export(rows.get(), file, listener));
+        }
+    }
+
+    private final Format format;
+    private final Charset charset;
+
+    public LedgerExporter(Format format) {
+        this(format, CsvImporter.GBK);
+    }
+
+    // charset 只对 CSV 有效，二进制格式固定 UTF-8
+    public LedgerExporter(Format format, Charset charset) {
+        this.format = format;
+        this.charset = charset;
+    }
+
+    // 在新的后台线程上导出
+    public Task start(List<Record> rows, Path file, Listener listener) {
+        return start(() -> rows, file, listener);
+    }
+
+    // 同上，rows 在后台线程上才取 (查询本身也不占用调用线程)
+    public Task start(Supplier<? extends List<Record>> rows, Path file, Listener listener) {
+        Task task = new Task(this, rows, file, listener);
+        Thread worker = new Thread(task, "ledger-export");
+        worker.setDaemon(true);
+        worker.start();
+        return task;
+    }
+
+    /**
+     * 在当前线程导出，返回行数。线程被中断时抛出 InterruptedIOException，目标文件保持不变。
+     */
+    public long export(List<Record> rows, Path file, Listener listener) throws IOException {
+        Path tmp = AtomicFiles.tempFile(file);
+        long total = rows.size();
+        long written;
+        boolean done = false;
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Output out = new Output(ch, format == Format.CSV ? charset : StandardCharsets.UTF_8);
+                written = format == Format.CSV ? writeCsv(rows, out, listener) : writeBinary(rows, out, listener);
+                out.drain();
+                if (format == Format.BINARY) {
+                    ch.write(ByteBuffer.allocate(8).putLong(0, written), 8); // 回填行数
+                }
+                ch.force(true);
+            }
+            AtomicFiles.replace(tmp, file);
+            done = true;
+        } finally {
+            if (!done) Files.deleteIfExists(tmp);
+        }
+        if (listener != null) listener.progress(written, total);
+        return written;
+    }
+
+    private long writeCsv(List<Record> rows, Output out, Listener listener) throws IOException {
+        out.text(CSV_HEADER);
+        out.newline();
+        int total = rows.size();
+        for (int i = 0; i < total; i++) {
+            Record r = rows.get(i);
+            LocalDate date = r.getDate();
+            if (date == null || date.getYear() < 0 || date.getYear() > 9999) {
+                out.text(String.valueOf(date));
+            } else {
+                out.digits(date.getYear(), 4);
+                out.put('-');
+                out.digits(date.getMonthValue(), 2);
+                out.put('-');
+                out.digits(date.getDayOfMonth(), 2);
+            }
+            out.put(',');
+            out.csvField(r.getType());
+            out.put(',');
+            out.csvField(r.getCategory());
+            out.put(',');
+            out.cents(Money.toCents(r.getAmount()));
+            out.put(',');
+            out.csvNote(r.getNote());
+            out.newline();
+            progress(i + 1, total, listener);
+        }
+        return total;
+    }
+
+    private long writeBinary(List<Record> rows, Output out, Listener listener) throws IOException {
+        out.ensure(16);
+        out.buf.putInt(BINARY_MAGIC).putShort(BINARY_VERSION).putShort((short) 0).putLong(0);
+        Map<String, Short> dictionary = new HashMap<>();
+        int total = rows.size();
+        for (int i = 0; i < total; i++) {
+            Record r = rows.get(i);
+            out.ensure(12);
+            out.buf.putInt(r.getDate() == null ? NO_DATE : (int) r.getDate().toEpochDay());
+            out.buf.putLong(Money.toCents(r.getAmount()));
+            out.dictionaryRef(dictionary, r.getType());
+            out.dictionaryRef(dictionary, r.getCategory());
+            out.utf8(r.getNote());
+            String id = r.getId();
+            out.ensure(9);
+            if (id == null) {
+                out.buf.put(ID_NONE);
+            } else if (r.getKey() != 0) {
+                out.buf.put(ID_NUMERIC).putLong(r.getKey());
+            } else {
+                out.buf.put(ID_TEXT);
+                out.utf8(id);
+            }
+            progress(i + 1, total, listener);
+        }
+        return total;
+    }
+
+    // 每 PROGRESS_ROWS 行报告一次进度并检查是否被取消
+    private static void progress(int written, int total, Listener listener) throws IOException {
+        if (written % PROGRESS_ROWS != 0) return;
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("导出已取消");
+        if (listener != null && written < total) listener.progress(written, total);
+    }
+
+    /**
+     * 读取二进制导出文件 (再次导入或校验用)，金额精度为分。
+     */
+    public static List<Record> readBinary(Path file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("导出文件超过 2GB: " + file);
+            in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (in.limit() < 16 || in.getInt() != BINARY_MAGIC) throw new IOException("不是有效的导出文件");
+        short version = in.getShort();
+        if (version != BINARY_VERSION) throw new IOException("不支持的导出文件版本: " + version);
+        in.getShort();
+        long count = in.getLong();
+        List<String> dictionary = new ArrayList<>();
+        List<Record> records = new ArrayList<>((int) Math.min(count, 1 << 20));
+        for (long i = 0; i < count; i++) {
+            int day = in.getInt();
+            long cents = in.getLong();
+            String type = readRef(in, dictionary);
+            String category = readRef(in, dictionary);
+            String note = readUtf8(in);
+            byte idKind = in.get();
+            String id = idKind == ID_NUMERIC ? Long.toString(in.getLong()) : idKind == ID_TEXT ? readUtf8(in) : null;
+            LocalDate date = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+            records.add(new Record(id, type, Money.toAmount(cents), category, date, note));
+        }
+        return records;
+    }
+
+    private static String readRef(ByteBuffer in, List<String> dictionary) {
+        short ref = in.getShort();
+        if (ref == -1) return null;
+        if (ref < dictionary.size()) return dictionary.get(ref);
+        String value = readUtf8(in);
+        // 字典已满后新字符串都写成 MAX_DICTIONARY，只内联不登记
+        if (ref == dictionary.size() && ref < MAX_DICTIONARY) dictionary.add(value);
+        return value;
+    }
+
+    private static String readUtf8(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 带缓冲的输出：缓冲区满了整块写到 channel
+    private static final class Output {
+        private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final FileChannel ch;
+        private final Charset charset;
+        private final CharsetEncoder encoder;
+        private final byte[] newline;
+        private final Map<String, byte[]> encoded = new HashMap<>(); // 类型/分类等重复字符串的编码结果
+        private final byte[] scratch = new byte[20];
+
+        Output(FileChannel ch, Charset charset) {
+            this.ch = ch;
+            this.charset = charset;
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.newline = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) drain();
+        }
+
+        void drain() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        void put(char ascii) throws IOException {
+            ensure(1);
+            buf.put((byte) ascii);
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            if (bytes.length > buf.capacity()) {
+                drain();
+                ch.write(ByteBuffer.wrap(bytes));
+                return;
+            }
+            ensure(bytes.length);
+            buf.put(bytes);
+        }
+
+        void newline() throws IOException {
+            bytes(newline);
+        }
+
+        // 非负整数，左侧补 0 到 width 位
+        void digits(long value, int width) throws IOException {
+            int pos = scratch.length;
+            do {
+                scratch[--pos] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0 || scratch.length - pos < width);
+            ensure(scratch.length - pos);
+            buf.put(scratch, pos, scratch.length - pos);
+        }
+
+        // 分 -> "12.50"
+        void cents(long cents) throws IOException {
+            if (cents < 0) {
+                put('-');
+                cents = -cents;
+            }
+            digits(cents / 100, 1);
+            put('.');
+            digits(cents % 100, 2);
+        }
+
+        // 类型/分类：含逗号或引号时加引号，导入时能原样还原
+        void csvField(String value) throws IOException {
+            if (value == null) {
+                bytes(NULL);
+            } else if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                quoted(value);
+            } else {
+                cached(value);
+            }
+        }
+
+        // 备注在最后一列，导入时逗号不会切分；换行会打乱行，替换成空格
+        void csvNote(String note) throws IOException {
+            if (note == null) {
+                bytes(NULL);
+                return;
+            }
+            if (note.indexOf('\n') >= 0 || note.indexOf('\r') >= 0) {
+                note = note.replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+            }
+            if (note.startsWith("\"")) {
+                quoted(note);
+            } else {
+                text(note);
+            }
+        }
+
+        private void quoted(String value) throws IOException {
+            put('"');
+            text(value.replace("\"", "\"\""));
+            put('"');
+        }
+
+        private void cached(String value) throws IOException {
+            byte[] bytes = encoded.get(value);
+            if (bytes == null) {
+                bytes = value.getBytes(charset);
+                if (encoded.size() < MAX_DICTIONARY) encoded.put(value, bytes);
+            }
+            bytes(bytes);
+        }
+
+        // 直接编码进缓冲区，放不下就先写出再继续
+        void text(String value) throws IOException {
+            CharBuffer in = CharBuffer.wrap(value);
+            encoder.reset();
+            CoderResult result;
+            while ((result = encoder.encode(in, buf, true)).isOverflow()) drain();
+            if (result.isError()) result.throwException();
+            while (encoder.flush(buf).isOverflow()) drain();
+        }
+
+        // 二进制格式的字符串: [int 字节数][UTF-8]，null 为 -1
+        void utf8(String value) throws IOException {
+            ensure(4);
+            if (value == null) {
+                buf.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buf.putInt(bytes.length);
+            bytes(bytes);
+        }
+
+        void dictionaryRef(Map<String, Short> dictionary, String value) throws IOException {
+            ensure(2);
+            if (value == null) {
+                buf.putShort((short) -1);
+                return;
+            }
+            Short ref = dictionary.get(value);
+            if (ref != null) {
+                buf.putShort(ref);
+                return;
+            }
+            int size = dictionary.size();
+            if (size < MAX_DICTIONARY) {
+                dictionary.put(value, (short) size);
+                buf.putShort((short) size);
+            } else {
+                buf.putShort((short) MAX_DICTIONARY);
+            }
+            utf8(value);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 测试 / 压测用的账本数据生成器：种子相同、参数相同时生成的数据完全一样。
+ * 分类沿用界面里的 支出/收入 分类，各分类的比例随月份变化 (春节、618、双十一、暑假出行、年终奖等)，
+ * 金额按分类取对数正态分布 (大多数是小额，少量大额)，日期在 years 年内按时间顺序分布，大部分记录带中文备注。
+ *
+ * writeBinary 直接按二进制账本格式逐行写出，不生成 Record 对象，每秒可以写出几百万行。
+ * 同一个实例不能多线程共用，需要多个线程各自建一个 (种子不同)。
+ * 用法: java -cp ... com.joe.accounting.LedgerGenerator [行数] [account_data.ledger] [种子] [年数]
+ * (从 2020-01-01 开始，默认 100 万行、种子 42、5 年)
+ */
+public class LedgerGenerator {
+    static final String[] EXPENSE_CATEGORIES = {"餐饮", "交通", "购物", "娱乐", "医疗", "其他"};
+    static final String[] INCOME_CATEGORIES = {"工资", "奖金", "理财", "兼职", "其他"};
+
+    // 每个分类在 1~12 月的相对权重
+    private static final int[][] EXPENSE_WEIGHTS = {
+            {40, 45, 38, 38, 38, 38, 40, 40, 38, 40, 38, 42}, // 餐饮
+            {15, 24, 14, 14, 17, 14, 20, 20, 14, 24, 14, 15}, // 交通：春节、五一、暑假、国庆出行
+            {20, 26, 12, 12, 14, 22, 12, 12, 12, 12, 36, 20}, // 购物：年货、618、双十一
+            {10, 16, 8, 8, 10, 10, 15, 15, 8, 14, 8, 12},     // 娱乐
+            {7, 6, 6, 5, 5, 5, 5, 5, 5, 5, 6, 8},             // 医疗：冬季略多
+            {6, 10, 6, 6, 6, 6, 6, 6, 6, 6, 6, 6},            // 其他：春节红包
+    };
+    private static final int[][] INCOME_WEIGHTS = {
+            {60, 60, 60, 60, 60, 60, 60, 60, 60, 60, 60, 60}, // 工资
+            {40, 8, 2, 2, 2, 10, 2, 2, 2, 2, 2, 30},          // 奖金：年终奖、半年奖
+            {10, 10, 12, 10, 10, 12, 10, 10, 12, 10, 10, 12}, // 理财：季末结息
+            {12, 8, 12, 12, 12, 12, 16, 16, 12, 12, 12, 12},  // 兼职
+            {4, 12, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4},            // 其他
+    };
+
+    // 金额的中位数和对数标准差 (元)
+    private static final double[][] EXPENSE_AMOUNTS = {{35, 0.6}, {15, 0.9}, {120, 1.0}, {80, 0.8}, {150, 1.1}, {50, 1.0}};
+    private static final double[][] INCOME_AMOUNTS = {{9000, 0.35}, {6000, 0.8}, {300, 1.2}, {800, 0.7}, {200, 1.0}};
+
+    private static final String[][] EXPENSE_NOTES = {
+            {"早餐", "午饭", "晚饭", "外卖", "和同事聚餐", "咖啡", "奶茶", "水果", "夜宵", "食堂"},
+            {"地铁", "公交", "打车", "加油", "停车费", "高铁票", "机票", "共享单车"},
+            {"超市", "日用品", "衣服", "鞋子", "数码产品", "网购", "年货", "买书"},
+            {"电影", "KTV", "游戏充值", "演唱会门票", "健身房", "旅游"},
+            {"挂号费", "买药", "体检", "牙科"},
+            {"红包", "快递费", "理发", "话费", "捐款"},
+    };
+    private static final String[][] INCOME_NOTES = {
+            {"月工资", "本月工资"},
+            {"年终奖", "季度奖金", "项目奖金"},
+            {"基金收益", "利息", "股票分红"},
+            {"兼职收入", "稿费", "家教"},
+            {"红包", "退款", "二手转卖"},
+    };
+
+    static final LocalDate DEFAULT_START = LocalDate.of(2020, 1, 1);
+    private static final int INCOME_PERCENT = 12;
+    private static final int NOTE_PERCENT = 70;
+
+    private final SplittableRandom random;
+    private final long startDay;
+    private final int spanDays;
+    private final int[][] expenseCumulative = cumulative(EXPENSE_WEIGHTS);
+    private final int[][] incomeCumulative = cumulative(INCOME_WEIGHTS);
+
+    // 最近一次 nextRow 生成的一行 (避免每行分配对象)
+    private String type;
+    private String category;
+    private double amount;
+    private String note;
+
+    public LedgerGenerator(long seed, LocalDate start, int years) {
+        this.random = new SplittableRandom(seed);
+        this.startDay = start.toEpochDay();
+        this.spanDays = (int) (start.plusYears(years).toEpochDay() - startDay);
+    }
+
+    // count 条记录，按时间顺序分布在整个区间内
+    public List<Record> generate(int count) {
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(next(LocalDate.ofEpochDay(dayOf(i, count))));
+        }
+        return records;
+    }
+
+    // 指定日期的一条记录 (id 由 Record 照常生成，可以直接加到正在使用的账本里)
+    public Record next(LocalDate date) {
+        nextRow(date.getMonthValue() - 1);
+        return new Record(type, amount, category, date, note);
+    }
+
+    /**
+     * 直接写出 count 行的二进制账本 (覆盖 file)，返回写出的行数。
+     * id 依次为 1..count，文件内容只取决于种子和参数；运行时新生成的 id 远大于这些值，不会冲突。
+     */
+    public int writeBinary(Path file, int count) throws IOException {
+        try (BinaryLedgerFile.Writer writer = new BinaryLedgerFile.Writer(file)) {
+            for (int i = 0; i < count; i++) {
+                long day = dayOf(i, count);
+                nextRow(LocalDate.ofEpochDay(day).getMonthValue() - 1);
+                writer.append((int) day, amount, type, category, note, i + 1L);
+            }
+            writer.commit();
+            return writer.rows();
+        }
+    }
+
+    // 第 i 行的日期：按顺序均匀推进，再加 0~2 天的抖动 (补记的账)
+    private long dayOf(int i, int count) {
+        long day = startDay + (long) i * spanDays / count - random.nextInt(3);
+        return Math.max(startDay, day);
+    }
+
+    private void nextRow(int month) {
+        boolean income = random.nextInt(100) < INCOME_PERCENT;
+        int c = pick(income ? incomeCumulative[month] : expenseCumulative[month]);
+        double[] dist = income ? INCOME_AMOUNTS[c] : EXPENSE_AMOUNTS[c];
+        double yuan = Math.min(dist[0] * Math.exp(dist[1] * random.nextGaussian()), dist[0] * 100);
+        String[] notes = income ? INCOME_NOTES[c] : EXPENSE_NOTES[c];
+
+        type = income ? "收入" : "支出";
+        category = income ? INCOME_CATEGORIES[c] : EXPENSE_CATEGORIES[c];
+        amount = Math.max(1, Math.round(yuan * 100)) / 100.0;
+        note = random.nextInt(100) < NOTE_PERCENT ? notes[random.nextInt(notes.length)] : null;
+    }
+
+    private int pick(int[] cumulative) {
+        int r = random.nextInt(cumulative[cumulative.length - 1]);
+        int i = 0;
+        while (cumulative[i] <= r) i++;
+        return i;
+    }
+
+    // weights[分类][月] -> cumulative[月][分类] (前缀和，用于按权重抽取)
+    private static int[][] cumulative(int[][] weights) {
+        int[][] result = new int[12][weights.length];
+        for (int m = 0; m < 12; m++) {
+            int sum = 0;
+            for (int c = 0; c < weights.length; c++) {
+                sum += weights[c][m];
+                result[m][c] = sum;
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path file = Paths.get(args.length > 1 ? args[1] : "account_data.ledger");
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        int years = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        long start = System.nanoTime();
+        int written = new LedgerGenerator(seed, DEFAULT_START, years).writeBinary(file, rows);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("生成完成: %d 条记录 -> %s (%.2f 秒, %.0f 行/秒)%n",
+                written, file.toAbsolutePath(), seconds, written / seconds);
+    }
+}
@@ -0,0 +1,283 @@
+package com.joe.accounting;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+
+/**
+ * 无界面的本地 HTTP 服务，返回 JSON，只监听 127.0.0.1。
+ * <pre>
+ *   GET    /api/records?start=2025-01-01&end=2025-01-31&type=支出&category=餐饮&category=交通&offset=0&limit=1000
+ *                                按插入顺序分页，limit 默认 1000、最大 10000
+ *   GET    /api/records/{id}
+ *   POST   /api/records          表单参数: type, amount, category, date, note
+ *   PUT    /api/records/{id}     同上，保留原 id
+ *   DELETE /api/records/{id}
+ *   GET    /api/totals?type=收入&type=支出
+ *   GET    /api/stats/monthly?type=支出
+ *   GET    /api/search?q=餐&mode=prefix|substring|fuzzy&limit=50   在分类和备注中全文检索，按相关度排序
+ *   GET    /api/metrics          各接口的请求次数和延迟、筛选结果缓存的命中统计，以及账本各操作的指标 (ledger)
+ * </pre>
+ * 启动: java -cp ... com.joe.accounting.Launcher --server
+ * (-Daccounting.server.port=8080, -Daccounting.server.executor=auto|virtual|pool,
+ *  -Daccounting.server.threads, -Daccounting.server.queue)
+ */
+public class LedgerHttpServer {
+    private final AccountService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    // GET /api/records 每页的默认条数和上限
+    private static final int DEFAULT_PAGE = 1000;
+    private static final int MAX_PAGE = 10_000;
+
+    // 参数错误，返回 400 / 404
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public LedgerHttpServer(AccountService service, int port, ExecutorService executor) throws IOException {
+        this.service = service;
+        this.executor = executor;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/api/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        LedgerConfig config = LedgerConfig.fromSystemProperties().setConcurrent(true);
+        AccountService service = new AccountService(config);
+        ExecutorService executor = RequestExecutors.create(
+                System.getProperty("accounting.server.executor", RequestExecutors.AUTO),
+                Integer.getInteger("accounting.server.threads", Runtime.getRuntime().availableProcessors() * 2),
+                Integer.getInteger("accounting.server.queue", 1000));
+        LedgerHttpServer server = new LedgerHttpServer(service, Integer.getInteger("accounting.server.port", 8080), executor);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                service.close();
+            } catch (IOException e) {
+                // 关闭失败意味着可能有修改没写进去
+                AccountService.LOG.log(Level.SEVERE, "关闭账本失败，最后的修改可能没有保存", e);
+            }
+        }));
+        server.start();
+        System.out.println("账本服务已启动: http://127.0.0.1:" + server.getPort() + "/api/records ("
+                + (RequestExecutors.isVirtual(executor) ? "虚拟线程" : "线程池") + ")");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String id = path.startsWith("/api/records/") ? path.substring("/api/records/".length()) : null;
+        String route = method + " " + (id != null ? "/api/records/{id}" : path);
+        int status;
+        Object body;
+        try {
+            Map<String, List<String>> params = params(exchange);
+            body = dispatch(method, path, id, params);
+            status = body == null ? 404 : "POST".equals(method) ? 201 : 200;
+            if (body == null) body = Map.of("error", "not found");
+        } catch (HttpError e) {
+            status = e.status;
+            body = Map.of("error", e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            status = 400;
+            body = Map.of("error", String.valueOf(e.getMessage()));
+        } catch (RuntimeException e) {
+            status = 500;
+            body = Map.of("error", String.valueOf(e.getMessage()));
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        // 在写回之前记录：统计的是服务端处理耗时，也保证客户端收到响应时指标已经更新
+        metrics.record(route, System.nanoTime() - start, status >= 500);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // 返回 null 表示资源不存在 (404)
+    private Object dispatch(String method, String path, String id, Map<String, List<String>> params) {
+        if (id != null) {
+            if (id.isEmpty()) throw new HttpError(404, "缺少 id");
+            switch (method) {
+                case "GET":
+                    return service.getById(id);
+                case "PUT":
+                    return service.updateById(id, recordFrom(params)) ? service.getById(id) : null;
+                case "DELETE":
+                    return service.deleteById(id) ? Map.of("deleted", id) : null;
+                default:
+                    throw new HttpError(405, "不支持的方法: " + method);
+            }
+        }
+        switch (method + " " + path) {
+            case "GET /api/records": {
+                int offset = intParam(params, "offset", 0, Integer.MAX_VALUE);
+                int limit = intParam(params, "limit", DEFAULT_PAGE, MAX_PAGE);
+                // 在行号视图上分页，只有这一页的记录才生成 Record
+                List<Record> matched = service.queryView(date(params, "start"), date(params, "end"),
+                        values(params, "type"), values(params, "category"));
+                int from = Math.min(offset, matched.size());
+                return new ArrayList<>(matched.subList(from, (int) Math.min((long) from + limit, matched.size())));
+            }
+            case "POST /api/records": {
+                Record record = recordFrom(params);
+                service.addRecord(record);
+                return record;
+            }
+            case "GET /api/totals": {
+                Collection<String> types = values(params, "type");
+                Map<String, Object> totals = new LinkedHashMap<>();
+                for (String type : types == null ? List.of("收入", "支出") : types) {
+                    totals.put(type, service.calculateTotal(type));
+                }
+                return totals;
+            }
+            case "GET /api/search": {
+                String mode = first(params, "mode");
+                String limit = first(params, "limit");
+                try {
+                    return service.searchText(required(params, "q"),
+                            mode == null ? AccountService.TextMatch.SUBSTRING : AccountService.TextMatch.valueOf(mode.toUpperCase(Locale.ROOT)),
+                            limit == null ? 50 : Integer.parseInt(limit));
+                } catch (IllegalArgumentException e) {
+                    throw new HttpError(400, "参数错误: " + e.getMessage());
+                }
+            }
+            case "GET /api/stats/monthly":
+                return service.getMonthlyStats(required(params, "type"));
+            case "GET /api/metrics": {
+                Map<String, Object> result = new LinkedHashMap<>(metrics.summary());
+                QueryCache cache = service.getQueryCache();
+                result.put("queryCache", Map.of("hits", cache.getHits(), "misses", cache.getMisses(),
+                        "patches", cache.getPatches(), "evictions", cache.getEvictions()));
+                result.put("ledger", service.getMetrics().summary());
+                return result;
+            }
+            default:
+                throw new HttpError(404, "未知的接口: " + method + " " + path);
+        }
+    }
+
+    private static Record recordFrom(Map<String, List<String>> params) {
+        String type = required(params, "type");
+        if (!"收入".equals(type) && !"支出".equals(type)) {
+            throw new IllegalArgumentException("type 只能是 收入 或 支出");
+        }
+        double amount = Double.parseDouble(required(params, "amount"));
+        if (!Double.isFinite(amount)) {
+            throw new HttpError(400, "金额不是有效的数字: " + amount); // NaN / Infinity 会破坏合计和按分存的列
+        }
+        String category = first(params, "category");
+        return new Record(type, amount, category == null || category.isEmpty() ? "未分类" : category,
+                date(params, "date"), first(params, "note"));
+    }
+
+    private static LocalDate date(Map<String, List<String>> params, String name) {
+        String value = first(params, name);
+        return value == null || value.isEmpty() ? null : LocalDate.parse(value);
+    }
+
+    // 没给时用 defaultValue；不是 0..max 之间的整数时返回 400
+    private static int intParam(Map<String, List<String>> params, String name, int defaultValue, int max) {
+        String value = first(params, name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "参数错误: " + name + "=" + value);
+        }
+        if (n < 0 || n > max) throw new HttpError(400, name + " 应在 0 到 " + max + " 之间");
+        return n;
+    }
+
+    private static String required(Map<String, List<String>> params, String name) {
+        String value = first(params, name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("缺少参数: " + name);
+        return value;
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    // 同名参数可以出现多次 (多选筛选)；没有时返回 null 表示不限制
+    private static Collection<String> values(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        if (values == null) return null;
+        List<String> nonEmpty = new ArrayList<>();
+        for (String v : values) {
+            if (!v.isEmpty() && !"全部".equals(v)) nonEmpty.add(v);
+        }
+        return nonEmpty.isEmpty() ? null : nonEmpty;
+    }
+
+    // 查询串和表单 (application/x-www-form-urlencoded) 里的参数合在一起
+    private static Map<String, List<String>> params(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            parseQuery(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, List<String>> params) {
+        if (query == null || query.isEmpty()) return;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+    }
+}
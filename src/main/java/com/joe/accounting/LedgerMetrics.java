@@ -0,0 +1,239 @@
+package com.joe.accounting;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * AccountService 的运行指标：各类操作的次数、错误数和延迟直方图，每次保存写出的字节数，
+ * 以及记录条数、内存估算、筛选缓存命中率等读取时才计算的量。
+ *
+ * 操作统计在创建时就准备好，记录时只有 LongAdder 和原子数组的加法，不加锁、不分配对象。
+ * 可以注册成 JMX MBean (jconsole 的 com.joe.accounting 下)，也可以定时把文本摘要打印出来。
+ */
+public class LedgerMetrics {
+    public static final String DOMAIN = "com.joe.accounting";
+
+    // JMX 中单个操作的属性 (毫秒)
+    public interface OperationMXBean {
+        long getCount();
+        long getErrors();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP99Millis();
+        double getP999Millis();
+        double getMaxMillis();
+    }
+
+    // JMX 中账本整体的属性
+    public interface LedgerMXBean {
+        long getRecordCount();
+        long getHeapEstimateBytes();
+        long getJvmUsedHeapBytes();
+        long getBytesWritten();
+        long getSaveCount();
+        double getMeanBytesPerSave();
+        long getQueryCacheHits();
+        long getQueryCacheMisses();
+        double getQueryCacheHitRate();
+    }
+
+    public static final class Operation implements OperationMXBean {
+        private final String name;
+        private final LatencyHistogram nanos = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        // startNanos 为 System.nanoTime() 的起点，成功和失败都要记录
+        void record(long startNanos) {
+            nanos.record(System.nanoTime() - startNanos);
+        }
+
+        // 计一次错误，原样返回异常 (throw metrics.add.fail(e))
+        <E extends Exception> E fail(E e) {
+            errors.increment();
+            return e;
+        }
+
+        @Override public long getCount() { return nanos.count(); }
+        @Override public long getErrors() { return errors.sum(); }
+        @Override public double getMeanMillis() { return nanos.mean() / 1e6; }
+        @Override public double getP50Millis() { return nanos.percentile(0.50) / 1e6; }
+        @Override public double getP99Millis() { return nanos.percentile(0.99) / 1e6; }
+        @Override public double getP999Millis() { return nanos.percentile(0.999) / 1e6; }
+        @Override public double getMaxMillis() { return nanos.max() / 1e6; }
+    }
+
+    final Operation add = new Operation("add");
+    final Operation update = new Operation("update");
+    final Operation delete = new Operation("delete");
+    final Operation search = new Operation("search");
+    final Operation aggregate = new Operation("aggregate");
+    final Operation load = new Operation("load");
+    final Operation save = new Operation("save");
+    private final List<Operation> operations = List.of(add, update, delete, search, aggregate, load, save);
+
+    private final LatencyHistogram saveBytes = new LatencyHistogram(); // 每次保存写出的字节数
+    private final LongSupplier recordCount;
+    private final LongSupplier heapEstimate;
+    private final QueryCache queryCache;
+
+    private final List<ObjectName> registered = new ArrayList<>();
+    // 名字当前归哪个实例：被同名的新实例替换后，旧实例关闭时不能把新实例的注销掉
+    private static final Map<ObjectName, LedgerMetrics> OWNERS = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper;
+
+    LedgerMetrics(LongSupplier recordCount, LongSupplier heapEstimate, QueryCache queryCache) {
+        this.recordCount = recordCount;
+        this.heapEstimate = heapEstimate;
+        this.queryCache = queryCache;
+    }
+
+    void recordSaveBytes(long bytes) {
+        saveBytes.record(bytes);
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    private final LedgerMXBean ledger = new LedgerMXBean() {
+        @Override public long getRecordCount() { return recordCount.getAsLong(); }
+        @Override public long getHeapEstimateBytes() { return heapEstimate.getAsLong(); }
+
+        @Override
+        public long getJvmUsedHeapBytes() {
+            Runtime rt = Runtime.getRuntime();
+            return rt.totalMemory() - rt.freeMemory();
+        }
+
+        @Override public long getBytesWritten() { return saveBytes.sum(); }
+        @Override public long getSaveCount() { return saveBytes.count(); }
+        @Override public double getMeanBytesPerSave() { return saveBytes.mean(); }
+        @Override public long getQueryCacheHits() { return queryCache.getHits(); }
+        @Override public long getQueryCacheMisses() { return queryCache.getMisses(); }
+
+        @Override
+        public double getQueryCacheHitRate() {
+            long hits = queryCache.getHits();
+            long total = hits + queryCache.getMisses();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    };
+
+    public LedgerMXBean getLedger() {
+        return ledger;
+    }
+
+    // 操作名 -> {count, errors, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis}，最后是 "ledger" 的整体指标
+    public Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Operation op : operations) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", op.getCount());
+            m.put("errors", op.getErrors());
+            m.put("meanMillis", op.getMeanMillis());
+            m.put("p50Millis", op.getP50Millis());
+            m.put("p99Millis", op.getP99Millis());
+            m.put("p999Millis", op.getP999Millis());
+            m.put("maxMillis", op.getMaxMillis());
+            result.put(op.getName(), m);
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("recordCount", ledger.getRecordCount());
+        m.put("heapEstimateBytes", ledger.getHeapEstimateBytes());
+        m.put("jvmUsedHeapBytes", ledger.getJvmUsedHeapBytes());
+        m.put("bytesWritten", ledger.getBytesWritten());
+        m.put("meanBytesPerSave", ledger.getMeanBytesPerSave());
+        m.put("queryCacheHitRate", ledger.getQueryCacheHitRate());
+        result.put("ledger", m);
+        return result;
+    }
+
+    // 多行文本摘要 (定时打印用)
+    public String dump() {
+        StringBuilder sb = new StringBuilder("[ledger-metrics]");
+        sb.append(String.format(" 记录 %d 条，估算内存 %.1f MB，累计写出 %.1f MB，缓存命中率 %.1f%%%n",
+                ledger.getRecordCount(), ledger.getHeapEstimateBytes() / 1048576.0,
+                ledger.getBytesWritten() / 1048576.0, ledger.getQueryCacheHitRate() * 100));
+        for (Operation op : operations) {
+            if (op.getCount() == 0) continue;
+            sb.append(String.format("  %-9s 次数 %d 错误 %d 平均 %.3fms p50 %.3fms p99 %.3fms p999 %.3fms 最大 %.3fms%n",
+                    op.getName(), op.getCount(), op.getErrors(), op.getMeanMillis(), op.getP50Millis(),
+                    op.getP99Millis(), op.getP999Millis(), op.getMaxMillis()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 注册到平台 MBeanServer：com.joe.accounting:type=Ledger,name=账本 以及每个操作一个
+     * com.joe.accounting:type=Operation,ledger=账本,name=操作名。同名的旧注册 (例如同一文件打开了两次) 会被替换。
+     */
+    synchronized void registerMBeans(String ledgerName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String quoted = ObjectName.quote(ledgerName);
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=Ledger,name=" + quoted),
+                    new StandardMBean(ledger, LedgerMXBean.class, true));
+            for (Operation op : operations) {
+                register(server, new ObjectName(DOMAIN + ":type=Operation,ledger=" + quoted + ",name=" + op.getName()),
+                        new StandardMBean(op, OperationMXBean.class, true));
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, StandardMBean bean) throws JMException {
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(bean, name);
+        OWNERS.put(name, this);
+        registered.add(name);
+    }
+
+    // 每隔 periodSeconds 秒把摘要打印到 out (守护线程)
+    synchronized void startDump(long periodSeconds, PrintStream out) {
+        if (dumper != null || periodSeconds <= 0) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ledger-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // 注销 MBean、停止定时打印 (AccountService.close 时调用)
+    synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                if (OWNERS.remove(name, this) && server.isRegistered(name)) server.unregisterMBean(name);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+        registered.clear();
+    }
+}
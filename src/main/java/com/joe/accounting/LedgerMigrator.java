@@ -0,0 +1,38 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 一次性迁移工具：把旧的 Java 序列化账本 (account_data.dat) 转成二进制账本格式。
+ * 用法: java -cp ... com.joe.accounting.LedgerMigrator [account_data.dat] [account_data.ledger]
+ */
+public class LedgerMigrator {
+
+    public static int migrate(Path legacyFile, Path binaryFile) throws IOException {
+        if (!Files.exists(legacyFile)) {
+            throw new IOException("找不到旧账本文件: " + legacyFile);
+        }
+        // 读取失败时直接抛出，不生成二进制账本，旧文件仍然是唯一的数据来源
+        List<Record> records = new SerializedLedgerStore(legacyFile.toFile()).readRecords();
+        BinaryLedgerFile.write(binaryFile, records);
+
+        // 写完后回读校验，条数不一致就删除新文件，保留旧文件不动
+        int migrated = BinaryLedgerFile.open(binaryFile).rowCount();
+        if (migrated != records.size()) {
+            Files.deleteIfExists(binaryFile);
+            throw new IOException("迁移校验失败: 期望 " + records.size() + " 条，实际 " + migrated + " 条");
+        }
+        return migrated;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path legacy = Paths.get(args.length > 0 ? args[0] : "account_data.dat");
+        Path binary = Paths.get(args.length > 1 ? args[1] : "account_data.ledger");
+        int count = migrate(legacy, binary);
+        System.out.println("迁移完成: " + count + " 条记录 -> " + binary.toAbsolutePath());
+    }
+}
@@ -0,0 +1,35 @@
+package com.joe.accounting;
+
+/**
+ * 一次账本变更 (新增 / 修改 / 删除)，由 AccountService 产生并交给 LedgerStore 持久化。
+ */
+public final class LedgerOp {
+
+    public enum Kind { ADD, UPDATE, DELETE }
+
+    private final Kind kind;
+    private final Record before; // UPDATE / DELETE 时的旧记录
+    private final Record after;  // ADD / UPDATE 时的新记录
+
+    private LedgerOp(Kind kind, Record before, Record after) {
+        this.kind = kind;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static LedgerOp add(Record record) {
+        return new LedgerOp(Kind.ADD, null, record);
+    }
+
+    public static LedgerOp update(Record oldRecord, Record newRecord) {
+        return new LedgerOp(Kind.UPDATE, oldRecord, newRecord);
+    }
+
+    public static LedgerOp delete(Record record) {
+        return new LedgerOp(Kind.DELETE, record, null);
+    }
+
+    public Kind getKind() { return kind; }
+    public Record getBefore() { return before; }
+    public Record getAfter() { return after; }
+}
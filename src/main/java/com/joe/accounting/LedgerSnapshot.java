@@ -0,0 +1,148 @@
+package com.joe.accounting;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 某个版本的账本只读快照。记录按 1024 条分段存放，发布新版本时没有改动过的段直接复用上一版的
+ * (写时复制)，只复制被修改的段和删除点之后的段。
+ * 快照创建后不再变化，任意线程都可以不加锁地读取，写入方继续修改也不会影响已经拿到的快照。
+ * 筛选和按月/按分类统计用快照自己的索引，第一次用到时按这个版本建立，不经过 AccountService 的锁。
+ */
+public final class LedgerSnapshot extends AbstractList<Record> implements RandomAccess {
+    static final int SEGMENT_SHIFT = 10;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    static final LedgerSnapshot EMPTY = new LedgerSnapshot(new Record[0][], 0, -1, Collections.emptyMap());
+
+    private final Record[][] segments;
+    private final int size;
+    private final long version;
+    private final Map<String, Long> totalCents; // 不能用 Map.copyOf：calculateTotal(null) 要能查 null
+    private volatile Filters filters;
+    private volatile Rollups rollups;
+
+    // 日期索引 + 类型/分类位图，行号是快照里的下标
+    static final class Filters {
+        final DateIndex dates = new DateIndex();
+        final BitmapIndex bitmaps = new BitmapIndex();
+    }
+
+    // 按月合计 + 月份×类型×分类 立方体
+    static final class Rollups {
+        final LedgerAggregates aggregates = new LedgerAggregates();
+        final RollupCube cube = new RollupCube();
+    }
+
+    private LedgerSnapshot(Record[][] segments, int size, long version, Map<String, Long> totalCents) {
+        this.segments = segments;
+        this.size = size;
+        this.version = version;
+        this.totalCents = totalCents;
+    }
+
+    /**
+     * 由 AccountService 在写锁内调用。dirty 中的段被原地修改过；shiftFrom 之后的行因为删除整体移动过，
+     * 这两类段需要重新复制，其余的段与 previous 共享。
+     */
+    static LedgerSnapshot build(List<Record> records, long version, LedgerSnapshot previous,
+                                BitSet dirty, int shiftFrom, Map<String, Long> totalCents) {
+        int size = records.size();
+        Record[][] segments = new Record[(size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT][];
+        for (int seg = 0; seg < segments.length; seg++) {
+            int from = seg << SEGMENT_SHIFT;
+            int to = Math.min(size, from + SEGMENT_SIZE);
+            boolean reusable = seg < previous.segments.length && !dirty.get(seg) && to <= shiftFrom
+                    && previous.segments[seg].length == to - from;
+            if (reusable) {
+                segments[seg] = previous.segments[seg];
+            } else {
+                Record[] segment = new Record[to - from];
+                for (int row = from; row < to; row++) {
+                    segment[row - from] = records.get(row);
+                }
+                segments[seg] = segment;
+            }
+        }
+        return new LedgerSnapshot(segments, size, version, Collections.unmodifiableMap(new HashMap<>(totalCents)));
+    }
+
+    @Override
+    public Record get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return segments[index >>> SEGMENT_SHIFT][index & (SEGMENT_SIZE - 1)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // 版本号，每次增删改加一
+    public long getVersion() {
+        return version;
+    }
+
+    // 这个版本时某类型的总额 (分)
+    public long totalCents(String type) {
+        return totalCents.getOrDefault(type, 0L);
+    }
+
+    // 第一次调用时建立，之后同一个快照上的查询直接复用；只读，多个线程可以同时使用
+    Filters filters() {
+        Filters current = filters;
+        if (current == null) {
+            synchronized (segments) {
+                current = filters;
+                if (current == null) {
+                    current = new Filters();
+                    RecordColumns columns = RecordColumns.of(this);
+                    current.dates.rebuild(columns);
+                    current.bitmaps.rebuild(columns);
+                    filters = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    Rollups rollups() {
+        Rollups current = rollups;
+        if (current == null) {
+            synchronized (segments) {
+                current = rollups;
+                if (current == null) {
+                    current = new Rollups();
+                    RecordColumns columns = RecordColumns.of(this);
+                    current.aggregates.rebuild(columns);
+                    current.cube.rebuild(columns);
+                    rollups = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // 开头连续共享的段一共多少行 (两个版本在这之前的行肯定相同)
+    int sharedPrefix(LedgerSnapshot other) {
+        int seg = 0;
+        while (seg < Math.min(segments.length, other.segments.length) && segments[seg] == other.segments[seg]) seg++;
+        return Math.min(Math.min(size, other.size), seg << SEGMENT_SHIFT);
+    }
+
+    // 与上一版共享的段数，用于观察写时复制的效果
+    int sharedSegments(LedgerSnapshot other) {
+        int shared = 0;
+        for (int seg = 0; seg < Math.min(segments.length, other.segments.length); seg++) {
+            if (segments[seg] == other.segments[seg]) shared++;
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,41 @@
+package com.joe.accounting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 账本持久化层。AccountService 只负责内存中的记录，
+ * 落盘方式 (整文件序列化 / 追加日志 ...) 由具体实现决定。
+ */
+public interface LedgerStore extends Closeable {
+
+    // 启动时读取全部记录，返回的列表必须可修改
+    List<Record> load() throws IOException;
+
+    // 提交一批已经作用到内存中的变更；snapshot 只在需要整文件重写时才会被调用
+    void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException;
+
+    // 等待之前提交的变更全部写出 (同步实现写完即返回，无需等待)
+    default void flush() throws IOException {
+    }
+
+    // 把已写出的数据强制刷到磁盘 (fsync)
+    default void sync() throws IOException {
+    }
+
+    // 新增：累计写出的字节数 (指标用)，不统计的实现返回 0
+    default long getBytesWritten() {
+        return 0;
+    }
+
+    // 提交是否在其他线程执行；是的话 snapshot 必须返回一份独立的副本
+    default boolean isAsync() {
+        return false;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,179 @@
+package com.joe.accounting;
+
+import javafx.collections.ObservableListBase;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 表格用的只读 ObservableList，直接包装 AccountService.searchView 返回的视图 (快照 + 行号)，不复制记录。
+ * TableView 只对可见的行调用 get，所以只有视口内的行会被读取。
+ *
+ * 账本变更后 (任何线程) 重新查询：取新视图，与旧视图比较出变化的区间，
+ * 只发出这一段的增加/删除/替换事件，表格的滚动位置和选中状态都保留。
+ * 排序也交给 AccountService 在行号上完成，不在界面线程上排序 Record。
+ *
+ * 用 QueryExecutor 构造时查询在后台线程上跑，新的筛选/变更会作废还没完成的旧查询，
+ * 只有比较差异和发事件在界面线程上；否则在 uiExecutor 上同步查询 (连续多次变更只刷新一次)。
+ */
+public class LedgerTableModel extends ObservableListBase<Record> {
+    private static final String QUERY_KEY = "table";
+
+    private final AccountService service;
+    private final Executor uiExecutor;
+    private final QueryExecutor queries;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final Runnable changeListener = this::scheduleRefresh;
+
+    private volatile Filter filter = new Filter(null, null, null, null, AccountService.SortKey.INSERTION, false);
+    private List<Record> view;
+
+    // 筛选和排序条件，整体替换，后台查询线程读到的总是一致的一组
+    private static final class Filter {
+        final LocalDate start;
+        final LocalDate end;
+        final String type;
+        final String categoryQuery;
+        final AccountService.SortKey sortKey;
+        final boolean descending;
+
+        Filter(LocalDate start, LocalDate end, String type, String categoryQuery, AccountService.SortKey sortKey, boolean descending) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.categoryQuery = categoryQuery;
+            this.sortKey = sortKey;
+            this.descending = descending;
+        }
+    }
+
+    // uiExecutor 一般是 Platform::runLater，测试里可以直接同步执行
+    public LedgerTableModel(AccountService service, Executor uiExecutor) {
+        this(service, uiExecutor, null);
+    }
+
+    // 查询放到 queries 的后台线程上 (结果由 queries 交回界面线程)
+    public LedgerTableModel(AccountService service, QueryExecutor queries) {
+        this(service, null, queries);
+    }
+
+    private LedgerTableModel(AccountService service, Executor uiExecutor, QueryExecutor queries) {
+        this.service = service;
+        this.uiExecutor = uiExecutor;
+        this.queries = queries;
+        this.view = queries == null ? query(filter) : List.of(); // 后台模式下先显示空表，查询完成后再填充
+        service.addChangeListener(changeListener);
+        if (queries != null) requestRefresh(0);
+    }
+
+    @Override
+    public Record get(int index) {
+        return view.get(index);
+    }
+
+    @Override
+    public int size() {
+        return view.size();
+    }
+
+    // 参数含义同 AccountService.searchRecords
+    public void setFilter(LocalDate start, LocalDate end, String type, String categoryQuery) {
+        setFilter(start, end, type, categoryQuery, 0);
+    }
+
+    // 边输入边筛选：debounceMillis 内再次调用会重新计时，只执行最后一次 (仅后台查询模式)
+    public void setFilter(LocalDate start, LocalDate end, String type, String categoryQuery, long debounceMillis) {
+        Filter f = filter;
+        filter = new Filter(start, end, type, categoryQuery, f.sortKey, f.descending);
+        requestRefresh(debounceMillis);
+    }
+
+    public void setSort(AccountService.SortKey sortKey, boolean descending) {
+        Filter f = filter;
+        filter = new Filter(f.start, f.end, f.type, f.categoryQuery, sortKey, descending);
+        requestRefresh(0);
+    }
+
+    public AccountService.SortKey getSortKey() { return filter.sortKey; }
+    public boolean isDescending() { return filter.descending; }
+
+    // 立即在当前线程重新查询并发出差异事件 (没有变化时什么也不发)
+    public void refresh() {
+        apply(query(filter));
+    }
+
+    // 不再跟随账本变化 (窗口关闭时调用)
+    public void dispose() {
+        service.removeChangeListener(changeListener);
+        if (queries != null) queries.cancel(QUERY_KEY);
+    }
+
+    private List<Record> query(Filter f) {
+        return service.searchView(f.start, f.end, f.type, f.categoryQuery, f.sortKey, f.descending);
+    }
+
+    private void requestRefresh(long delayMillis) {
+        if (queries == null) {
+            refresh();
+            return;
+        }
+        Filter f = filter;
+        queries.submitDebounced(QUERY_KEY, delayMillis, () -> query(f), this::apply, null);
+    }
+
+    // 账本变更通知 (在写锁内，可能不在界面线程)
+    private void scheduleRefresh() {
+        if (queries != null) {
+            requestRefresh(0);
+        } else if (refreshPending.compareAndSet(false, true)) {
+            uiExecutor.execute(() -> {
+                refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    private void apply(List<Record> next) {
+        List<Record> old = view;
+        view = next;
+        fireDiff(old, next);
+    }
+
+    // 找出首尾相同的部分，中间不同的一段作为一次替换 (或纯增加 / 纯删除) 发出
+    private void fireDiff(List<Record> old, List<Record> next) {
+        int oldSize = old.size();
+        int newSize = next.size();
+        int limit = Math.min(oldSize, newSize);
+        int prefix = 0;
+        if (old instanceof LedgerSnapshot && next instanceof LedgerSnapshot) {
+            prefix = ((LedgerSnapshot) old).sharedPrefix((LedgerSnapshot) next); // 共享的段不用逐行比较
+        }
+        while (prefix < limit && same(old.get(prefix), next.get(prefix))) prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix && same(old.get(oldSize - 1 - suffix), next.get(newSize - 1 - suffix))) suffix++;
+        int removedTo = oldSize - suffix;
+        int addedTo = newSize - suffix;
+        if (prefix == removedTo && prefix == addedTo) return;
+
+        beginChange();
+        if (prefix == removedTo) {
+            nextAdd(prefix, addedTo);
+        } else if (prefix == addedTo) {
+            nextRemove(prefix, old.subList(prefix, removedTo));
+        } else {
+            nextReplace(prefix, addedTo, old.subList(prefix, removedTo));
+        }
+        endChange();
+    }
+
+    // 同一条记录且内容没变 (列式存储每次发布快照会重新生成 Record，不能只比较引用)
+    private static boolean same(Record a, Record b) {
+        if (a == b) return true;
+        return a.equals(b) && Objects.equals(a.getId(), b.getId()) && Objects.equals(a.getType(), b.getType())
+                && a.getAmount() == b.getAmount() && Objects.equals(a.getCategory(), b.getCategory())
+                && Objects.equals(a.getDate(), b.getDate()) && Objects.equals(a.getNote(), b.getNote());
+    }
+}
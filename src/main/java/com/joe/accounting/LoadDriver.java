@@ -0,0 +1,271 @@
+package com.joe.accounting;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测驱动：多个线程对同一个 AccountService 混合执行读写，统计持续吞吐和各操作的延迟分位数。
+ * 读：日期+类型+分类筛选、排序视图、全文检索、统计；写：追加 (LedgerGenerator 生成)、按 id 修改、按 id 删除。
+ *
+ * 默认是闭环 (每个线程做完一次立刻做下一次)；设置 targetOpsPerSecond 后按固定节奏发起，
+ * 延迟从"本该开始的时间"算起，服务变慢时排队的时间也计入尾延迟 (避免协调遗漏)。
+ * 预热阶段的数据不计入结果。
+ *
+ * 用法: java -Daccounting.storage=binary ... com.joe.accounting.LoadDriver [线程数] [秒数] [写入百分比] [目标 ops/s]
+ * 账本按 LedgerConfig 的系统属性打开，可以先用 LedgerGenerator 生成。
+ */
+public class LoadDriver {
+    private int threads = 8;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int writePercent = 10;
+    private long targetOpsPerSecond = 0; // 0 表示闭环，不限速
+    private long seed = 1;
+
+    private static final String[] NOTE_WORDS = {"午饭", "外卖", "打车", "超市", "工资", "红包", "电影", "买药"};
+
+    /**
+     * 压测结果：总次数、错误数、平均吞吐、最差一秒的吞吐，以及按操作分类的延迟统计 (同 /api/metrics)。
+     */
+    public static final class Result {
+        public final long operations;
+        public final long errors;
+        public final double seconds;
+        public final double opsPerSecond;
+        public final long minOpsPerSecond;
+        public final Map<String, Map<String, Object>> latency;
+
+        Result(long operations, long errors, double seconds, long minOpsPerSecond, Map<String, Map<String, Object>> latency) {
+            this.operations = operations;
+            this.errors = errors;
+            this.seconds = seconds;
+            this.opsPerSecond = operations / seconds;
+            this.minOpsPerSecond = minOpsPerSecond;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("总计 %d 次操作 (错误 %d)，%.1f 秒，平均 %.0f ops/s，最差一秒 %d ops/s%n",
+                    operations, errors, seconds, opsPerSecond, minOpsPerSecond));
+            sb.append(String.format("%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                    "操作", "次数", "错误", "平均ms", "p50ms", "p99ms", "p999ms", "最大ms"));
+            latency.forEach((name, m) -> sb.append(String.format("%-8s %10d %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    name, m.get("count"), m.get("errors"), m.get("meanMillis"), m.get("p50Millis"),
+                    m.get("p99Millis"), m.get("p999Millis"), m.get("maxMillis"))));
+            return sb.toString();
+        }
+    }
+
+    public LoadDriver setThreads(int threads) { this.threads = threads; return this; }
+    public LoadDriver setDurationSeconds(int seconds) { this.durationSeconds = seconds; return this; }
+    public LoadDriver setWarmupSeconds(int seconds) { this.warmupSeconds = seconds; return this; }
+    public LoadDriver setWritePercent(int percent) { this.writePercent = percent; return this; }
+    public LoadDriver setTargetOpsPerSecond(long opsPerSecond) { this.targetOpsPerSecond = opsPerSecond; return this; }
+    public LoadDriver setSeed(long seed) { this.seed = seed; return this; }
+
+    public Result run(AccountService service) throws InterruptedException {
+        LocalDate[] span = dateSpan(service);
+        List<Worker> workers = new ArrayList<>(threads);
+        SplittableRandom root = new SplittableRandom(seed);
+        long intervalNanos = targetOpsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(threads) / targetOpsPerSecond : 0;
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(service, root.split(), root.nextLong(), span, intervalNanos));
+        }
+        List<Thread> running = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(workers.get(i), "load-driver-" + (i + 1));
+            t.setDaemon(true);
+            running.add(t);
+            t.start();
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        RequestMetrics metrics = new RequestMetrics();
+        LongAdder ops = new LongAdder();
+        for (Worker w : workers) {
+            w.ops = ops; // 先设 ops：线程看到 metrics 不为 null 时 ops 一定已经可用
+            w.metrics = metrics;
+        }
+        long start = System.nanoTime();
+        long minPerSecond = Long.MAX_VALUE;
+        long last = 0;
+        for (int s = 0; s < durationSeconds; s++) {
+            long next = start + TimeUnit.SECONDS.toNanos(s + 1);
+            while (System.nanoTime() < next) Thread.sleep(Math.max(1, (next - System.nanoTime()) / 1_000_000));
+            long total = ops.sum();
+            minPerSecond = Math.min(minPerSecond, total - last);
+            last = total;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Worker w : workers) w.stop = true;
+        for (Thread t : running) t.join();
+
+        Map<String, Map<String, Object>> latency = metrics.summary();
+        long errors = 0;
+        for (Map<String, Object> m : latency.values()) errors += (Long) m.get("errors");
+        return new Result(last, errors, seconds, durationSeconds == 0 ? 0 : minPerSecond, latency);
+    }
+
+    // 查询用的日期范围取账本里最早和最晚的日期，空账本用最近一年
+    private static LocalDate[] dateSpan(AccountService service) {
+        LocalDate min = null;
+        LocalDate max = null;
+        for (Record r : service.snapshot()) {
+            LocalDate d = r.getDate();
+            if (d == null) continue;
+            if (min == null || d.isBefore(min)) min = d;
+            if (max == null || d.isAfter(max)) max = d;
+        }
+        if (min == null) {
+            max = LocalDate.now();
+            min = max.minusYears(1);
+        }
+        return new LocalDate[]{min, max};
+    }
+
+    private final class Worker implements Runnable {
+        final AccountService service;
+        final SplittableRandom random;
+        final LedgerGenerator generator;
+        final LocalDate first;
+        final int spanDays;
+        final long intervalNanos;
+        volatile RequestMetrics metrics; // 预热阶段为 null，不记录
+        volatile LongAdder ops;
+        volatile boolean stop;
+
+        Worker(AccountService service, SplittableRandom random, long generatorSeed, LocalDate[] span, long intervalNanos) {
+            this.service = service;
+            this.random = random;
+            this.generator = new LedgerGenerator(generatorSeed, span[0], 1);
+            this.first = span[0];
+            this.spanDays = (int) Math.max(1, span[1].toEpochDay() - span[0].toEpochDay() + 1);
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void run() {
+            long intended = System.nanoTime();
+            while (!stop) {
+                long begin = System.nanoTime();
+                if (intervalNanos > 0) {
+                    intended += intervalNanos;
+                    while (begin < intended && !stop) {
+                        LockSupport.parkNanos(intended - begin);
+                        begin = System.nanoTime();
+                    }
+                    begin = intended;
+                }
+                String op = pickOperation();
+                boolean error = false;
+                try {
+                    execute(op);
+                } catch (RuntimeException e) {
+                    error = true;
+                }
+                RequestMetrics m = metrics;
+                if (m != null) {
+                    m.record(op, System.nanoTime() - begin, error);
+                    ops.increment();
+                }
+            }
+        }
+
+        private String pickOperation() {
+            int r = random.nextInt(100);
+            if (r < writePercent) {
+                int w = random.nextInt(10);
+                return w < 7 ? "add" : w < 9 ? "update" : "delete";
+            }
+            int q = random.nextInt(20);
+            return q < 10 ? "search" : q < 13 ? "view" : q < 15 ? "text" : "stats";
+        }
+
+        private void execute(String op) {
+            switch (op) {
+                case "search": {
+                    LocalDate start = randomDay();
+                    String type = random.nextInt(3) == 0 ? "全部" : random.nextBoolean() ? "支出" : "收入";
+                    String category = random.nextBoolean() ? null : randomCategory(type);
+                    service.searchRecords(start, start.plusDays(random.nextInt(90)), type, category);
+                    break;
+                }
+                case "view": {
+                    LocalDate start = randomDay();
+                    service.searchView(start, start.plusDays(30 + random.nextInt(335)), "支出", null,
+                            AccountService.SortKey.AMOUNT, true).size();
+                    break;
+                }
+                case "text":
+                    service.searchText(NOTE_WORDS[random.nextInt(NOTE_WORDS.length)], AccountService.TextMatch.SUBSTRING, 50);
+                    break;
+                case "stats": {
+                    int s = random.nextInt(3);
+                    if (s == 0) {
+                        service.calculateTotal("支出");
+                    } else if (s == 1) {
+                        service.getMonthlyStats("支出");
+                    } else {
+                        YearMonth month = YearMonth.from(randomDay());
+                        service.getCategoryBreakdown("支出", month, month.plusMonths(2));
+                    }
+                    break;
+                }
+                case "add":
+                    service.addRecord(generator.next(randomDay()));
+                    break;
+                case "update": {
+                    String id = randomId();
+                    if (id != null) service.updateById(id, generator.next(randomDay()));
+                    break;
+                }
+                case "delete": {
+                    String id = randomId();
+                    if (id != null) service.deleteById(id);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException(op);
+            }
+        }
+
+        private LocalDate randomDay() {
+            return first.plusDays(random.nextInt(spanDays));
+        }
+
+        private String randomCategory(String type) {
+            String[] categories = "收入".equals(type) ? LedgerGenerator.INCOME_CATEGORIES : LedgerGenerator.EXPENSE_CATEGORIES;
+            return categories[random.nextInt(categories.length)];
+        }
+
+        // 快照是不可变的，其他线程同时删除时 updateById / deleteById 返回 false 即可
+        private String randomId() {
+            LedgerSnapshot snapshot = service.snapshot();
+            return snapshot.isEmpty() ? null : snapshot.get(random.nextInt(snapshot.size())).getId();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadDriver driver = new LoadDriver()
+                .setThreads(args.length > 0 ? Integer.parseInt(args[0]) : 8)
+                .setDurationSeconds(args.length > 1 ? Integer.parseInt(args[1]) : 30)
+                .setWritePercent(args.length > 2 ? Integer.parseInt(args[2]) : 10)
+                .setTargetOpsPerSecond(args.length > 3 ? Long.parseLong(args[3]) : 0);
+        AccountService service = new AccountService(LedgerConfig.fromSystemProperties());
+        try {
+            System.out.println("账本记录数: " + service.getRecordCount() + "，开始压测...");
+            System.out.print(driver.run(service));
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.joe.accounting;
+
+/**
+ * 金额的定点表示：统一换算成"分" (long) 再做加减，避免 double 反复加减后出现误差。
+ */
+final class Money {
+
+    private Money() {
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+}
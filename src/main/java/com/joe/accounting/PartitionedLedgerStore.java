@@ -0,0 +1,352 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * 按时间分段的存储：每个月 (或季度 / 年) 一个 BinaryLedgerFile 格式的段文件，外加一个很小的清单文件。
+ * <pre>
+ * account_data.segments/
+ *   manifest              # bookkeeping-segments 1 month 第几代
+ *                         段名 \t 文件名 \t 行数 \t 最小 epochDay \t 最大 epochDay \t 最大数字 id  (每段一行)
+ *   2019-03.4.ledger
+ *   2025-04.17.ledger
+ *   undated.2.ledger      没有日期的记录
+ * </pre>
+ * 提交变更时只重写变更涉及的段：新段文件带上新的代数，写完后原子替换清单，清单换好才算提交成功，
+ * 之后再删掉旧的段文件 (启动时也会清理清单里没有的文件)。新段和清单在替换前都已落盘，提交返回时数据已经持久化。
+ * 改一条 2019 年的记录只重写 2019 年那个月。
+ *
+ * load() 返回 PartitionedRecordList：段文件在第一次被读到时才映射，记录按段解码。
+ * 第一次启动时如果还没有清单，会把二进制账本或旧的 account_data.dat 拆分成段。
+ * 已有清单时分段粒度以清单为准，配置的粒度只用于新建的账本。清单读取失败时 load() 抛出异常，
+ * 之后不会提交任何变更，也不会清理文件，避免把读不出来的数据当成空账本覆盖掉。
+ */
+public class PartitionedLedgerStore implements LedgerStore {
+    static final String MANIFEST = "manifest";
+    private static final String MANIFEST_HEADER = "bookkeeping-segments";
+    private static final int MANIFEST_VERSION = 1;
+    static final String UNDATED = "undated";
+
+    // 分段粒度
+    public enum Granularity {
+        MONTH, QUARTER, YEAR;
+
+        // 段名：2025-04 / 2025-Q2 / 2025，没有日期为 undated
+        String key(int epochDay) {
+            if (epochDay == DateIndex.NO_DATE) return UNDATED;
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            switch (this) {
+                case MONTH: return String.format("%04d-%02d", date.getYear(), date.getMonthValue());
+                case QUARTER: return date.getYear() + "-Q" + ((date.getMonthValue() + 2) / 3);
+                default: return String.valueOf(date.getYear());
+            }
+        }
+
+        // epochDay 所在段的第一天和最后一天
+        int firstDay(int epochDay) {
+            if (epochDay == DateIndex.NO_DATE) return epochDay;
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            switch (this) {
+                case MONTH: return (int) date.withDayOfMonth(1).toEpochDay();
+                case QUARTER: return (int) LocalDate.of(date.getYear(), (date.getMonthValue() - 1) / 3 * 3 + 1, 1).toEpochDay();
+                default: return (int) date.withDayOfYear(1).toEpochDay();
+            }
+        }
+
+        int lastDay(int epochDay) {
+            if (epochDay == DateIndex.NO_DATE) return epochDay;
+            LocalDate first = LocalDate.ofEpochDay(firstDay(epochDay));
+            switch (this) {
+                case MONTH: return (int) first.plusMonths(1).toEpochDay() - 1;
+                case QUARTER: return (int) first.plusMonths(3).toEpochDay() - 1;
+                default: return (int) first.plusYears(1).toEpochDay() - 1;
+            }
+        }
+    }
+
+    // 清单中的一段
+    static final class Segment {
+        final String key;
+        final String fileName;
+        final int rows;
+        final int minDay;
+        final int maxDay;
+        final long maxKey; // 段内最大的数字 id，启动时用来给 id 生成器定起点，不必映射段文件
+
+        Segment(String key, String fileName, int rows, int minDay, int maxDay, long maxKey) {
+            this.key = key;
+            this.fileName = fileName;
+            this.rows = rows;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.maxKey = maxKey;
+        }
+
+        // 段内的日期和 [startDay, endDay] 有交集
+        boolean overlaps(int startDay, int endDay) {
+            return maxDay >= startDay && minDay <= endDay;
+        }
+    }
+
+    private final Path dir;
+    private Granularity granularity; // 已有清单时以清单为准
+    private final Path binaryFile; // 迁移来源，可为 null
+    private final Path legacyFile; // 迁移来源，可为 null
+    private final int cacheSegments;
+    private final TreeMap<String, Segment> segments = new TreeMap<>();
+    private long generation;
+    private boolean loaded; // load() 成功之后才允许提交
+    private volatile long bytesWritten;
+    private volatile long segmentsWritten;
+
+    public PartitionedLedgerStore(Path dir, Granularity granularity) {
+        this(dir, granularity, null, null, 24);
+    }
+
+    public PartitionedLedgerStore(Path dir, Granularity granularity, Path binaryFile, Path legacyFile, int cacheSegments) {
+        this.dir = dir;
+        this.granularity = granularity;
+        this.binaryFile = binaryFile;
+        this.legacyFile = legacyFile;
+        this.cacheSegments = cacheSegments;
+    }
+
+    @Override
+    public synchronized List<Record> load() throws IOException {
+        loaded = false;
+        segments.clear();
+        if (Files.exists(dir.resolve(MANIFEST))) {
+            readManifest();
+            removeUnreferencedFiles();
+        } else {
+            migrate();
+        }
+        loaded = true;
+        List<Segment> list = new ArrayList<>(segments.values());
+        List<Path> files = new ArrayList<>(list.size());
+        for (Segment s : list) files.add(dir.resolve(s.fileName));
+        return new PartitionedRecordList(list, files, cacheSegments);
+    }
+
+    // 第一次启动：从二进制账本或旧的序列化账本拆分成段，原文件保留不动
+    private void migrate() throws IOException {
+        List<Record> records;
+        if (binaryFile != null && Files.exists(binaryFile)) {
+            records = BinaryLedgerFile.open(binaryFile).readAll();
+        } else if (legacyFile != null && Files.exists(legacyFile)) {
+            records = new SerializedLedgerStore(legacyFile.toFile()).readRecords();
+        } else {
+            records = List.of();
+        }
+        Files.createDirectories(dir);
+        Map<String, List<Record>> byKey = new TreeMap<>();
+        for (Record r : records) {
+            byKey.computeIfAbsent(granularity.key(DateIndex.dayOf(r)), k -> new ArrayList<>()).add(r);
+        }
+        generation++;
+        TreeMap<String, Segment> next = new TreeMap<>();
+        for (Map.Entry<String, List<Record>> e : byKey.entrySet()) {
+            next.put(e.getKey(), writeSegment(e.getKey(), e.getValue(), null));
+        }
+        writeManifest(next);
+        segments.putAll(next);
+    }
+
+    @Override
+    public synchronized void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+        if (!loaded) {
+            throw new IOException("分段账本没有成功加载，拒绝写入: " + dir);
+        }
+        // 涉及的段 -> 该段的日期范围
+        Map<String, int[]> affected = new TreeMap<>();
+        for (LedgerOp op : ops) {
+            if (op.getBefore() != null) touch(affected, DateIndex.dayOf(op.getBefore()));
+            if (op.getAfter() != null) touch(affected, DateIndex.dayOf(op.getAfter()));
+        }
+        if (affected.isEmpty()) return;
+        Files.createDirectories(dir);
+
+        List<Record> records = snapshot.get();
+        RecordColumns columns = RecordColumns.of(records);
+        PartitionedRecordList partitioned = records instanceof PartitionedRecordList ? (PartitionedRecordList) records : null;
+        generation++;
+        // 新的清单内容先放在 next 里，清单写成功之后才替换 segments；中途失败时内存状态不变，写了一半的段下次启动清理
+        TreeMap<String, Segment> next = new TreeMap<>(segments);
+        List<String> obsolete = new ArrayList<>();
+        for (Map.Entry<String, int[]> e : affected.entrySet()) {
+            String key = e.getKey();
+            int[] range = e.getValue();
+            // 分段列表只看日期范围覆盖到的段和内存中的改动，不读其它段
+            int[] candidates = partitioned != null ? partitioned.rowsBetween(range[0], range[1]) : null;
+            int n = candidates != null ? candidates.length : columns.size();
+            List<Integer> rows = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                int row = candidates != null ? candidates[i] : i;
+                int day = columns.epochDay(row);
+                if (day >= range[0] && day <= range[1]) rows.add(row);
+            }
+            Segment old = next.remove(key);
+            if (old != null) obsolete.add(old.fileName);
+            if (!rows.isEmpty()) next.put(key, writeSegment(key, records, rows));
+        }
+        // 顺序很重要：新段已经逐个落盘 (BinaryLedgerFile.Writer 在重命名前 force，重命名后刷目录)，
+        // 这里再把清单落盘并刷目录，最后才删除旧段。任何一步崩溃，磁盘上的清单引用的段都是完整的
+        writeManifest(next);
+        segments.clear();
+        segments.putAll(next);
+        for (String name : obsolete) {
+            try {
+                Files.deleteIfExists(dir.resolve(name));
+            } catch (IOException e) {
+                // 仍被映射 (Windows) 时删不掉，下次启动再清理
+            }
+        }
+        if (!obsolete.isEmpty()) AtomicFiles.forceDirectory(dir);
+    }
+
+    private void touch(Map<String, int[]> affected, int epochDay) {
+        affected.computeIfAbsent(granularity.key(epochDay),
+                k -> new int[]{granularity.firstDay(epochDay), granularity.lastDay(epochDay)});
+    }
+
+    // 把 records 中的 rows 行写成一个段 (已落盘)，rows 为 null 时写出全部
+    private Segment writeSegment(String key, List<Record> records, List<Integer> rows) throws IOException {
+        String fileName = key + "." + generation + ".ledger";
+        Path file = dir.resolve(fileName);
+        int n = rows == null ? records.size() : rows.size();
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        long maxKey = 0;
+        try (BinaryLedgerFile.Writer writer = new BinaryLedgerFile.Writer(file)) {
+            for (int i = 0; i < n; i++) {
+                int row = rows == null ? i : rows.get(i);
+                Record r = records.get(row);
+                writer.append(r);
+                int day = DateIndex.dayOf(r);
+                minDay = Math.min(minDay, day);
+                maxDay = Math.max(maxDay, day);
+                maxKey = Math.max(maxKey, r.getKey());
+            }
+            writer.commit();
+        }
+        bytesWritten += Files.size(file);
+        segmentsWritten++;
+        return new Segment(key, fileName, n, minDay, maxDay, maxKey);
+    }
+
+    // AtomicFiles.write 会先把临时文件落盘、重命名后再刷目录
+    private void writeManifest(Map<String, Segment> segments) throws IOException {
+        Path manifest = dir.resolve(MANIFEST);
+        AtomicFiles.write(manifest, out -> {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            w.write("# " + MANIFEST_HEADER + " " + MANIFEST_VERSION + " " + granularity.name().toLowerCase(Locale.ROOT)
+                    + " " + generation + "\n");
+            for (Segment s : segments.values()) {
+                w.write(s.key + "\t" + s.fileName + "\t" + s.rows + "\t" + s.minDay + "\t" + s.maxDay + "\t" + s.maxKey + "\n");
+            }
+            w.flush();
+        });
+        bytesWritten += Files.size(manifest);
+    }
+
+    // 清单有任何问题 (格式、版本、引用的段文件不存在) 都抛出 IOException，此时不修改 segments 以外的任何状态
+    private void readManifest() throws IOException {
+        Path manifest = dir.resolve(MANIFEST);
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(" ");
+        if (header.length != 5 || !MANIFEST_HEADER.equals(header[1])) {
+            throw new IOException("不是有效的分段清单: " + manifest);
+        }
+        Map<String, Segment> parsed = new TreeMap<>();
+        Granularity stored;
+        long storedGeneration;
+        try {
+            if (Integer.parseInt(header[2]) != MANIFEST_VERSION) {
+                throw new IOException("不支持的分段清单版本: " + header[2]);
+            }
+            stored = Granularity.valueOf(header[3].toUpperCase(Locale.ROOT));
+            storedGeneration = Long.parseLong(header[4]);
+            for (String line : lines.subList(1, lines.size())) {
+                if (line.isBlank()) continue;
+                String[] f = line.split("\t");
+                if (f.length != 5 && f.length != 6) throw new IOException("分段清单格式错误: " + line);
+                // 早期的清单没有最大 id 这一列，在下面检查段文件时补上
+                long maxKey = f.length == 6 ? Long.parseLong(f[5]) : -1;
+                parsed.put(f[0], new Segment(f[0], f[1], Integer.parseInt(f[2]), Integer.parseInt(f[3]), Integer.parseInt(f[4]), maxKey));
+            }
+        } catch (IllegalArgumentException e) { // 含 NumberFormatException
+            throw new IOException("分段清单格式错误: " + manifest, e);
+        }
+        for (Map.Entry<String, Segment> e : parsed.entrySet()) {
+            Segment s = e.getValue();
+            if (!Files.exists(dir.resolve(s.fileName))) {
+                throw new IOException("分段清单引用的段文件不存在: " + dir.resolve(s.fileName));
+            }
+            if (s.maxKey < 0) e.setValue(new Segment(s.key, s.fileName, s.rows, s.minDay, s.maxDay, scanMaxKey(s)));
+        }
+        if (stored != granularity) {
+            System.err.println("分段粒度以已有数据为准: " + stored + " (配置为 " + granularity + ")");
+            granularity = stored;
+        }
+        generation = storedGeneration;
+        segments.putAll(parsed);
+    }
+
+    private long scanMaxKey(Segment s) throws IOException {
+        BinaryLedgerFile file = BinaryLedgerFile.open(dir.resolve(s.fileName));
+        long max = 0;
+        for (int row = 0; row < file.rowCount(); row++) max = Math.max(max, file.key(row));
+        return max;
+    }
+
+    public synchronized Granularity getGranularity() {
+        return granularity;
+    }
+
+    // 上次提交写完新段、但清单没换成功 (或旧段没删掉) 留下的文件
+    private void removeUnreferencedFiles() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (Segment s : segments.values()) referenced.add(s.fileName);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.ledger*")) {
+            for (Path file : files) {
+                if (!referenced.contains(file.getFileName().toString())) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // 累计写出的段文件个数 (观察每次提交重写了几段)
+    public long getSegmentsWritten() {
+        return segmentsWritten;
+    }
+
+    // 段名 -> 行数
+    public synchronized Map<String, Integer> getSegmentRows() {
+        Map<String, Integer> rows = new TreeMap<>();
+        segments.forEach((key, s) -> rows.put(key, s.rows));
+        return rows;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+}
@@ -0,0 +1,266 @@
+package com.joe.accounting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 分段存储的记录列表：启动时只读清单，按段名顺序把各段首尾相接成一个列表。
+ * 段文件在第一次读到其中的行时才映射，整段解码成 Record 后放在有界的 LRU 缓存里 (和 LazyRecordList 的页一样)。
+ *
+ * 修改的处理同 LazyRecordList：追加的记录放在 appended，改动的行放在 replaced，
+ * 删除/插入到中间时整体解码成普通列表。存储层只重写段文件，不会回头调整这个列表的行顺序。
+ * rowsBetween 按清单里每段的日期范围跳过不相关的段，供按日期区间的查询使用。
+ */
+public class PartitionedRecordList extends AbstractList<Record> implements RandomAccess, RecordColumns {
+    private final List<PartitionedLedgerStore.Segment> segments;
+    private final List<Path> files;
+    private final int[] starts; // starts[i] 为第 i 段的第一行，starts[段数] 为 baseCount
+    private final BinaryLedgerFile[] mapped;
+    private final Map<Integer, Record[]> decoded;
+    private final int baseCount;
+
+    private final Map<Integer, Record> replaced = new HashMap<>();
+    private final List<Record> appended = new ArrayList<>();
+    private List<Record> materialized;
+    private int mappedSegments;
+    private long decodedSegments;
+
+    PartitionedRecordList(List<PartitionedLedgerStore.Segment> segments, List<Path> files, int cacheSegments) {
+        this.segments = segments;
+        this.files = files;
+        this.starts = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            starts[i + 1] = starts[i] + segments.get(i).rows;
+        }
+        this.baseCount = starts[segments.size()];
+        this.mapped = new BinaryLedgerFile[segments.size()];
+        this.decoded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Record[]> eldest) {
+                return size() > cacheSegments;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Record get(int index) {
+        if (materialized != null) return materialized.get(index);
+        checkIndex(index, size());
+        if (index >= baseCount) return appended.get(index - baseCount);
+        Record r = replaced.get(index);
+        if (r != null) return r;
+        int s = segmentOf(index);
+        return decode(s)[index - starts[s]];
+    }
+
+    // 按列读取：未修改过的行直接从映射的段文件取值，不解码整段
+    @Override
+    public synchronized int epochDay(int index) {
+        if (!inBase(index)) return DateIndex.dayOf(get(index));
+        int s = segmentOf(index);
+        return file(s).epochDay(index - starts[s]);
+    }
+
+    @Override
+    public synchronized String type(int index) {
+        if (!inBase(index)) return get(index).getType();
+        int s = segmentOf(index);
+        return file(s).type(index - starts[s]);
+    }
+
+    @Override
+    public synchronized String category(int index) {
+        if (!inBase(index)) return get(index).getCategory();
+        int s = segmentOf(index);
+        return file(s).category(index - starts[s]);
+    }
+
+    @Override
+    public synchronized double amount(int index) {
+        if (!inBase(index)) return get(index).getAmount();
+        int s = segmentOf(index);
+        return file(s).amount(index - starts[s]);
+    }
+
+    @Override
+    public synchronized String id(int index) {
+        if (!inBase(index)) return get(index).getId();
+        int s = segmentOf(index);
+        return file(s).id(index - starts[s]);
+    }
+
+    @Override
+    public synchronized String note(int index) {
+        if (!inBase(index)) return get(index).getNote();
+        int s = segmentOf(index);
+        return file(s).note(index - starts[s]);
+    }
+
+    private boolean inBase(int index) {
+        return materialized == null && index < baseCount && !replaced.containsKey(index);
+    }
+
+    @Override
+    public synchronized Record set(int index, Record record) {
+        if (materialized != null) return materialized.set(index, record);
+        checkIndex(index, size());
+        if (index >= baseCount) return appended.set(index - baseCount, record);
+        Record old = get(index);
+        replaced.put(index, record);
+        return old;
+    }
+
+    @Override
+    public synchronized void add(int index, Record record) {
+        modCount++;
+        if (materialized == null && index == size()) {
+            appended.add(record);
+            return;
+        }
+        materialize().add(index, record);
+    }
+
+    @Override
+    public synchronized Record remove(int index) {
+        modCount++;
+        if (materialized == null && index >= baseCount) {
+            checkIndex(index, size());
+            return appended.remove(index - baseCount);
+        }
+        return materialize().remove(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        return materialized != null ? materialized.size() : baseCount + appended.size();
+    }
+
+    /**
+     * 日期可能落在 [startDay, endDay] 里的行 (升序)：日期范围和区间有交集的段的全部行，加上内存中改动/追加的行。
+     * 只是候选，调用方还要逐行检查日期。已经整体解码时返回全部行。
+     */
+    public synchronized int[] rowsBetween(int startDay, int endDay) {
+        int size = size();
+        if (materialized != null) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) all[i] = i;
+            return all;
+        }
+        int n = 0;
+        boolean[] overlapping = new boolean[segments.size()];
+        for (int s = 0; s < segments.size(); s++) {
+            if (segments.get(s).overlaps(startDay, endDay)) {
+                overlapping[s] = true;
+                n += segments.get(s).rows;
+            }
+        }
+        int[] rows = new int[n + replaced.size() + appended.size()];
+        n = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            if (!overlapping[s]) continue;
+            for (int row = starts[s]; row < starts[s + 1]; row++) rows[n++] = row;
+        }
+        // 改过的行新日期可能落在区间里，即使所在的段不相关
+        boolean unsorted = false;
+        for (int row : replaced.keySet()) {
+            if (!overlapping[segmentOf(row)]) {
+                rows[n++] = row;
+                unsorted = true;
+            }
+        }
+        if (unsorted) Arrays.sort(rows, 0, n);
+        for (int row = baseCount; row < size; row++) rows[n++] = row;
+        return Arrays.copyOf(rows, n);
+    }
+
+    // 已映射的段数 (用于观察分段裁剪的效果)
+    public synchronized int getMappedSegments() {
+        return mappedSegments;
+    }
+
+    // 已解码过的段数 (含被淘汰后重新解码的)
+    public synchronized long getDecodedSegments() {
+        return decodedSegments;
+    }
+
+    // 最大的数字 id：未改动的段直接用清单里记的值，不映射段文件
+    public synchronized long maxKey() {
+        long max = 0;
+        if (materialized != null) {
+            for (Record r : materialized) max = Math.max(max, r.getKey());
+            return max;
+        }
+        for (PartitionedLedgerStore.Segment s : segments) max = Math.max(max, s.maxKey);
+        for (Record r : replaced.values()) max = Math.max(max, r.getKey());
+        for (Record r : appended) max = Math.max(max, r.getKey());
+        return max;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized boolean isMaterialized() {
+        return materialized != null;
+    }
+
+    private int segmentOf(int row) {
+        int i = Arrays.binarySearch(starts, 0, segments.size(), row);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private BinaryLedgerFile file(int s) {
+        if (mapped[s] == null) {
+            try {
+                mapped[s] = BinaryLedgerFile.open(files.get(s));
+            } catch (IOException e) {
+                throw new UncheckedIOException("无法读取段文件: " + files.get(s), e);
+            }
+            mappedSegments++;
+        }
+        return mapped[s];
+    }
+
+    private Record[] decode(int s) {
+        Record[] rows = decoded.get(s);
+        if (rows == null) {
+            BinaryLedgerFile f = file(s);
+            rows = new Record[f.rowCount()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = f.record(i);
+            }
+            decoded.put(s, rows);
+            decodedSegments++;
+        }
+        return rows;
+    }
+
+    private List<Record> materialize() {
+        if (materialized == null) {
+            List<Record> all = new ArrayList<>(size() + 16);
+            for (int i = 0; i < size(); i++) {
+                all.add(get(i));
+            }
+            materialized = all;
+            replaced.clear();
+            appended.clear();
+            decoded.clear();
+        }
+        return materialized;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.joe.accounting;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 筛选结果 (命中的行号) 的 LRU 缓存，由 AccountService 在锁内使用。
+ * 键是规范化后的 (开始日期, 结束日期, 类型集合, 分类集合)，同一组条件不管取值顺序都命中同一项。
+ *
+ * 失效按代数：删除、修改、压缩墓碑、records 被整体替换都会让 generation 加一，旧代的缓存项作废。
+ * 只追加新记录时行号不变，缓存项不作废，下次命中时只检查新追加的行并补进结果 (patched)。
+ * 条目数和缓存的行号总数都有上限，超出时淘汰最久没用的。
+ */
+public final class QueryCache {
+    private final int maxEntries;
+    private final long maxRows;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+    private long generation;
+
+    // 只在 AccountService 的锁内修改，volatile 让其它线程读统计时能看到最新值
+    private volatile long hits;
+    private volatile long misses;
+    private volatile long patches;
+    private volatile long evictions;
+
+    static final class Key {
+        final LocalDate start;
+        final LocalDate end;
+        final List<String> types;      // null 表示不限制
+        final List<String> categories;
+
+        Key(LocalDate start, LocalDate end, Collection<String> types, Collection<String> categories) {
+            this.start = start;
+            this.end = end;
+            this.types = normalize(types);
+            this.categories = normalize(categories);
+        }
+
+        // 去重、排序，null 元素去掉 (null 取值本来也不会命中)
+        private static List<String> normalize(Collection<String> values) {
+            if (values == null) return null;
+            TreeSet<String> set = new TreeSet<>();
+            for (String v : values) {
+                if (v != null) set.add(v);
+            }
+            return List.copyOf(set);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return Objects.equals(start, k.start) && Objects.equals(end, k.end)
+                    && Objects.equals(types, k.types) && Objects.equals(categories, k.categories);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, types, categories);
+        }
+
+        // 新追加的行是否满足条件 (与 AccountService.matchingRows 的语义一致)
+        boolean matches(RecordColumns columns, int row) {
+            if (start != null || end != null) {
+                int day = columns.epochDay(row);
+                if (day == DateIndex.NO_DATE) return false;
+                if (start != null && day < DateIndex.dayOf(start)) return false;
+                if (end != null && day > DateIndex.dayOf(end)) return false;
+            }
+            return contains(types, columns.type(row)) && contains(categories, columns.category(row));
+        }
+
+        private static boolean contains(List<String> values, String value) {
+            return values == null || (value != null && values.contains(value));
+        }
+    }
+
+    private static final class Entry {
+        int[] rows;
+        int coveredSize; // 计算时 records 的大小，之后追加的行还没检查
+        final long generation;
+
+        Entry(int[] rows, int coveredSize, long generation) {
+            this.rows = rows;
+            this.coveredSize = coveredSize;
+            this.generation = generation;
+        }
+    }
+
+    QueryCache(int maxEntries, long maxRows) {
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * 返回缓存的行号 (调用方不能修改)，没有或已失效时返回 null。records 只追加过时补上新行再返回。
+     */
+    int[] get(Key key, RecordColumns columns) {
+        if (maxEntries <= 0) return null;
+        Entry entry = entries.get(key);
+        int size = columns.size();
+        // 追加的行比已覆盖的还多时，重新计算 (走索引) 比逐行检查更快
+        if (entry == null || entry.generation != generation || size < entry.coveredSize
+                || size - entry.coveredSize > entry.coveredSize) {
+            if (entry != null) remove(key);
+            misses++;
+            return null;
+        }
+        if (size > entry.coveredSize) {
+            int[] rows = entry.rows;
+            int[] patched = Arrays.copyOf(rows, rows.length + (size - entry.coveredSize));
+            int n = rows.length;
+            for (int row = entry.coveredSize; row < size; row++) {
+                if (key.matches(columns, row)) patched[n++] = row;
+            }
+            if (n > rows.length) {
+                entry.rows = Arrays.copyOf(patched, n);
+                cachedRows += n - rows.length;
+            }
+            entry.coveredSize = size;
+            patches++;
+            evict();
+        }
+        hits++;
+        return entry.rows;
+    }
+
+    void put(Key key, int[] rows, int coveredSize) {
+        if (maxEntries <= 0 || rows.length > maxRows) return;
+        remove(key);
+        entries.put(key, new Entry(rows, coveredSize, generation));
+        cachedRows += rows.length;
+        evict();
+    }
+
+    // 行号或内容变了 (删除 / 修改 / 整体替换)：所有缓存项作废，下次用到时再丢弃
+    void invalidate() {
+        generation++;
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) cachedRows -= old.rows.length;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedRows > maxRows) && it.hasNext()) {
+            cachedRows -= it.next().getValue().rows.length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getPatches() { return patches; }
+    public long getEvictions() { return evictions; }
+
+    int size() { return entries.size(); }
+}
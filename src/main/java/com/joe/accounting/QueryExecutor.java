@@ -0,0 +1,93 @@
+package com.joe.accounting;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 界面用的后台查询执行器：查询在后台线程上跑，结果通过 resultExecutor (一般是 Platform::runLater) 交回界面线程。
+ *
+ * 每个查询带一个 key (如 "table"、"stats")，同一个 key 提交新查询时旧的就作废：
+ * 还没开始的直接取消，已经在跑的让它跑完但丢弃结果 (不中断线程，避免打断存储层的文件读写)。
+ * submitDebounced 先等 delayMillis，期间同 key 再次提交会重新计时，用于边输入边查询。
+ */
+public class QueryExecutor implements AutoCloseable {
+    private final Executor resultExecutor;
+    private final ScheduledThreadPoolExecutor pool;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    // 每次提交一个新对象，pending 里存的不是自己就说明已经被后来的查询取代
+    private static final class Pending {
+        volatile Future<?> future;
+    }
+
+    public QueryExecutor(Executor resultExecutor) {
+        this(resultExecutor, 2);
+    }
+
+    public QueryExecutor(Executor resultExecutor, int threads) {
+        this.resultExecutor = resultExecutor;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "ledger-query-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+    }
+
+    public <T> void submit(String key, Callable<T> query, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        submitDebounced(key, 0, query, onResult, onError);
+    }
+
+    public <T> void submitDebounced(String key, long delayMillis, Callable<T> query,
+                                    Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        Pending current = new Pending();
+        Pending previous = pending.put(key, current);
+        if (previous != null && previous.future != null) previous.future.cancel(false);
+        current.future = pool.schedule(() -> run(key, current, query, onResult, onError), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 作废 key 上还没完成的查询
+    public void cancel(String key) {
+        Pending previous = pending.remove(key);
+        if (previous != null && previous.future != null) previous.future.cancel(false);
+    }
+
+    private <T> void run(String key, Pending self, Callable<T> query, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        if (!isCurrent(key, self)) return;
+        T result;
+        try {
+            result = query.call();
+        } catch (Exception | Error e) {
+            resultExecutor.execute(() -> {
+                if (!isCurrent(key, self)) return;
+                pending.remove(key, self);
+                if (onError != null) onError.accept(e); else e.printStackTrace();
+            });
+            return;
+        }
+        // 交回界面线程时再检查一次：结果送达前可能又有新查询提交
+        resultExecutor.execute(() -> {
+            if (!isCurrent(key, self)) return;
+            pending.remove(key, self);
+            onResult.accept(result);
+        });
+    }
+
+    private boolean isCurrent(String key, Pending self) {
+        return pending.get(key) == self;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        pending.clear();
+    }
+}
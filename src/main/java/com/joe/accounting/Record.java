@@ -6,7 +6,10 @@ import java.time.LocalDate;
 public class Record implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private String id;        // 唯一标识
+    private static volatile IdGenerator idGenerator = new MonotonicIdGenerator();
+
+    private String id;        // 唯一标识：旧数据里的 UUID 或自定义字符串；数字 id 的记录为 null
+    private long key;         // 新增：64 位数字 id (0 表示没有)，新记录只用它
     private String type;      // "收入" 或 "支出"
     private double amount;    // 金额
     private String category;  // 分类 (Req002 )
@@ -14,7 +17,18 @@ public class Record implements Serializable {
     private String note;      // 备注
 
     public Record(String type, double amount, String category, LocalDate date, String note) {
-        this.id = java.util.UUID.randomUUID().toString();
+        this.key = idGenerator.nextId(); // 以前是 UUID.randomUUID()，每条都要走 SecureRandom
+        this.type = type;
+        this.amount = amount;
+        this.category = category;
+        this.date = date;
+        this.note = note;
+    }
+
+    // 按已有 id 重建记录 (用于从日志/文件中恢复)；数字形式的 id 还原成 key
+    Record(String id, String type, double amount, String category, LocalDate date, String note) {
+        this.key = parseKey(id);
+        this.id = key == 0 ? id : null;
         this.type = type;
         this.amount = amount;
         this.category = category;
@@ -22,13 +36,65 @@ public class Record implements Serializable {
         this.note = note;
     }
 
+    Record(long key, String type, double amount, String category, LocalDate date, String note) {
+        this.key = key;
+        this.type = type;
+        this.amount = amount;
+        this.category = category;
+        this.date = date;
+        this.note = note;
+    }
+
+    // 新增：替换全局的 id 生成器
+    public static void setIdGenerator(IdGenerator generator) {
+        idGenerator = java.util.Objects.requireNonNull(generator);
+    }
+
+    // 新增：账本里已经有 key 这个 id，之后新建的记录 id 都要比它大
+    static void reserveKey(long key) {
+        if (key > 0) idGenerator.advancePast(key);
+    }
+
+    // 规范的十进制正整数 (无前导零、无符号) 才算数字 id，否则返回 0
+    static long parseKey(String id) {
+        if (id == null || id.isEmpty() || id.length() > 19 || id.charAt(0) == '0') return 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return 0;
+        }
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     // --- Getters and Setters (手动生成或使用 Lombok @Data) ---
+    public String getId() { return id != null ? id : key != 0 ? Long.toString(key) : null; }
+    long getKey() { return key; }
     public String getType() { return type; }
     public double getAmount() { return amount; }
     public String getCategory() { return category; }
     public LocalDate getDate() { return date; }
     public String getNote() { return note; }
 
+    // 新增：按 id 判等。列式存储每次返回的是新的 Record 视图，需要靠 id 找到同一条记录
+    // 数字 id 一律存在 key 里，所以两边要么都比 key，要么都比字符串
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Record)) return false;
+        Record other = (Record) o;
+        if (key != 0 || other.key != 0) return key == other.key;
+        return id != null && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        if (key != 0) return Long.hashCode(key);
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
+
     @Override
     public String toString() {
         return date + " [" + type + "] " + category + ": " + amount;
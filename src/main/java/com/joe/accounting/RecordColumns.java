@@ -0,0 +1,97 @@
+package com.joe.accounting;
+
+import java.util.List;
+
+/**
+ * 按列读取记录字段的视图，建索引时使用。
+ * 懒加载 / 列式存储可以直接读列，不必为每一行构造 Record。
+ */
+interface RecordColumns {
+    int size();
+
+    int epochDay(int row);
+
+    String type(int row);
+
+    String category(int row);
+
+    double amount(int row);
+
+    String id(int row);
+
+    String note(int row);
+
+    // 金额 (分)，列式存储可以直接返回原值
+    default long amountCents(int row) {
+        return Money.toCents(amount(row));
+    }
+
+    // 数字 id (不是数字 id 时为 0)，列式存储可以不经过字符串
+    default long key(int row) {
+        return Record.parseKey(id(row));
+    }
+
+    // 新增：只含 rows 这些行的视图，第 i 行对应原来的 rows[i] 行
+    static RecordColumns subset(RecordColumns columns, int[] rows) {
+        return new RecordColumns() {
+            @Override
+            public int size() { return rows.length; }
+
+            @Override
+            public int epochDay(int row) { return columns.epochDay(rows[row]); }
+
+            @Override
+            public String type(int row) { return columns.type(rows[row]); }
+
+            @Override
+            public String category(int row) { return columns.category(rows[row]); }
+
+            @Override
+            public double amount(int row) { return columns.amount(rows[row]); }
+
+            @Override
+            public String id(int row) { return columns.id(rows[row]); }
+
+            @Override
+            public String note(int row) { return columns.note(rows[row]); }
+
+            @Override
+            public long amountCents(int row) { return columns.amountCents(rows[row]); }
+
+            @Override
+            public long key(int row) { return columns.key(rows[row]); }
+        };
+    }
+
+    // 普通 List 的适配：逐行取 Record 再读字段
+    static RecordColumns of(List<Record> records) {
+        if (records instanceof RecordColumns) {
+            return (RecordColumns) records;
+        }
+        return new RecordColumns() {
+            @Override
+            public int size() { return records.size(); }
+
+            @Override
+            public int epochDay(int row) { return DateIndex.dayOf(records.get(row)); }
+
+            @Override
+            public String type(int row) { return records.get(row).getType(); }
+
+            @Override
+            public String category(int row) { return records.get(row).getCategory(); }
+
+            @Override
+            public double amount(int row) { return records.get(row).getAmount(); }
+
+            @Override
+            public String id(int row) { return records.get(row).getId(); }
+
+            @Override
+            public String note(int row) { return records.get(row).getNote(); }
+
+            @Override
+            public long key(int row) { return records.get(row).getKey(); }
+        };
+    }
+}
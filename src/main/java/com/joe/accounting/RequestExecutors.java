@@ -0,0 +1,69 @@
+package com.joe.accounting;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP 请求执行器。mode:
+ * <pre>
+ *   auto     JDK 21+ 用虚拟线程，否则用有界线程池 (默认)
+ *   virtual  强制虚拟线程，JDK 不支持时报错
+ *   pool     有界线程池: threads 个线程 + 长度为 queue 的队列，队列满时由接收线程自己执行 (反压)
+ * </pre>
+ * 项目按 JDK 17 编译，虚拟线程执行器通过反射获取。
+ */
+final class RequestExecutors {
+    static final String AUTO = "auto";
+    static final String VIRTUAL = "virtual";
+    static final String POOL = "pool";
+
+    private RequestExecutors() {
+    }
+
+    static ExecutorService create(String mode, int threads, int queue) {
+        if (AUTO.equals(mode)) {
+            ExecutorService virtual = virtualThreads();
+            return virtual != null ? virtual : boundedPool(threads, queue);
+        }
+        if (VIRTUAL.equals(mode)) {
+            ExecutorService virtual = virtualThreads();
+            if (virtual == null) {
+                throw new IllegalStateException("当前 JDK 不支持虚拟线程: " + Runtime.version());
+            }
+            return virtual;
+        }
+        if (POOL.equals(mode)) {
+            return boundedPool(threads, queue);
+        }
+        throw new IllegalArgumentException("未知的执行器类型: " + mode);
+    }
+
+    static boolean isVirtual(ExecutorService executor) {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    private static ExecutorService virtualThreads() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService boundedPool(int threads, int queue) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "ledger-http-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
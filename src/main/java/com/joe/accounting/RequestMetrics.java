@@ -0,0 +1,48 @@
+package com.joe.accounting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按接口统计请求延迟：次数、错误数，以及对数-线性分桶的延迟直方图 (LatencyHistogram，用于估算分位数)。
+ * 记录时只有 LongAdder / 原子数组操作，不加锁。
+ */
+class RequestMetrics {
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private static final class Route {
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram nanos = new LatencyHistogram();
+    }
+
+    void record(String route, long nanos, boolean error) {
+        Route r = routes.get(route);
+        if (r == null) r = routes.computeIfAbsent(route, k -> new Route());
+        if (error) r.errors.increment();
+        r.nanos.record(nanos);
+    }
+
+    long count(String route) {
+        Route r = routes.get(route);
+        return r == null ? 0 : r.nanos.count();
+    }
+
+    // 接口 -> {count, errors, meanMillis, maxMillis, p50Millis, p99Millis, p999Millis}，按接口名排序
+    Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        routes.forEach((name, r) -> {
+            Map<String, Object> m = new java.util.LinkedHashMap<>();
+            m.put("count", r.nanos.count());
+            m.put("errors", r.errors.sum());
+            m.put("meanMillis", r.nanos.mean() / 1e6);
+            m.put("maxMillis", r.nanos.max() / 1e6);
+            m.put("p50Millis", r.nanos.percentile(0.50) / 1e6);
+            m.put("p99Millis", r.nanos.percentile(0.99) / 1e6);
+            m.put("p999Millis", r.nanos.percentile(0.999) / 1e6);
+            result.put(name, m);
+        });
+        return result;
+    }
+}
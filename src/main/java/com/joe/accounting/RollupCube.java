@@ -0,0 +1,105 @@
+package com.joe.accounting;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 月份 × 类型 × 分类 的预聚合立方体，随增删改增量维护。
+ * 切片查询 (某段时间的分类构成、按月按分类的合计等) 只遍历立方体的格子，不碰单条记录。
+ * 没有日期的记录放在 NO_MONTH 下，只有不限时间的查询才会统计到。
+ */
+class RollupCube {
+    private static final int NO_MONTH = Integer.MIN_VALUE;
+
+    // 月份 -> 类型 -> 分类 -> {金额(分), 条数}
+    private final TreeMap<Integer, Map<String, Map<String, long[]>>> cells = new TreeMap<>();
+    private int size;
+
+    void rebuild(RecordColumns columns) {
+        cells.clear();
+        size = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            apply(columns.epochDay(row), columns.type(row), columns.category(row), columns.amountCents(row), 1);
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Record r) {
+        apply(DateIndex.dayOf(r), r.getType(), r.getCategory(), Money.toCents(r.getAmount()), 1);
+        size++;
+    }
+
+    void remove(Record r) {
+        apply(DateIndex.dayOf(r), r.getType(), r.getCategory(), -Money.toCents(r.getAmount()), -1);
+        size--;
+    }
+
+    void update(Record oldRecord, Record newRecord) {
+        remove(oldRecord);
+        add(newRecord);
+    }
+
+    // 分类 -> 合计 (分)，from/to 为 null 表示不限
+    Map<String, Long> categoryBreakdown(String type, YearMonth from, YearMonth to) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map<String, Map<String, long[]>> byType : slice(from, to).values()) {
+            Map<String, long[]> byCategory = byType.get(type);
+            if (byCategory == null) continue;
+            for (Map.Entry<String, long[]> e : byCategory.entrySet()) {
+                result.merge(e.getKey(), e.getValue()[0], Long::sum);
+            }
+        }
+        return result;
+    }
+
+    // 月份 ("yyyy-MM") -> 分类 -> 合计 (分)，按月份排序
+    Map<String, Map<String, Long>> monthlyByCategory(String type, YearMonth from, YearMonth to) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, Map<String, long[]>>> month : slice(from, to).entrySet()) {
+            if (month.getKey() == NO_MONTH) continue;
+            Map<String, long[]> byCategory = month.getValue().get(type);
+            if (byCategory == null) continue;
+            Map<String, Long> sums = new LinkedHashMap<>();
+            byCategory.forEach((category, cell) -> sums.put(category, cell[0]));
+            result.put(LedgerAggregates.monthLabel(month.getKey()), sums);
+        }
+        return result;
+    }
+
+    private NavigableMap<Integer, Map<String, Map<String, long[]>>> slice(YearMonth from, YearMonth to) {
+        if (from == null && to == null) return cells;
+        int lo = from == null ? NO_MONTH + 1 : monthKey(from);
+        int hi = to == null ? Integer.MAX_VALUE : monthKey(to);
+        if (lo > hi) return new TreeMap<>();
+        return cells.subMap(lo, true, hi, true);
+    }
+
+    private static int monthKey(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private void apply(int epochDay, String type, String category, long cents, int delta) {
+        if (type == null) return;
+        int month = epochDay == DateIndex.NO_DATE ? NO_MONTH : LedgerAggregates.monthKey(epochDay);
+        Map<String, Map<String, long[]>> byType = cells.computeIfAbsent(month, k -> new HashMap<>());
+        Map<String, long[]> byCategory = byType.computeIfAbsent(type, k -> new HashMap<>());
+        String key = category == null ? "" : category;
+        long[] cell = byCategory.computeIfAbsent(key, k -> new long[2]);
+        cell[0] += cents;
+        cell[1] += delta;
+        // 格子空了就删掉，保证查询结果里不出现已经没有记录的分类/月份
+        if (cell[1] == 0) {
+            byCategory.remove(key);
+            if (byCategory.isEmpty()) byType.remove(type);
+            if (byType.isEmpty()) cells.remove(month);
+        }
+    }
+}
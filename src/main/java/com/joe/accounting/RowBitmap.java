@@ -0,0 +1,255 @@
+package com.joe.accounting;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的行号位图 (Roaring 的简化版)：按行号高 16 位分块，
+ * 每块元素少时存成有序 char 数组，多时 (超过 4096 个) 换成 1024 个 long 的普通位图。
+ * 分类这种低基数字段在百万行上每个取值只占几十 KB，AND/OR 按块逐个合并。
+ */
+class RowBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];        // 块号 (行号高 16 位)，升序
+    private Object[] containers = new Object[4]; // char[] (数组块) 或 long[] (位图块)
+    private int[] cardinalities = new int[4];
+    private int blocks;
+
+    static RowBitmap of(int... rows) {
+        RowBitmap bitmap = new RowBitmap();
+        for (int row : rows) bitmap.add(row);
+        return bitmap;
+    }
+
+    void add(int row) {
+        int b = block((char) (row >>> 16), true);
+        char low = (char) row;
+        Object c = containers[b];
+        if (c instanceof long[]) {
+            long[] words = (long[]) c;
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) == 0) {
+                words[low >>> 6] |= mask;
+                cardinalities[b]++;
+            }
+            return;
+        }
+        char[] values = (char[]) c;
+        int card = cardinalities[b];
+        int pos = Arrays.binarySearch(values, 0, card, low);
+        if (pos >= 0) return;
+        pos = -pos - 1;
+        if (card == ARRAY_LIMIT) {
+            long[] words = toWords(values, card);
+            words[low >>> 6] |= 1L << low;
+            containers[b] = words;
+        } else {
+            if (card == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, card * 2));
+                containers[b] = values;
+            }
+            System.arraycopy(values, pos, values, pos + 1, card - pos);
+            values[pos] = low;
+        }
+        cardinalities[b]++;
+    }
+
+    void remove(int row) {
+        int b = block((char) (row >>> 16), false);
+        if (b < 0) return;
+        char low = (char) row;
+        Object c = containers[b];
+        if (c instanceof long[]) {
+            long[] words = (long[]) c;
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) == 0) return;
+            words[low >>> 6] &= ~mask;
+            if (--cardinalities[b] == ARRAY_LIMIT) {
+                containers[b] = toValues(words);
+            }
+        } else {
+            char[] values = (char[]) c;
+            int card = cardinalities[b];
+            int pos = Arrays.binarySearch(values, 0, card, low);
+            if (pos < 0) return;
+            System.arraycopy(values, pos + 1, values, pos, card - pos - 1);
+            cardinalities[b]--;
+        }
+        if (cardinalities[b] == 0) removeBlock(b);
+    }
+
+    boolean contains(int row) {
+        int b = block((char) (row >>> 16), false);
+        if (b < 0) return false;
+        char low = (char) row;
+        Object c = containers[b];
+        if (c instanceof long[]) {
+            return (((long[]) c)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) c, 0, cardinalities[b], low) >= 0;
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int b = 0; b < blocks; b++) total += cardinalities[b];
+        return total;
+    }
+
+    // 删除 records 中的若干行 (升序) 后，其余行号减去排在它前面的被删行数
+    void removeAndShift(int... removed) {
+        int[] rows = toArray();
+        RowBitmap shifted = new RowBitmap();
+        int d = 0;
+        for (int r : rows) {
+            while (d < removed.length && removed[d] < r) d++;
+            if (d < removed.length && removed[d] == r) continue;
+            shifted.add(r - d);
+        }
+        keys = shifted.keys;
+        containers = shifted.containers;
+        cardinalities = shifted.cardinalities;
+        blocks = shifted.blocks;
+    }
+
+    // 升序的全部行号
+    int[] toArray() {
+        int[] out = new int[cardinality()];
+        int n = 0;
+        for (int b = 0; b < blocks; b++) {
+            int high = keys[b] << 16;
+            Object c = containers[b];
+            if (c instanceof long[]) {
+                long[] words = (long[]) c;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        out[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) c;
+                for (int i = 0; i < cardinalities[b]; i++) out[n++] = high | values[i];
+            }
+        }
+        return out;
+    }
+
+    RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0, j = 0;
+        while (i < blocks && j < other.blocks) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else {
+                long[] a = words(i), b = other.words(j);
+                long[] words = new long[BITMAP_WORDS];
+                for (int w = 0; w < BITMAP_WORDS; w++) words[w] = a[w] & b[w];
+                result.appendBlock(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0, j = 0;
+        while (i < blocks || j < other.blocks) {
+            if (j >= other.blocks || (i < blocks && keys[i] < other.keys[j])) {
+                result.appendBlock(keys[i], words(i).clone());
+                i++;
+            } else if (i >= blocks || keys[i] > other.keys[j]) {
+                result.appendBlock(other.keys[j], other.words(j).clone());
+                j++;
+            } else {
+                long[] a = words(i), b = other.words(j);
+                long[] words = new long[BITMAP_WORDS];
+                for (int w = 0; w < BITMAP_WORDS; w++) words[w] = a[w] | b[w];
+                result.appendBlock(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // 第 b 块展开成位图形式 (只读)
+    private long[] words(int b) {
+        Object c = containers[b];
+        return c instanceof long[] ? (long[]) c : toWords((char[]) c, cardinalities[b]);
+    }
+
+    // 按块号递增追加一块，并按基数选择存储形式
+    private void appendBlock(char key, long[] words) {
+        int card = 0;
+        for (long w : words) card += Long.bitCount(w);
+        if (card == 0) return;
+        ensureCapacity();
+        keys[blocks] = key;
+        containers[blocks] = card > ARRAY_LIMIT ? words : toValues(words);
+        cardinalities[blocks] = card;
+        blocks++;
+    }
+
+    private int block(char key, boolean create) {
+        int lo = 0, hi = blocks - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key) lo = mid + 1;
+            else if (keys[mid] > key) hi = mid - 1;
+            else return mid;
+        }
+        if (!create) return -1;
+        ensureCapacity();
+        System.arraycopy(keys, lo, keys, lo + 1, blocks - lo);
+        System.arraycopy(containers, lo, containers, lo + 1, blocks - lo);
+        System.arraycopy(cardinalities, lo, cardinalities, lo + 1, blocks - lo);
+        keys[lo] = key;
+        containers[lo] = new char[4];
+        cardinalities[lo] = 0;
+        blocks++;
+        return lo;
+    }
+
+    private void removeBlock(int b) {
+        System.arraycopy(keys, b + 1, keys, b, blocks - b - 1);
+        System.arraycopy(containers, b + 1, containers, b, blocks - b - 1);
+        System.arraycopy(cardinalities, b + 1, cardinalities, b, blocks - b - 1);
+        blocks--;
+        containers[blocks] = null;
+    }
+
+    private void ensureCapacity() {
+        if (blocks == keys.length) {
+            keys = Arrays.copyOf(keys, blocks * 2);
+            containers = Arrays.copyOf(containers, blocks * 2);
+            cardinalities = Arrays.copyOf(cardinalities, blocks * 2);
+        }
+    }
+
+    private static long[] toWords(char[] values, int card) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < card; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words) {
+        int card = 0;
+        for (long w : words) card += Long.bitCount(w);
+        char[] values = new char[Math.max(4, card)];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
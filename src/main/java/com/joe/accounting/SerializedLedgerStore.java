@@ -0,0 +1,79 @@
+package com.joe.accounting;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 原有的存储方式：每次变更都用 ObjectOutputStream 重写整个 account_data.dat。
+ */
+public class SerializedLedgerStore implements LedgerStore {
+    private final File file;
+    private volatile long bytesWritten;
+
+    public SerializedLedgerStore(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public List<Record> load() {
+        return loadRecords();
+    }
+
+    @Override
+    public void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+        saveRecords(snapshot.get());
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        AtomicFiles.force(file.toPath());
+    }
+
+    // 本地存储实现 (DataStorage )：先写临时文件再原子替换，写到一半崩溃也不会损坏旧文件
+    // 传进来的可能是列式/懒加载列表 (不可序列化)，统一复制成 ArrayList，文件格式和原来一样
+    void saveRecords(List<Record> records) throws IOException {
+        List<Record> list = records.getClass() == ArrayList.class ? records : new ArrayList<>(records);
+        AtomicFiles.write(file.toPath(), out -> {
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(list);
+            oos.flush();
+        });
+        bytesWritten += file.length();
+    }
+
+    // 迁移用：读取失败 (文件损坏、类型不对) 时抛出异常，不把读不出来的账本当成空账本
+    @SuppressWarnings("unchecked")
+    List<Record> readRecords() throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Object data = ois.readObject();
+            if (!(data instanceof List)) {
+                throw new IOException("旧账本文件内容不是记录列表: " + file);
+            }
+            return new ArrayList<>((List<Record>) data);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("无法读取旧账本文件: " + file, e);
+        }
+    }
+
+    // 缺陷 1: 资源未关闭 (Resource Leak) - 对应 CWE-772
+    // 修改 loadRecords 方法，去掉 try-with-resources，且故意不 close 流
+    @SuppressWarnings("unchecked")
+    List<Record> loadRecords() {
+        if (!file.exists()) return new ArrayList<>();
+        try {
+            // 错误做法：没有使用 try(...) 自动关闭，也没有在 finally 中关闭
+            FileInputStream fis = new FileInputStream(file);
+            ObjectInputStream ois = new ObjectInputStream(fis);
+            return (List<Record>) ois.readObject();
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+}
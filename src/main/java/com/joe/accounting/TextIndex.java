@@ -0,0 +1,162 @@
+package com.joe.accounting;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 分类和备注的全文索引：按字符建倒排表，单字和相邻两字 (bigram) 各一张 RowBitmap。
+ * 中文没有空格分词，按字切分即可；英文统一转成小写。两个字段分别切分，不产生跨字段的 bigram。
+ *
+ * 子串 / 前缀查询取查询串所有 bigram 的交集 (单字查询用单字表)，得到的是候选行，还要由调用方逐行核对原文。
+ * 模糊查询 (编辑距离 ≤ k) 按单字计数：编辑 k 次最多让 k 个不同的字消失，
+ * 所以至少包含 (查询中不同的字数 - k) 个字的行才可能命中。
+ */
+class TextIndex {
+    private final Map<Long, RowBitmap> postings = new HashMap<>();
+    private int size;
+
+    static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    void rebuild(RecordColumns columns) {
+        postings.clear();
+        size = columns.size();
+        for (int row = 0; row < size; row++) {
+            addText(row, columns.category(row));
+            addText(row, columns.note(row));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int row, Record r) {
+        addText(row, r.getCategory());
+        addText(row, r.getNote());
+        size++;
+    }
+
+    // 行号不变：去掉旧文本的字，再加上新文本的
+    void update(int row, Record oldRecord, Record newRecord) {
+        Set<Long> grams = new HashSet<>();
+        collect(oldRecord.getCategory(), grams);
+        collect(oldRecord.getNote(), grams);
+        for (long gram : grams) {
+            RowBitmap bitmap = postings.get(gram);
+            if (bitmap == null) continue;
+            bitmap.remove(row);
+            if (bitmap.cardinality() == 0) postings.remove(gram);
+        }
+        addText(row, newRecord.getCategory());
+        addText(row, newRecord.getNote());
+    }
+
+    // 删除一批行 (升序) 后所有倒排表的行号前移
+    void removeRows(int[] rows) {
+        Iterator<RowBitmap> it = postings.values().iterator();
+        while (it.hasNext()) {
+            RowBitmap bitmap = it.next();
+            bitmap.removeAndShift(rows);
+            if (bitmap.cardinality() == 0) it.remove();
+        }
+        size -= rows.length;
+    }
+
+    /**
+     * 包含 query (已 normalize) 所有 bigram 的行；query 只有一个字时用单字表。空串返回 null (不限制)。
+     * 返回的位图可能就是索引内部的，调用方只能读。
+     */
+    RowBitmap candidates(String query) {
+        if (query.isEmpty()) return null;
+        if (query.length() == 1) return postings.getOrDefault(unigram(query.charAt(0)), new RowBitmap());
+        RowBitmap result = null;
+        for (int i = 0; i + 1 < query.length(); i++) {
+            RowBitmap bitmap = postings.get(bigram(query.charAt(i), query.charAt(i + 1)));
+            if (bitmap == null) return new RowBitmap();
+            result = result == null ? bitmap : result.and(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * 至少包含 query 中 (不同字数 - maxEdits) 个不同字的行 (升序)，下限为 1 个字。
+     */
+    int[] fuzzyCandidates(String query, int maxEdits) {
+        Set<Character> chars = new HashSet<>();
+        for (int i = 0; i < query.length(); i++) chars.add(query.charAt(i));
+        int threshold = Math.max(1, chars.size() - maxEdits);
+        int[] counts = new int[size];
+        int matched = 0;
+        for (char c : chars) {
+            RowBitmap bitmap = postings.get(unigram(c));
+            if (bitmap == null) continue;
+            for (int row : bitmap.toArray()) {
+                if (++counts[row] == threshold) matched++;
+            }
+        }
+        int[] rows = new int[matched];
+        int n = 0;
+        for (int row = 0; row < size && n < matched; row++) {
+            if (counts[row] >= threshold) rows[n++] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * pattern 与 text 中最相近的子串之间的编辑距离 (Sellers 算法：text 中任意位置都可以作为起点)。
+     */
+    static int substringDistance(String pattern, String text) {
+        int m = pattern.length();
+        int[] col = new int[m + 1];
+        for (int i = 0; i <= m; i++) col[i] = i;
+        int best = col[m];
+        for (int j = 0; j < text.length(); j++) {
+            char t = text.charAt(j);
+            int diagonal = col[0]; // col[0] 始终为 0：从这里开始匹配不需要代价
+            for (int i = 1; i <= m; i++) {
+                int above = col[i];
+                col[i] = Math.min(Math.min(col[i] + 1, col[i - 1] + 1), diagonal + (pattern.charAt(i - 1) == t ? 0 : 1));
+                diagonal = above;
+            }
+            best = Math.min(best, col[m]);
+        }
+        return best;
+    }
+
+    // RowBitmap.add 对重复的行号不做任何事，重复出现的字不用去重
+    private void addText(int row, String text) {
+        if (text == null) return;
+        String s = normalize(text);
+        for (int i = 0; i < s.length(); i++) {
+            posting(unigram(s.charAt(i))).add(row);
+            if (i + 1 < s.length()) posting(bigram(s.charAt(i), s.charAt(i + 1))).add(row);
+        }
+    }
+
+    private RowBitmap posting(long gram) {
+        return postings.computeIfAbsent(gram, k -> new RowBitmap());
+    }
+
+    private static void collect(String text, Set<Long> grams) {
+        if (text == null) return;
+        String s = normalize(text);
+        for (int i = 0; i < s.length(); i++) {
+            grams.add(unigram(s.charAt(i)));
+            if (i + 1 < s.length()) grams.add(bigram(s.charAt(i), s.charAt(i + 1)));
+        }
+    }
+
+    private static long unigram(char c) {
+        return c;
+    }
+
+    private static long bigram(char a, char b) {
+        return (1L << 32) | ((long) a << 16) | b;
+    }
+}
@@ -0,0 +1,134 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregationKernelsTest {
+
+    @TempDir
+    Path dir;
+
+    private static final int N = 10_000;
+
+    // 数组比有效长度长，尾部不应被统计
+    private static long[] values() {
+        Random random = new Random(5);
+        long[] values = new long[N + 7];
+        for (int i = 0; i < values.length; i++) values[i] = random.nextInt(2_000_000) - 1_000_000;
+        return values;
+    }
+
+    @Test
+    @DisplayName("Kernels: 掩码汇总 (和、个数、最小、最大) 与逐行计算一致")
+    void testMaskedMatchesScalarLoop() {
+        long[] values = values();
+        Random random = new Random(6);
+        byte[] keys = new byte[N + 7];
+        for (int i = 0; i < keys.length; i++) keys[i] = (byte) random.nextInt(3);
+        long sum = 0, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        int count = 0;
+        for (int i = 0; i < N; i++) {
+            if (keys[i] == 1) {
+                sum += values[i];
+                count++;
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+        }
+        assertEquals(sum, AggregationKernels.sumMasked(values, keys, 1, N));
+        assertEquals(count, AggregationKernels.countMasked(keys, 1, N));
+        assertEquals(min, AggregationKernels.minMasked(values, keys, 1, N));
+        assertEquals(max, AggregationKernels.maxMasked(values, keys, 1, N));
+        assertEquals(0, AggregationKernels.countMasked(keys, 7, N));
+    }
+
+    @Test
+    @DisplayName("Kernels: 分组求和与逐行计算一致，组号为负的行跳过")
+    void testGroupSumMatchesScalarLoop() {
+        long[] values = values();
+        Random random = new Random(7);
+        int[] groups = new int[N];
+        long[] sums = new long[9];
+        int[] counts = new int[9];
+        for (int i = 0; i < N; i++) {
+            groups[i] = random.nextInt(10) - 1;
+            if (groups[i] >= 0) {
+                sums[groups[i]] += values[i];
+                counts[groups[i]]++;
+            }
+        }
+        long[] outSums = new long[9];
+        int[] outCounts = new int[9];
+        AggregationKernels.groupSum(values, groups, N, outSums, outCounts);
+        assertArrayEquals(sums, outSums);
+        assertArrayEquals(counts, outCounts);
+    }
+
+    // 同样的 500 条记录分别放进对象模式和列式模式
+    private AccountService[] objectsAndColumnar() {
+        AccountService objects = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("objects.dat")).setStorage(LedgerConfig.STORAGE_JOURNAL));
+        AccountService columnar = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("columnar.dat")).setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setMemory(LedgerConfig.MEMORY_COLUMNAR));
+        Random random = new Random(9);
+        String[] categories = {"餐饮", "交通", "工资"};
+        for (int i = 0; i < 500; i++) {
+            Record r = new Record(random.nextBoolean() ? "支出" : "收入", random.nextInt(100000) / 100.0,
+                    categories[random.nextInt(3)],
+                    i % 50 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(random.nextInt(700)), "r" + i);
+            objects.addRecord(r);
+            columnar.addRecord(r);
+        }
+        return new AccountService[]{objects, columnar};
+    }
+
+    @Test
+    @DisplayName("Kernels: 列式与对象模式的汇总结果相同")
+    void testSummarizeRecords() {
+        AccountService[] services = objectsAndColumnar();
+        LocalDate from = LocalDate.of(2024, 6, 1), to = LocalDate.of(2025, 3, 31);
+        List<List<Object>> queries = List.of(
+                java.util.Arrays.asList(null, null, null, null),
+                java.util.Arrays.asList(null, null, List.of("支出"), null),
+                java.util.Arrays.asList(null, null, List.of("不存在"), null),
+                java.util.Arrays.asList(from, to, null, List.of("餐饮", "交通")),
+                java.util.Arrays.asList(from, null, List.of("收入"), null));
+        for (List<Object> q : queries) {
+            @SuppressWarnings("unchecked")
+            LongSummaryStatistics a = services[0].summarizeRecords((LocalDate) q.get(0), (LocalDate) q.get(1),
+                    (List<String>) q.get(2), (List<String>) q.get(3));
+            @SuppressWarnings("unchecked")
+            LongSummaryStatistics b = services[1].summarizeRecords((LocalDate) q.get(0), (LocalDate) q.get(1),
+                    (List<String>) q.get(2), (List<String>) q.get(3));
+            assertEquals(a.getSum(), b.getSum());
+            assertEquals(a.getCount(), b.getCount());
+            assertEquals(a.getMin(), b.getMin());
+            assertEquals(a.getMax(), b.getMax());
+        }
+    }
+
+    @Test
+    @DisplayName("Kernels: 列式模式由分组内核重建的月度合计与对象模式一致，且没有浮点误差")
+    void testMonthlyStatsAndTotals() {
+        AccountService[] services = objectsAndColumnar();
+        AccountService objects = services[0], columnar = services[1];
+        for (String type : List.of("支出", "收入")) {
+            Map<String, Double> expected = objects.getMonthlyStats(type);
+            assertEquals(expected, columnar.getMonthlyStats(type));
+            assertEquals(objects.calculateTotal(type), columnar.calculateTotal(type));
+            assertEquals(Money.toCents(columnar.calculateTotal(type)),
+                    columnar.summarizeRecords(null, null, List.of(type), null).getSum());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLedgerStoreTest {
+
+    @TempDir
+    Path dir;
+
+    // 记录底层存储被调用了几次
+    static class CountingStore implements LedgerStore {
+        final LedgerStore delegate;
+        final AtomicInteger commits = new AtomicInteger();
+        final AtomicInteger syncs = new AtomicInteger();
+
+        CountingStore(LedgerStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<Record> load() throws IOException {
+            return delegate.load();
+        }
+
+        @Override
+        public void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+            commits.incrementAndGet();
+            delegate.commit(ops, snapshot);
+        }
+
+        @Override
+        public void sync() throws IOException {
+            syncs.incrementAndGet();
+            delegate.sync();
+        }
+    }
+
+    @Test
+    @DisplayName("Async: 窗口内的连续修改合并为少量批次写入")
+    void testGroupCommit() throws Exception {
+        Path file = dir.resolve("account_data.ledger");
+        CountingStore counting = new CountingStore(new BinaryLedgerStore(file, null));
+        AsyncLedgerStore async = new AsyncLedgerStore(counting, 200, AsyncLedgerStore.FsyncPolicy.ALWAYS, 0);
+        AccountService service = new AccountService(async);
+
+        for (int i = 0; i < 100; i++) {
+            service.addRecord(new Record("支出", i, "餐饮", LocalDate.of(2025, 1, 1), "n" + i));
+        }
+        service.flush();
+
+        assertTrue(counting.commits.get() < 10, "100 次修改应合并成少量批次, 实际 " + counting.commits.get());
+        assertEquals(counting.commits.get(), counting.syncs.get(), "ALWAYS 策略每批都要 fsync");
+        assertEquals(100, BinaryLedgerFile.open(file).rowCount());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Async: close 会写完剩余修改，重启后数据完整")
+    void testCloseFlushesPending() throws Exception {
+        LedgerConfig config = new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setAsync(true)
+                .setAsyncWindowMillis(10_000)
+                .setFsyncPolicy(AsyncLedgerStore.FsyncPolicy.NONE);
+        AccountService service = new AccountService(config);
+        Record r = new Record("收入", 5000.0, "工资", LocalDate.of(2025, 1, 10), "工资");
+        service.addRecord(r);
+        service.updateRecord(r, new Record("收入", 5500.0, "工资", LocalDate.of(2025, 1, 10), "调薪"));
+        service.close();
+
+        List<Record> loaded = new AccountService(new LedgerConfig()
+                .setDataFile(config.getDataFile())
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)).getAllRecords();
+        assertEquals(1, loaded.size());
+        assertEquals(5500.0, loaded.get(0).getAmount(), 0.001);
+    }
+}
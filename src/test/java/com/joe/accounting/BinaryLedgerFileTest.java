@@ -0,0 +1,142 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryLedgerFileTest {
+
+    @TempDir
+    Path dir;
+
+    private List<Record> sampleRecords() {
+        List<Record> records = new ArrayList<>();
+        records.add(new Record("支出", 100.5, "餐饮", LocalDate.of(2025, 1, 1), "午餐"));
+        records.add(new Record("收入", 5000.0, "工资", LocalDate.of(2025, 1, 10), null));
+        records.add(new Record("custom-id", "支出", 0.1, null, null, "没有日期和分类"));
+        return records;
+    }
+
+    @Test
+    @DisplayName("Binary: 写入后通过内存映射读回，字段完全一致")
+    void testRoundTrip() throws Exception {
+        Path file = dir.resolve("account_data.ledger");
+        List<Record> records = sampleRecords();
+        BinaryLedgerFile.write(file, records);
+
+        BinaryLedgerFile ledger = BinaryLedgerFile.open(file);
+        assertEquals(3, ledger.rowCount());
+        List<Record> loaded = ledger.readAll();
+        for (int i = 0; i < records.size(); i++) {
+            Record expected = records.get(i);
+            Record actual = loaded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getNote(), actual.getNote());
+        }
+        assertEquals((int) LocalDate.of(2025, 1, 10).toEpochDay(), ledger.epochDay(1));
+    }
+
+    private LedgerConfig legacyConfig() throws Exception {
+        Path legacy = dir.resolve("account_data.dat");
+        new SerializedLedgerStore(legacy.toFile()).saveRecords(sampleRecords());
+        return new LedgerConfig().setDataFile(legacy).setStorage(LedgerConfig.STORAGE_BINARY);
+    }
+
+    @Test
+    @DisplayName("Binary: 首次启动从旧的序列化文件一次性迁移")
+    void testMigrateFromSerialized() throws Exception {
+        LedgerConfig config = legacyConfig();
+        AccountService service = new AccountService(config);
+        assertEquals(3, service.getAllRecords().size());
+        assertTrue(Files.exists(config.binaryFile()), "首次启动应自动迁移生成二进制账本");
+        assertEquals(3, BinaryLedgerFile.open(config.binaryFile()).rowCount());
+    }
+
+    @Test
+    @DisplayName("Binary: 迁移后的修改写进二进制账本，重启后读到")
+    void testWritesAfterMigration() throws Exception {
+        LedgerConfig config = legacyConfig();
+        AccountService service = new AccountService(config);
+        service.addRecord(new Record("支出", 20.0, "交通", LocalDate.of(2025, 2, 1), "打车"));
+        assertEquals(4, BinaryLedgerFile.open(config.binaryFile()).rowCount());
+        assertEquals(4, new AccountService(config).getAllRecords().size());
+    }
+
+    @Test
+    @DisplayName("Binary: 旧文件损坏时迁移失败，不生成空的二进制账本")
+    void testCorruptLegacyFileIsNotMigrated() throws Exception {
+        Path legacy = dir.resolve("account_data.dat");
+        Files.write(legacy, new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5, 1, 2, 3});
+        LedgerConfig config = new LedgerConfig().setDataFile(legacy).setStorage(LedgerConfig.STORAGE_BINARY);
+
+        assertThrows(java.io.IOException.class, () -> LedgerMigrator.migrate(legacy, config.binaryFile()));
+        assertThrows(java.io.UncheckedIOException.class, () -> new AccountService(config));
+        assertFalse(Files.exists(config.binaryFile()));
+        assertEquals(7, Files.size(legacy), "旧文件保持不动");
+    }
+
+    private Path writtenFile() throws Exception {
+        Path file = dir.resolve("account_data.ledger");
+        BinaryLedgerFile.write(file, sampleRecords());
+        return file;
+    }
+
+    @Test
+    @DisplayName("Binary: 截断的文件在打开时报 IOException")
+    void testTruncatedFileFailsOnOpen() throws Exception {
+        Path file = writtenFile();
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[]{0, 20, BinaryLedgerFile.HEADER_SIZE + BinaryLedgerFile.ROW_SIZE, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(java.io.IOException.class, () -> BinaryLedgerFile.open(file), "长度 " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Binary: 文件头的标识、版本、行数、偏移不对时在打开时报 IOException")
+    void testCorruptHeaderFailsOnOpen() throws Exception {
+        Path file = writtenFile();
+        byte[] good = Files.readAllBytes(file);
+        int[][] patches = {
+                {0, 0xFF},      // magic
+                {5, 0x63},      // 版本
+                {8, 0x7F},      // 行数超出文件
+                {11, 0x40},     // 行数比实际多
+                {16, 0x7F},     // 字符串堆偏移
+                {31, 0x01},     // 字典偏移
+        };
+        for (int[] patch : patches) {
+            byte[] bytes = good.clone();
+            bytes[patch[0]] ^= (byte) patch[1];
+            Files.write(file, bytes);
+            assertThrows(java.io.IOException.class, () -> BinaryLedgerFile.open(file), "第 " + patch[0] + " 字节");
+        }
+    }
+
+    @Test
+    @DisplayName("Binary: 行里的堆偏移越界时报告文件损坏，而不是 ByteBuffer 越界")
+    void testCorruptRowReference() throws Exception {
+        Path file = writtenFile();
+        byte[] bytes = Files.readAllBytes(file);
+        // 第 0 行的备注偏移 (行内第 16 字节) 改成很大的值
+        ByteBuffer.wrap(bytes).putInt(BinaryLedgerFile.HEADER_SIZE + 16, 1 << 30);
+        Files.write(file, bytes);
+        BinaryLedgerFile ledger = BinaryLedgerFile.open(file);
+        assertEquals(100.5, ledger.amount(0));
+        assertThrows(java.io.UncheckedIOException.class, () -> ledger.note(0));
+    }
+}
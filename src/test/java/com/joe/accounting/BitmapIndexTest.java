@@ -0,0 +1,112 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitmapIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("RowBitmap: 稠密块 (位图) 之间 AND/OR 结果正确")
+    void testBitmapOperations() {
+        RowBitmap evens = new RowBitmap();
+        RowBitmap threes = new RowBitmap();
+        Set<Integer> expectedAnd = new TreeSet<>();
+        Set<Integer> expectedOr = new TreeSet<>();
+        for (int row = 0; row < 200_000; row++) {
+            if (row % 2 == 0) evens.add(row);   // 每块 32768 个，走位图块
+            if (row % 3 == 0) threes.add(row);
+            if (row % 2 == 0 && row % 3 == 0) expectedAnd.add(row);
+            if (row % 2 == 0 || row % 3 == 0) expectedOr.add(row);
+        }
+        assertEquals(expectedAnd.size(), evens.and(threes).cardinality());
+        assertArrayEquals(expectedOr.stream().mapToInt(i -> i).toArray(), evens.or(threes).toArray());
+    }
+
+    @Test
+    @DisplayName("RowBitmap: 稀疏块删除和删行后移")
+    void testSparseRemoveAndShift() {
+        RowBitmap sparse = RowBitmap.of(5, 70_000, 140_001);
+        assertTrue(sparse.contains(70_000));
+        sparse.remove(70_000);
+        assertFalse(sparse.contains(70_000));
+        sparse.removeAndShift(10);
+        assertArrayEquals(new int[]{5, 140_000}, sparse.toArray());
+    }
+
+    private AccountService newService() {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+    }
+
+    @Test
+    @DisplayName("Bitmap: 多值组合筛选与全表扫描一致，且随增删改更新")
+    void testSearchMatchesScan() {
+        AccountService service = newService();
+        String[] categories = {"餐饮", "交通", "购物", "工资"};
+        Random random = new Random(7);
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 300; i++) {
+            service.addRecord(new Record(random.nextBoolean() ? "支出" : "收入", i,
+                    categories[random.nextInt(categories.length)], base.plusDays(random.nextInt(90)), "n" + i));
+            if (i % 10 == 9) {
+                List<Record> all = service.getAllRecords();
+                service.deleteRecord(all.get(random.nextInt(all.size())));
+                Record old = all.get(random.nextInt(all.size()));
+                service.updateRecord(old, new Record("收入", 1, "购物", old.getDate(), "改"));
+            }
+
+            LocalDate start = base.plusDays(random.nextInt(90));
+            LocalDate end = start.plusDays(random.nextInt(40));
+            List<Record> expected = service.getAllRecords().stream()
+                    .filter(r -> !r.getDate().isBefore(start) && !r.getDate().isAfter(end))
+                    .filter(r -> r.getType().equals("支出"))
+                    .filter(r -> r.getCategory().equals("餐饮") || r.getCategory().equals("交通"))
+                    .collect(Collectors.toList());
+            assertEquals(expected, service.searchRecordsAny(start, end, List.of("支出"), List.of("餐饮", "交通")));
+        }
+    }
+
+    @Test
+    @DisplayName("Bitmap: 没有日期条件时只靠位图，修改分类后结果跟着变")
+    void testCategoryOnly() {
+        AccountService service = newService();
+        Record coat = new Record("支出", 500.0, "购物", LocalDate.of(2025, 2, 1), "衣服");
+        service.addRecord(new Record("支出", 30.0, "餐饮", LocalDate.of(2025, 1, 1), "早餐"));
+        service.addRecord(coat);
+        service.addRecord(new Record("支出", 40.0, "购物", null, "没有日期"));
+        assertEquals(2, service.searchRecords(null, null, "全部", "购物").size());
+
+        service.updateRecord(coat, new Record("支出", 500.0, "其他", coat.getDate(), "衣服"));
+        assertEquals(1, service.searchRecords(null, null, "全部", "购物").size());
+        assertEquals(1, service.searchRecords(null, null, "全部", "其他").size());
+    }
+
+    @Test
+    @DisplayName("Bitmap: 索引覆盖不到的条件走扫描")
+    void testPredicateFallback() {
+        AccountService service = newService();
+        service.addRecord(new Record("支出", 30.0, "餐饮", LocalDate.of(2025, 1, 1), "早餐"));
+        service.addRecord(new Record("支出", 300.0, "餐饮", LocalDate.of(2025, 1, 2), "聚餐"));
+        service.addRecord(new Record("支出", 500.0, "购物", LocalDate.of(2025, 2, 1), "衣服"));
+
+        List<Record> result = service.searchRecordsWhere(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31),
+                r -> r.getAmount() > 100);
+        assertEquals(1, result.size());
+        assertEquals("聚餐", result.get(0).getNote());
+    }
+}
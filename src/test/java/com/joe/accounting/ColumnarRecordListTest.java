@@ -0,0 +1,116 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarRecordListTest {
+
+    @TempDir
+    Path dir;
+
+    private static void assertSameRecord(Record expected, Record actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getAmount(), actual.getAmount(), 0.001);
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getNote(), actual.getNote());
+    }
+
+    @Test
+    @DisplayName("Columnar: 随机增删改后与 ArrayList 行为一致")
+    void testBehavesLikeList() {
+        ColumnarRecordList columnar = new ColumnarRecordList();
+        List<Record> expected = new ArrayList<>();
+        Random random = new Random(3);
+        String[] categories = {"餐饮", "交通", null};
+        for (int i = 0; i < 3000; i++) {
+            Record r = new Record(random.nextBoolean() ? "支出" : "收入", random.nextInt(100000) / 100.0,
+                    categories[random.nextInt(3)],
+                    random.nextInt(10) == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(random.nextInt(400)),
+                    random.nextInt(5) == 0 ? null : "备注" + i);
+            int action = random.nextInt(10);
+            if (action < 6 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, r);
+                columnar.add(index, r);
+            } else if (action < 8) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, r);
+                columnar.set(index, r);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), columnar.remove(index));
+            }
+        }
+        assertEquals(expected.size(), columnar.size());
+        ColumnarRecordList copy = columnar.copy();
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameRecord(expected.get(i), columnar.get(i));
+            assertSameRecord(expected.get(i), copy.get(i));
+        }
+    }
+
+    private LedgerConfig columnarConfig() {
+        return new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setMemory(LedgerConfig.MEMORY_COLUMNAR);
+    }
+
+    @Test
+    @DisplayName("Columnar: 列式模式下记录存成 ColumnarRecordList，查询正常")
+    void testServiceUsesColumns() {
+        AccountService service = new AccountService(columnarConfig());
+        service.addRecord(new Record("支出", 200.0, "餐饮", LocalDate.of(2025, 5, 1), "午饭"));
+        service.addRecord(new Record("收入", 5000.0, "工资", LocalDate.of(2025, 5, 15), "五月工资"));
+        assertTrue(service.getAllRecords() instanceof ColumnarRecordList);
+        assertEquals(1, service.searchRecords(LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 31), "支出", "餐饮").size());
+        assertEquals(5000.0, service.calculateTotal("收入"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Columnar: 用调用方手里的原对象修改和删除，按 id 找到同一行")
+    void testUpdateAndDeleteByOriginalObject() {
+        LedgerConfig config = columnarConfig();
+        AccountService service = new AccountService(config);
+        Record r1 = new Record("支出", 200.0, "餐饮", LocalDate.of(2025, 5, 1), "午饭");
+        Record r2 = new Record("收入", 5000.0, "工资", LocalDate.of(2025, 5, 15), "五月工资");
+        service.addRecord(r1);
+        service.addRecord(r2);
+
+        // 传入的是调用方手里的原对象，存储里是列，靠 id 找到同一行
+        service.updateRecord(r1, new Record("支出", 250.0, "餐饮", LocalDate.of(2025, 5, 1), "午饭(大餐)"));
+        assertEquals(250.0, service.getMonthlyStats("支出").get("2025-05"), 0.001);
+        service.deleteRecord(r2);
+        assertEquals(0.0, service.calculateTotal("收入"), 0.001);
+
+        List<Record> reloaded = new AccountService(config).getAllRecords();
+        assertEquals(1, reloaded.size());
+        assertEquals("午饭(大餐)", reloaded.get(0).getNote());
+    }
+
+    @Test
+    @DisplayName("Columnar: 配合默认的序列化存储也能保存，重启后数据还在")
+    void testColumnarWithSerializedStorage() {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_SERIALIZED).setMemory(LedgerConfig.MEMORY_COLUMNAR);
+        AccountService service = new AccountService(config);
+        Record lunch = new Record("支出", 25.5, "餐饮", LocalDate.of(2025, 5, 1), "午饭");
+        service.addRecord(lunch);
+        service.addRecord(new Record("收入", 100, "兼职", LocalDate.of(2025, 5, 2), null));
+
+        List<Record> reloaded = new AccountService(config).getAllRecords();
+        assertEquals(2, reloaded.size());
+        assertSameRecord(lunch, reloaded.get(0));
+    }
+}
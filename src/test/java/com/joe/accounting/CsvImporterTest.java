@@ -0,0 +1,126 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService(String storage) {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(storage));
+    }
+
+    // 旧版导出的 GBK 文件：两行有效，三行坏行 (类型、日期、金额)，一行空行
+    private Path gbkExport() throws Exception {
+        Path gbk = dir.resolve("export.csv");
+        Files.write(gbk, List.of(
+                "日期,类型,分类,金额,备注",
+                "2025-01-01,支出,餐饮,12.50,午饭, 加了个蛋",
+                "null,收入,null,100.00,null",
+                "2025-01-02,转账,餐饮,1.00,类型不对",
+                "",
+                "2025-02-30,支出,餐饮,1.00,日期不对",
+                "2025-01-03,支出,交通,abc,金额不对"), CsvImporter.GBK);
+        return gbk;
+    }
+
+    @Test
+    @DisplayName("CSV: GBK 导出文件能识别编码，坏行带行号报告")
+    void testImportGbkAndRejects() throws Exception {
+        Path gbk = gbkExport();
+        assertEquals(CsvImporter.GBK, CsvImporter.detectCharset(gbk));
+
+        AccountService service = newService(LedgerConfig.STORAGE_JOURNAL);
+        CsvImporter.Result result = new CsvImporter(service, 2, 2).importFile(gbk, null);
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejectedCount());
+        assertEquals(List.of(4L, 6L, 7L), result.getRejected().stream().map(CsvImporter.Rejected::getLine).toList());
+    }
+
+    @Test
+    @DisplayName("CSV: 备注里的逗号保留，null 字段读成空值")
+    void testNoteCommasAndNulls() throws Exception {
+        AccountService service = newService(LedgerConfig.STORAGE_JOURNAL);
+        new CsvImporter(service, 2, 2).importFile(gbkExport(), null);
+
+        List<Record> all = service.getAllRecords();
+        assertEquals("午饭, 加了个蛋", all.get(0).getNote());
+        assertNull(all.get(1).getDate());
+        assertNull(all.get(1).getCategory());
+        assertNull(all.get(1).getNote());
+    }
+
+    @Test
+    @DisplayName("CSV: 带 BOM / 引号的 UTF-8 文件能导入")
+    void testImportUtf8WithQuotes() throws Exception {
+        Path utf8 = dir.resolve("bank.csv");
+        Files.writeString(utf8, "\uFEFF日期,类型,分类,金额,备注\n2025-03-01,支出,\"购物,网购\",99.9,\"说\"\"你好\"\"\"\n", StandardCharsets.UTF_8);
+        assertEquals(StandardCharsets.UTF_8, CsvImporter.detectCharset(utf8));
+
+        AccountService service = newService(LedgerConfig.STORAGE_JOURNAL);
+        assertEquals(1, new CsvImporter(service).importFile(utf8, null).getImported());
+        Record last = service.getAllRecords().get(0);
+        assertEquals("购物,网购", last.getCategory());
+        assertEquals("说\"你好\"", last.getNote());
+    }
+
+    private static final int ROWS = 200_000;
+
+    private Path bigFile() throws Exception {
+        Path file = dir.resolve("big.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("日期,类型,分类,金额,备注\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(LocalDate.of(2020, 1, 1).plusDays(i % 1500) + "," + (i % 4 == 0 ? "收入" : "支出")
+                        + ",分类" + (i % 7) + "," + (i % 1000) / 100.0 + ",备注" + i + "\n");
+            }
+        }
+        return file;
+    }
+
+    @Test
+    @DisplayName("CSV: 大批量导入按块提交，每块报告一次进度")
+    void testLargeImportInChunks() throws Exception {
+        AccountService service = newService(LedgerConfig.STORAGE_BINARY);
+        List<Long> progress = new ArrayList<>();
+        CsvImporter.Result result = new CsvImporter(service, 50_000, 4)
+                .importFile(bigFile(), (imported, rejected) -> progress.add(imported));
+        assertEquals(ROWS, result.getImported());
+        assertEquals(List.of(50_000L, 100_000L, 150_000L, 200_000L), progress);
+        assertEquals(ROWS, newService(LedgerConfig.STORAGE_BINARY).getAllRecords().size());
+    }
+
+    @Test
+    @DisplayName("CSV: 大批量导入后索引重建，查询、统计、删除和重新加载都正确")
+    void testLargeImportRebuildsIndexes() throws Exception {
+        AccountService service = newService(LedgerConfig.STORAGE_BINARY);
+        service.addRecord(new Record("支出", 1.0, "分类0", LocalDate.of(2019, 12, 31), "导入前"));
+        service.searchRecords(null, null, "支出", null); // 先建好索引，验证批量导入后会重建
+        new CsvImporter(service, 50_000, 4).importFile(bigFile(), null);
+
+        assertEquals(ROWS + 1, service.getAllRecords().size());
+        assertEquals(ROWS / 4, service.searchRecords(null, null, "收入", null).size());
+        long expenseCents = 100;
+        for (int i = 0; i < ROWS; i++) if (i % 4 != 0) expenseCents += i % 1000;
+        assertEquals(expenseCents / 100.0, service.calculateTotal("支出"), 0.001);
+
+        Record first = service.getAllRecords().get(1);
+        assertTrue(service.deleteById(first.getId()));
+        assertEquals(ROWS, newService(LedgerConfig.STORAGE_BINARY).getAllRecords().size());
+    }
+}
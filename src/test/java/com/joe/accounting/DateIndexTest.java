@@ -0,0 +1,99 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static DateIndex sampleIndex() {
+        DateIndex index = new DateIndex();
+        int[] days = {30, 10, 20, 10, 40};
+        for (int row = 0; row < days.length; row++) {
+            index.add(row, days[row]);
+        }
+        return index;
+    }
+
+    @Test
+    @DisplayName("DateIndex: 区间查询返回按原顺序排列的行号")
+    void testRowsBetween() {
+        DateIndex index = sampleIndex();
+        assertArrayEquals(new int[]{1, 2, 3}, index.rowsBetween(10, 20));
+        assertArrayEquals(new int[]{0, 4}, index.rowsBetween(25, 100));
+        assertArrayEquals(new int[0], index.rowsBetween(41, 50));
+    }
+
+    @Test
+    @DisplayName("DateIndex: 删除后后面的行号前移，修改日期后换到新位置")
+    void testRemoveAndUpdate() {
+        DateIndex index = sampleIndex();
+        index.remove(1, 10);          // 行号 2,3,4 前移为 1,2,3
+        assertArrayEquals(new int[]{1, 2}, index.rowsBetween(10, 20));
+        index.update(2, 10, 45);      // 原来的第 3 行改到 45 号
+        assertArrayEquals(new int[]{2, 3}, index.rowsBetween(40, 50));
+        assertArrayEquals(new int[]{1}, index.rowsBetween(10, 20));
+    }
+
+    @Test
+    @DisplayName("DateIndex: 随机增删改后，索引查询与全表扫描结果一致")
+    void testConsistentWithScan() {
+        AccountService service = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        // 先查询一次让索引建立起来，之后的修改都走增量维护
+        service.searchRecords(base, base, "全部", null);
+
+        for (int i = 0; i < 600; i++) {
+            List<Record> all = service.getAllRecords();
+            int action = random.nextInt(10);
+            Record r = new Record(random.nextBoolean() ? "支出" : "收入", random.nextInt(500), "餐饮",
+                    base.plusDays(random.nextInt(120)), "n" + i);
+            if (action < 6 || all.isEmpty()) {
+                service.addRecord(r);
+            } else if (action < 8) {
+                service.updateRecord(all.get(random.nextInt(all.size())), r);
+            } else {
+                service.deleteRecord(all.get(random.nextInt(all.size())));
+            }
+
+            LocalDate start = base.plusDays(random.nextInt(120));
+            LocalDate end = start.plusDays(random.nextInt(30));
+            List<Record> expected = service.getAllRecords().stream()
+                    .filter(x -> !x.getDate().isBefore(start) && !x.getDate().isAfter(end))
+                    .collect(Collectors.toList());
+            assertEquals(expected, service.searchRecords(start, end, "全部", ""));
+        }
+    }
+
+    @Test
+    @DisplayName("DateIndex: records 被整体替换后自动重建")
+    void testRebuildAfterReplace() throws Exception {
+        AccountService service = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat")));
+        List<Record> replacement = new ArrayList<>();
+        replacement.add(new Record("支出", 1.0, "餐饮", LocalDate.of(2025, 1, 1), "a"));
+        replacement.add(new Record("支出", 2.0, "餐饮", LocalDate.of(2025, 3, 1), "b"));
+        java.lang.reflect.Field field = AccountService.class.getDeclaredField("records");
+        field.setAccessible(true);
+        field.set(service, replacement);
+
+        List<Record> result = service.searchRecords(LocalDate.of(2025, 2, 1), null, "全部", null);
+        assertEquals(1, result.size());
+        assertEquals(2.0, result.get(0).getAmount(), 0.001);
+    }
+}
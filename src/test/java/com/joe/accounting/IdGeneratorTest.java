@@ -0,0 +1,144 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Id: 时钟回拨、同毫秒大量生成时仍严格递增")
+    void testMonotonicAcrossClockRollback() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        MonotonicIdGenerator generator = new MonotonicIdGenerator(now::get);
+        long prev = 0;
+        for (int i = 0; i < 3000; i++) {
+            if (i == 1000) now.addAndGet(-5000); // 时钟回拨
+            if (i == 2000) now.addAndGet(60_000);
+            long id = generator.nextId();
+            assertTrue(id > prev);
+            prev = id;
+        }
+        assertEquals(now.get(), MonotonicIdGenerator.timestampOf(prev));
+    }
+
+    @Test
+    @DisplayName("Id: 多线程并发生成不重复")
+    void testUniqueAcrossThreads() throws Exception {
+        MonotonicIdGenerator shared = new MonotonicIdGenerator();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) ids.add(shared.nextId());
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Id: advancePast 之后生成的 id 比给定值大，给更小的值不回退")
+    void testAdvancePast() {
+        long now = 1_700_000_000_000L;
+        MonotonicIdGenerator generator = new MonotonicIdGenerator(() -> now);
+        long future = (1_900_000_000_000L - MonotonicIdGenerator.EPOCH_MILLIS) << MonotonicIdGenerator.SEQUENCE_BITS;
+        generator.advancePast(future);
+        long id = generator.nextId();
+        assertTrue(id > future);
+        generator.advancePast(1);
+        assertTrue(generator.nextId() > id);
+    }
+
+    @Test
+    @DisplayName("Id: 新记录的数字 id 和字符串形式互相还原")
+    void testNumericIdRoundTrip() {
+        Record fresh = new Record("支出", 3.0, "交通", LocalDate.of(2025, 1, 2), "新记录");
+        assertEquals(fresh.getKey(), Long.parseLong(fresh.getId()));
+        assertEquals(fresh, new Record(fresh.getId(), "x", 0, null, null, null), "数字 id 的字符串形式还原后应相等");
+    }
+
+    // 默认序列化文件里的旧 UUID 记录和自定义 id 记录
+    private static final String LEGACY_UUID = UUID.randomUUID().toString();
+
+    private LedgerConfig legacyLedger(String mode) throws Exception {
+        Path legacyFile = dir.resolve("account_data.dat");
+        new SerializedLedgerStore(legacyFile.toFile()).saveRecords(List.of(
+                new Record(LEGACY_UUID, "支出", 12.5, "餐饮", LocalDate.of(2024, 12, 1), "旧数据"),
+                new Record("custom-id", "收入", 1.0, null, null, null)));
+        LedgerConfig config = new LedgerConfig().setDataFile(legacyFile);
+        return switch (mode) {
+            case "columnar" -> config.setStorage(LedgerConfig.STORAGE_JOURNAL).setMemory(LedgerConfig.MEMORY_COLUMNAR);
+            case "lazy" -> config.setStorage(LedgerConfig.STORAGE_BINARY).setLazy(true);
+            default -> config.setStorage(LedgerConfig.STORAGE_BINARY);
+        };
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"binary", "columnar", "lazy"})
+    @DisplayName("Id: 旧的 UUID 记录和新的数字 id 记录混在一起，各种存储下都能按 id 找到")
+    void testLegacyUuidAndNumericIds(String mode) throws Exception {
+        LedgerConfig config = legacyLedger(mode);
+        Record fresh = new Record("支出", 3.0, "交通", LocalDate.of(2025, 1, 2), "新记录");
+        new AccountService(config).addRecord(fresh);
+
+        AccountService reloaded = new AccountService(config);
+        assertEquals("旧数据", reloaded.getById(LEGACY_UUID).getNote());
+        assertEquals(new Record(LEGACY_UUID, "x", 0, null, null, null), reloaded.getById(LEGACY_UUID));
+        assertNotNull(reloaded.getById("custom-id"));
+        Record loadedFresh = reloaded.getById(fresh.getId());
+        assertEquals(fresh, loadedFresh);
+        assertEquals(fresh.getKey(), loadedFresh.getKey());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {LedgerConfig.STORAGE_SERIALIZED, LedgerConfig.STORAGE_JOURNAL,
+            LedgerConfig.STORAGE_BINARY, LedgerConfig.STORAGE_PARTITIONED})
+    @DisplayName("Id: 打开账本后新 id 从已存的最大 id 之后开始，时钟回拨后重启也不会撞上")
+    void testSeededFromLoadedKeys(String storage) throws Exception {
+        long future = (1_900_000_000_000L - MonotonicIdGenerator.EPOCH_MILLIS) << MonotonicIdGenerator.SEQUENCE_BITS;
+        long past = 1_600_000_000_000L;
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(storage).setMemory(LedgerConfig.STORAGE_JOURNAL.equals(storage)
+                        ? LedgerConfig.MEMORY_COLUMNAR : LedgerConfig.MEMORY_OBJECTS)
+                .setLazy(LedgerConfig.STORAGE_BINARY.equals(storage));
+        AccountService service = new AccountService(config);
+        service.addRecords(List.of(
+                new Record(future, "支出", 1.0, "餐饮", LocalDate.of(2025, 1, 1), null),
+                new Record(future + 7, "支出", 2.0, "交通", LocalDate.of(2025, 2, 1), null)));
+        service.close();
+
+        Record.setIdGenerator(new MonotonicIdGenerator(() -> past)); // 模拟重启后时钟比写入时早
+        try {
+            AccountService reloaded = new AccountService(config);
+            Record fresh = new Record("支出", 3.0, "购物", LocalDate.of(2025, 3, 1), null);
+            assertTrue(fresh.getKey() > future + 7);
+            if (reloaded.getAllRecords() instanceof PartitionedRecordList) {
+                assertEquals(0, ((PartitionedRecordList) reloaded.getAllRecords()).getMappedSegments(), "清单里记了最大 id");
+            }
+            reloaded.addRecord(fresh);
+            assertEquals(3, new AccountService(config).getRecordCount());
+        } finally {
+            Record.setIdGenerator(new MonotonicIdGenerator());
+        }
+    }
+}
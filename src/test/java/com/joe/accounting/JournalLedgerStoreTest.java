@@ -0,0 +1,196 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalLedgerStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private LedgerConfig config(int compactThreshold) {
+        return new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setJournalCompactThreshold(compactThreshold);
+    }
+
+    @Test
+    @DisplayName("Journal: 未压缩前增删改只追加日志，不重写快照")
+    void testMutationsOnlyAppend() throws Exception {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        Record r = new Record("支出", 100.0, "餐饮", LocalDate.of(2025, 1, 1), "午餐");
+        service.addRecord(r);
+        long size = Files.size(config.journalFile());
+        service.updateRecord(r, new Record("支出", 120.0, "餐饮", LocalDate.of(2025, 1, 1), "午餐+饮料"));
+        service.deleteRecord(r);
+
+        assertFalse(Files.exists(config.getDataFile()), "未压缩前不应重写快照");
+        assertTrue(Files.size(config.journalFile()) > size, "修改追加在日志末尾");
+    }
+
+    @Test
+    @DisplayName("Journal: 重启后按快照+日志恢复")
+    void testReplayAfterRestart() {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        Record r1 = new Record("支出", 100.0, "餐饮", LocalDate.of(2025, 1, 1), "午餐");
+        Record r2 = new Record("收入", 5000.0, "工资", LocalDate.of(2025, 1, 10), null);
+        Record r3 = new Record("支出", 50.0, "交通", LocalDate.of(2025, 1, 5), "地铁");
+        service.addRecord(r1);
+        service.addRecord(r2);
+        service.addRecord(r3);
+        service.updateRecord(r1, new Record("支出", 120.0, "餐饮", LocalDate.of(2025, 1, 1), "午餐+饮料"));
+        service.deleteRecord(r3);
+
+        List<Record> loaded = new AccountService(config).getAllRecords();
+        assertEquals(2, loaded.size());
+        assertEquals(120.0, loaded.get(0).getAmount(), 0.001);
+        assertEquals("午餐+饮料", loaded.get(0).getNote());
+        assertEquals(r2.getId(), loaded.get(1).getId());
+        assertNull(loaded.get(1).getNote());
+    }
+
+    @Test
+    @DisplayName("Journal: 超过阈值后压缩为快照并清空日志")
+    void testCompaction() throws Exception {
+        LedgerConfig config = config(3);
+        AccountService service = new AccountService(config);
+        for (int i = 0; i < 5; i++) {
+            service.addRecord(new Record("支出", i, "餐饮", LocalDate.of(2025, 1, 1 + i), "n" + i));
+        }
+        assertTrue(Files.exists(config.getDataFile()), "压缩后应写出快照");
+        assertTrue(Files.size(config.journalFile()) > 0, "压缩后的新变更继续写入日志");
+
+        List<Record> loaded = new AccountService(config).getAllRecords();
+        assertEquals(5, loaded.size());
+        assertEquals(4.0, loaded.get(4).getAmount(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Journal: 末尾写了一半的条目会被丢弃")
+    void testTornTail() throws Exception {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        service.addRecord(new Record("支出", 10.0, "餐饮", LocalDate.of(2025, 3, 1), "a"));
+        service.addRecord(new Record("支出", 20.0, "餐饮", LocalDate.of(2025, 3, 2), "b"));
+
+        long size = Files.size(config.journalFile());
+        try (RandomAccessFile raf = new RandomAccessFile(config.journalFile().toFile(), "rw")) {
+            raf.setLength(size - 3);
+        }
+
+        AccountService reloaded = new AccountService(config);
+        assertEquals(1, reloaded.getAllRecords().size());
+        reloaded.addRecord(new Record("收入", 30.0, "奖金", LocalDate.of(2025, 3, 3), "c"));
+        assertEquals(2, new AccountService(config).getAllRecords().size());
+    }
+
+    @Test
+    @DisplayName("Journal: 日志里同一个 id 新增了两次时启动失败，不悄悄跳过")
+    void testDuplicateAddFailsReplay() {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        Record r = new Record("支出", 10.0, "餐饮", LocalDate.of(2025, 3, 1), "a");
+        service.addRecord(r);
+        service.addRecord(r);
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> new AccountService(config));
+        assertTrue(e.getMessage().contains(r.getId()));
+    }
+
+    @Test
+    @DisplayName("Journal: 压缩换好快照后、清空日志前崩溃，重启时不会重复回放")
+    void testCrashAfterSnapshotReplaced() throws Exception {
+        LedgerConfig config = config(3);
+        AccountService service = new AccountService(config);
+        for (int i = 0; i < 3; i++) {
+            service.addRecord(new Record("支出", i, "餐饮", LocalDate.of(2025, 1, 1 + i), "n" + i));
+        }
+        byte[] journal = Files.readAllBytes(config.journalFile());
+        service.addRecord(new Record("支出", 3, "餐饮", LocalDate.of(2025, 1, 4), "n3")); // 触发压缩
+        assertEquals(0, Files.size(config.journalFile()));
+
+        // 还原成崩溃时的样子：旧日志 + 压缩标记，快照已经是新的
+        List<Record> snapshot = new SerializedLedgerStore(config.getDataFile().toFile()).readRecords();
+        Files.write(config.journalFile(), withMarker(journal, snapshot));
+        assertEquals(4, new AccountService(config).getRecordCount());
+        assertEquals(0, Files.size(config.journalFile()), "已经合并过的日志被清空");
+    }
+
+    @Test
+    @DisplayName("Journal: 压缩标记和快照对不上 (快照还没换) 时照常回放日志")
+    void testCrashBeforeSnapshotReplaced() throws Exception {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        List<Record> records = List.of(
+                new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 1), null),
+                new Record("支出", 2, "交通", LocalDate.of(2025, 1, 2), null));
+        records.forEach(service::addRecord);
+        service.close();
+
+        Files.write(config.journalFile(), withMarker(Files.readAllBytes(config.journalFile()), records));
+        AccountService reloaded = new AccountService(config);
+        assertEquals(2, reloaded.getRecordCount());
+        reloaded.addRecord(new Record("收入", 3, "工资", LocalDate.of(2025, 1, 3), null));
+        assertEquals(3, new AccountService(config).getRecordCount());
+    }
+
+    @Test
+    @DisplayName("Journal: 快照读不出来时启动失败，不会当成空账本再把快照覆盖掉")
+    void testCorruptSnapshotStopsStartup() throws Exception {
+        LedgerConfig config = config(3);
+        AccountService service = new AccountService(config);
+        for (int i = 0; i < 4; i++) {
+            service.addRecord(new Record("支出", i, "餐饮", LocalDate.of(2025, 1, 1 + i), "n" + i)); // 第 4 条触发压缩
+        }
+        service.close();
+        byte[] snapshot = Files.readAllBytes(config.getDataFile());
+        snapshot[snapshot.length / 2] ^= 0x5A;
+        Files.write(config.getDataFile(), snapshot);
+
+        assertThrows(UncheckedIOException.class, () -> new AccountService(config));
+        assertArrayEquals(snapshot, Files.readAllBytes(config.getDataFile()), "快照保持不动");
+    }
+
+    @Test
+    @DisplayName("Journal: 日志里删除了不存在的 id 时启动失败，不悄悄跳过")
+    void testDeleteOfUnknownIdFailsReplay() throws Exception {
+        LedgerConfig config = config(1000);
+        AccountService service = new AccountService(config);
+        Record r = new Record("支出", 10.0, "餐饮", LocalDate.of(2025, 3, 1), "a");
+        service.addRecord(r);
+        service.deleteRecord(r);
+        service.close();
+
+        // 去掉第一条 (新增)，只剩下删除：[长度][内容][CRC]
+        byte[] journal = Files.readAllBytes(config.journalFile());
+        int first = 8 + java.nio.ByteBuffer.wrap(journal).getInt();
+        Files.write(config.journalFile(), java.util.Arrays.copyOfRange(journal, first, journal.length));
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> new AccountService(config));
+        assertTrue(e.getCause().getMessage().contains(r.getId()), e.getCause().getMessage());
+    }
+
+    private static byte[] withMarker(byte[] journal, List<Record> snapshot) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(journal);
+        DataOutputStream out = new DataOutputStream(bytes);
+        JournalLedgerStore.writeEntry(out, JournalLedgerStore.compactMarker(snapshot));
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
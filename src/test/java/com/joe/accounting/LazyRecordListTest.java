@@ -0,0 +1,84 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyRecordListTest {
+
+    @TempDir
+    Path dir;
+
+    private LedgerConfig lazyConfig() throws Exception {
+        LedgerConfig config = new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_BINARY)
+                .setLazy(true)
+                .setLazyPageSize(100)
+                .setLazyCachePages(4);
+        List<Record> records = new ArrayList<>();
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            records.add(new Record(i % 2 == 0 ? "支出" : "收入", i, "分类" + (i % 5), start.plusDays(i), "备注" + i));
+        }
+        BinaryLedgerFile.write(config.binaryFile(), records);
+        return config;
+    }
+
+    @Test
+    @DisplayName("Lazy: 启动时不解码任何记录，只在访问时按页解码")
+    void testDecodeOnDemand() throws Exception {
+        AccountService service = new AccountService(lazyConfig());
+        LazyRecordList records = (LazyRecordList) service.getAllRecords();
+        assertEquals(1000, records.size());
+        assertEquals(0, records.getDecodedPages(), "构造 Service 不应解码记录");
+
+        assertEquals(555.0, records.get(555).getAmount(), 0.001);
+        assertEquals(1, records.getDecodedPages());
+    }
+
+    @Test
+    @DisplayName("Lazy: 全量查询会触碰所有页，但缓存始终有界")
+    void testPageCacheBounded() throws Exception {
+        AccountService service = new AccountService(lazyConfig());
+        LazyRecordList records = (LazyRecordList) service.getAllRecords();
+        assertEquals(500, service.searchRecords(null, null, "支出", null).size());
+        assertEquals(4, records.getCachedPages());
+    }
+
+    @Test
+    @DisplayName("Lazy: 增改删后保存，列表切换到新文件且数据一致")
+    void testMutationsAndRebase() throws Exception {
+        LedgerConfig config = lazyConfig();
+        AccountService service = new AccountService(config);
+        LazyRecordList records = (LazyRecordList) service.getAllRecords();
+
+        Record old = records.get(10);
+        service.updateRecord(old, new Record("支出", 9999.0, "分类0", old.getDate(), "改过"));
+        service.addRecord(new Record("收入", 1.0, "奖金", LocalDate.of(2025, 1, 1), "新增"));
+        service.deleteRecord(records.get(20));
+        assertFalse(records.isMaterialized(), "保存后应重新基于新文件懒加载");
+
+        AccountService reloaded = new AccountService(config);
+        List<Record> all = reloaded.getAllRecords();
+        assertEquals(1000, all.size());
+        assertEquals(9999.0, all.get(10).getAmount(), 0.001);
+        assertEquals("新增", all.get(999).getNote());
+        assertEquals(21.0, all.get(20).getAmount(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Lazy: 不能和异步写入同时开启")
+    void testLazyRejectsAsync() throws Exception {
+        LedgerConfig config = lazyConfig().setAsync(true);
+        assertThrows(IllegalArgumentException.class, config::createStore);
+        assertThrows(IllegalArgumentException.class, () -> new AccountService(config));
+    }
+}
@@ -0,0 +1,85 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerAggregatesTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService() {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+    }
+
+    private final Record lunch = new Record("支出", 100.0, "餐饮", LocalDate.of(2025, 1, 1), "午餐");
+    private final Record bus = new Record("支出", 50.0, "交通", LocalDate.of(2025, 2, 5), "公交");
+    private final Record salary = new Record("收入", 5000.0, "工资", LocalDate.of(2025, 1, 10), "工资");
+
+    private AccountService sampleService() {
+        AccountService service = newService();
+        service.addRecord(lunch);
+        service.addRecord(bus);
+        service.addRecord(salary);
+        return service;
+    }
+
+    @Test
+    @DisplayName("Aggregates: 新增后总额同步更新")
+    void testTotalsAfterAdd() {
+        assertEquals(0.0, newService().calculateTotal("支出"), 0.001);
+        AccountService service = sampleService();
+        assertEquals(150.0, service.calculateTotal("支出"), 0.001);
+        assertEquals(5000.0, service.calculateTotal("收入"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Aggregates: 改了月份和类型后，原来月份的合计消失，新的月份和类型加上")
+    void testUpdateMovesMonthAndType() {
+        AccountService service = sampleService();
+        // 把午餐改到 2 月并改为收入，原来 1 月的支出应消失
+        service.updateRecord(lunch, new Record("收入", 80.0, "奖金", LocalDate.of(2025, 2, 1), "红包"));
+        Map<String, Double> expense = service.getMonthlyStats("支出");
+        assertEquals(1, expense.size());
+        assertEquals(50.0, expense.get("2025-02"), 0.001);
+        Map<String, Double> income = service.getMonthlyStats("收入");
+        assertEquals(5000.0, income.get("2025-01"), 0.001);
+        assertEquals(80.0, income.get("2025-02"), 0.001);
+        assertEquals(5080.0, service.calculateTotal("收入"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Aggregates: 删掉某月最后一条记录后，该月从月度合计里去掉")
+    void testDeleteRemovesEmptyMonth() {
+        AccountService service = sampleService();
+        service.deleteRecord(lunch);
+        service.deleteRecord(bus);
+        assertEquals(0.0, service.calculateTotal("支出"), 0.001);
+        assertTrue(service.getMonthlyStats("支出").isEmpty());
+        assertEquals(5000.0, service.getMonthlyStats("收入").get("2025-01"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Aggregates: 按分累加，反复增删不会产生浮点误差")
+    void testNoDrift() {
+        AccountService service = newService();
+        for (int i = 0; i < 1000; i++) {
+            service.addRecord(new Record("支出", 0.1, "餐饮", LocalDate.of(2025, 3, 1), "x"));
+        }
+        assertEquals(100.0, service.calculateTotal("支出"));
+        for (int i = 0; i < 999; i++) {
+            service.deleteRecord(service.getAllRecords().get(0));
+        }
+        assertEquals(0.1, service.calculateTotal("支出"));
+        assertEquals(0.1, service.getMonthlyStats("支出").get("2025-03"));
+    }
+}
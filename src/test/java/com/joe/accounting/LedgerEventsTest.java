@@ -0,0 +1,112 @@
+package com.joe.accounting;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerEventsTest {
+
+    @TempDir
+    static Path dir;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+    private static Map<String, List<RecordedEvent>> byName;
+    private static String testThread;
+
+    // 录制一次：加载、单条新增、批量新增、筛选、全文搜索、总额
+    @BeforeAll
+    static void record() throws Exception {
+        Path file = dir.resolve("ledger.jfr");
+        testThread = Thread.currentThread().getName();
+        try (Recording recording = FlightRecording.start(file, "default")) {
+            LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                    .setStorage(LedgerConfig.STORAGE_JOURNAL);
+            AccountService service = new AccountService(config);
+            service.addRecord(new Record("支出", 10, "餐饮", DAY, "午饭"));
+            service.addRecords(List.of(new Record("支出", 20, "交通", DAY, null), new Record("收入", 500, "工资", DAY, null)));
+            service.searchRecordsAny(DAY, DAY, List.of("支出"), List.of("餐饮", "交通"));
+            service.searchText("午饭", AccountService.TextMatch.SUBSTRING, 10);
+            service.calculateTotal("支出");
+            service.close();
+            recording.stop();
+        }
+        byName = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.joe.accounting."))
+                .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+    }
+
+    private static RecordedEvent query(String operation) {
+        return byName.get("com.joe.accounting.Query").stream()
+                .filter(e -> operation.equals(e.getString("operation"))).findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 加载事件带条数和执行线程")
+    void testLoadEvent() {
+        RecordedEvent load = byName.get("com.joe.accounting.Load").get(0);
+        assertEquals(0, load.getInt("records"));
+        assertEquals(testThread, load.getThread().getJavaName());
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 每次提交一个保存事件，带操作数、条数和字节数")
+    void testSaveEvents() {
+        List<RecordedEvent> saves = byName.get("com.joe.accounting.Save");
+        assertEquals(2, saves.size());
+        assertEquals(2, saves.get(1).getInt("ops"));
+        assertEquals(3, saves.get(1).getInt("records"));
+        assertTrue(saves.get(1).getLong("bytes") > 0);
+        assertFalse(saves.get(1).getBoolean("failed"));
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 修改事件带改动的行数")
+    void testMutationEvents() {
+        List<RecordedEvent> mutations = byName.get("com.joe.accounting.Mutation");
+        assertEquals(List.of(1, 2), mutations.stream().map(e -> e.getInt("rows")).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 筛选事件带条件、扫描条数和结果数")
+    void testSearchEvent() {
+        RecordedEvent search = query("search");
+        assertEquals("date[2025-04-01,2025-04-01] type=支出 category=餐饮|交通", search.getString("predicate"));
+        assertEquals(3, search.getInt("records"));
+        assertEquals(2, search.getInt("results"));
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 全文搜索事件带匹配方式和关键词")
+    void testTextEvent() {
+        RecordedEvent text = query("text");
+        assertEquals("SUBSTRING \"午饭\"", text.getString("predicate"));
+        assertEquals(1, text.getInt("results"));
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 统计事件带操作和类型")
+    void testAggregateEvent() {
+        RecordedEvent total = byName.get("com.joe.accounting.Aggregate").get(0);
+        assertEquals("total", total.getString("operation"));
+        assertEquals("支出", total.getString("type"));
+    }
+
+    @Test
+    @DisplayName("JFR 事件: 条件的形状")
+    void testPredicateShape() {
+        assertEquals("all", LedgerEvents.predicate(null, null, null, null));
+        assertEquals("date[,2025-01-31] type=收入", LedgerEvents.predicate(null, LocalDate.of(2025, 1, 31), List.of("收入"), null));
+    }
+}
@@ -0,0 +1,136 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerExporterTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService() {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+    }
+
+    // 一月的两条支出，其中分类和备注带逗号、引号、换行
+    private Path exportJanuaryExpenses(long[] last) throws Exception {
+        AccountService service = newService();
+        service.addRecord(new Record("支出", 12.5, "餐饮", LocalDate.of(2025, 1, 1), "午饭, 加了个蛋"));
+        service.addRecord(new Record("支出", 0.05, "购物,网购", LocalDate.of(2025, 1, 2), "\"引号\"开头\n换行"));
+        service.addRecord(new Record("收入", 8000, "工资", LocalDate.of(2025, 1, 3), null));
+        service.addRecord(new Record("支出", 3, "交通", LocalDate.of(2025, 2, 1), null));
+
+        List<Record> view = service.searchView(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), "支出", null);
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 5), "导出开始后才加的"));
+
+        Path csv = dir.resolve("out.csv");
+        long written = new LedgerExporter(LedgerExporter.Format.CSV).export(view, csv, (w, t) -> { last[0] = w; last[1] = t; });
+        assertEquals(2, written);
+        return csv;
+    }
+
+    @Test
+    @DisplayName("导出: CSV 只导出筛选结果，之后新加的记录不在里面，进度报到最后一条")
+    void testCsvExportOfQuery() throws Exception {
+        long[] last = new long[2];
+        Path csv = exportJanuaryExpenses(last);
+        assertArrayEquals(new long[]{2, 2}, last);
+        assertEquals(3, Files.readAllLines(csv, CsvImporter.GBK).size());
+        assertFalse(Files.exists(AtomicFiles.tempFile(csv)));
+    }
+
+    @Test
+    @DisplayName("导出: CSV 格式与原来的 String.format 一致，逗号、引号、换行正确转义")
+    void testCsvFormat() throws Exception {
+        Path csv = exportJanuaryExpenses(new long[2]);
+        List<String> lines = Files.readAllLines(csv, CsvImporter.GBK);
+        assertEquals(List.of(
+                "日期,类型,分类,金额,备注",
+                String.format("%s,%s,%s,%.2f,%s", LocalDate.of(2025, 1, 1), "支出", "餐饮", 12.5, "午饭, 加了个蛋"),
+                "2025-01-02,支出,\"购物,网购\",0.05,\"\"\"引号\"\"开头 换行\""), lines);
+    }
+
+    @Test
+    @DisplayName("导出: 导出的 CSV 能再导入")
+    void testCsvReimport() throws Exception {
+        Path csv = exportJanuaryExpenses(new long[2]);
+        AccountService other = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("other.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+        assertEquals(2, new CsvImporter(other).importFile(csv, null).getImported());
+        assertEquals("购物,网购", other.getAllRecords().get(1).getCategory());
+        assertEquals("\"引号\"开头 换行", other.getAllRecords().get(1).getNote());
+    }
+
+    private static List<Record> manyRows() {
+        List<Record> rows = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            rows.add(new Record(i % 2 == 0 ? "支出" : "收入", i / 100.0, "分类" + (i % 7),
+                    i % 1000 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i % 365), i % 3 == 0 ? null : "备注" + i));
+        }
+        rows.add(new Record("custom-id", "支出", -1.5, null, null, "自定义 id"));
+        return rows;
+    }
+
+    @Test
+    @DisplayName("导出: 二进制格式可以读回，字段完全一致")
+    void testBinaryExport() throws Exception {
+        List<Record> rows = manyRows();
+        Path bin = dir.resolve("out.bkex");
+        LedgerExporter exporter = new LedgerExporter(LedgerExporter.Format.BINARY);
+        assertEquals(rows.size(), exporter.start(rows, bin, null).get(30, TimeUnit.SECONDS));
+        List<Record> back = LedgerExporter.readBinary(bin);
+        assertEquals(rows, back); // 按 id 比较
+        for (int i : new int[]{0, 1, 1000, 199_999, 200_000}) {
+            Record expected = rows.get(i);
+            Record actual = back.get(i);
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getNote(), actual.getNote());
+        }
+    }
+
+    @Test
+    @DisplayName("导出: 后台任务可以取消，目标文件保持原样，不留下半个文件")
+    void testCancel() throws Exception {
+        List<Record> rows = manyRows();
+        Path bin = dir.resolve("out.bkex");
+        Files.writeString(bin, "上一次导出的内容");
+        long before = Files.size(bin);
+
+        // 第一次进度回调时取消
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        LedgerExporter.Task task = new LedgerExporter(LedgerExporter.Format.CSV).start(rows, bin, (w, t) -> {
+            started.countDown();
+            try {
+                cancelled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+        assertTrue(task.cancel(true));
+        cancelled.countDown();
+        assertThrows(CancellationException.class, task::get);
+        for (int i = 0; i < 100 && Files.exists(AtomicFiles.tempFile(bin)); i++) Thread.sleep(50);
+        assertFalse(Files.exists(AtomicFiles.tempFile(bin)));
+        assertEquals(before, Files.size(bin));
+    }
+}
@@ -0,0 +1,105 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+    private static final int COUNT = 200_000;
+
+    // 生成三年的账本并作为二进制账本打开
+    private AccountService generatedLedger() throws Exception {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat")).setStorage(LedgerConfig.STORAGE_BINARY);
+        assertEquals(COUNT, new LedgerGenerator(7, START, 3).writeBinary(config.binaryFile(), COUNT));
+        return new AccountService(config);
+    }
+
+    @Test
+    @DisplayName("生成器: 同一种子生成同样的文件")
+    void testReproducible() throws Exception {
+        Path a = dir.resolve("a.ledger");
+        Path b = dir.resolve("b.ledger");
+        new LedgerGenerator(7, START, 3).writeBinary(a, COUNT);
+        new LedgerGenerator(7, START, 3).writeBinary(b, COUNT);
+        assertArrayEquals(Files.readAllBytes(a), Files.readAllBytes(b));
+    }
+
+    @Test
+    @DisplayName("生成器: 可以直接作为二进制账本打开，类型、分类、金额、日期都合法且大致按时间顺序")
+    void testValidBinaryLedger() throws Exception {
+        AccountService service = generatedLedger();
+        List<Record> records = service.getAllRecords();
+        assertEquals(COUNT, records.size());
+
+        Set<String> expense = Set.of(LedgerGenerator.EXPENSE_CATEGORIES);
+        Set<String> income = Set.of(LedgerGenerator.INCOME_CATEGORIES);
+        LocalDate previous = START;
+        int notes = 0;
+        for (Record r : records) {
+            assertTrue("支出".equals(r.getType()) ? expense.contains(r.getCategory()) : income.contains(r.getCategory()));
+            assertTrue(r.getAmount() > 0);
+            assertFalse(r.getDate().isBefore(START) || r.getDate().isAfter(LocalDate.of(2023, 1, 1)));
+            assertFalse(r.getDate().isBefore(previous.minusDays(3)), "大致按时间顺序");
+            previous = r.getDate().isAfter(previous) ? r.getDate() : previous;
+            if (r.getNote() != null) notes++;
+        }
+        assertTrue(notes > records.size() / 2);
+        service.close();
+    }
+
+    @Test
+    @DisplayName("生成器: 数据按月份有季节性 (年终奖、双十一)")
+    void testSeasonality() throws Exception {
+        AccountService service = generatedLedger();
+        int[] bonusByMonth = new int[13];
+        int[] shoppingByMonth = new int[13];
+        for (Record r : service.getAllRecords()) {
+            if ("奖金".equals(r.getCategory())) bonusByMonth[r.getDate().getMonthValue()]++;
+            if ("购物".equals(r.getCategory())) shoppingByMonth[r.getDate().getMonthValue()]++;
+        }
+        assertTrue(bonusByMonth[Month.JANUARY.getValue()] > 5 * bonusByMonth[Month.APRIL.getValue()], "年终奖集中在一月");
+        assertTrue(shoppingByMonth[Month.NOVEMBER.getValue()] > 2 * shoppingByMonth[Month.APRIL.getValue()], "双十一");
+        service.close();
+    }
+
+    @Test
+    @DisplayName("生成器: 金额偏斜，平均值明显高于中位数")
+    void testSkewedAmounts() throws Exception {
+        AccountService service = generatedLedger();
+        double[] amounts = service.searchRecords(null, null, "支出", "购物").stream().mapToDouble(Record::getAmount).sorted().toArray();
+        double mean = java.util.Arrays.stream(amounts).average().orElse(0);
+        assertTrue(mean > 1.3 * amounts[amounts.length / 2]);
+        service.close();
+    }
+
+    @Test
+    @DisplayName("压测驱动: 多线程混合读写，统计吞吐和各操作的延迟")
+    void testLoadDriver() throws Exception {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL).setConcurrent(true);
+        AccountService service = new AccountService(config);
+        service.addRecords(new LedgerGenerator(1, LocalDate.of(2024, 1, 1), 1).generate(5000));
+
+        LoadDriver.Result result = new LoadDriver().setThreads(4).setWarmupSeconds(0).setDurationSeconds(1)
+                .setWritePercent(20).run(service);
+        assertTrue(result.operations > 0);
+        assertEquals(0, result.errors);
+        assertTrue(result.latency.keySet().containsAll(List.of("search", "stats", "add")), result.latency.keySet().toString());
+        assertTrue(result.toString().contains("p999ms"));
+        service.close();
+    }
+}
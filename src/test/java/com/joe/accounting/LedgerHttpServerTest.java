@@ -0,0 +1,187 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerHttpServerTest {
+
+    @TempDir
+    Path dir;
+
+    private LedgerHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        AccountService service = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setConcurrent(true));
+        server = new LedgerHttpServer(service, 0, RequestExecutors.create(RequestExecutors.POOL, 4, 16));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String form) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+        HttpRequest.BodyPublisher body = form == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(form);
+        builder.method(method, body).header("Content-Type", "application/x-www-form-urlencoded");
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static String enc(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String idOf(String json) {
+        Matcher m = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(json);
+        assertTrue(m.find(), json);
+        return m.group(1);
+    }
+
+    // 新增一条 3 月 1 日的午饭支出，返回它的 id
+    private String postLunch() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/records",
+                "type=" + enc("支出") + "&amount=25.5&category=" + enc("餐饮") + "&date=2025-03-01&note=" + enc("午饭 \"加蛋\""));
+        assertEquals(201, created.statusCode(), created.body());
+        return idOf(created.body());
+    }
+
+    private void postSalary() throws Exception {
+        assertEquals(201, send("POST", "/api/records", "type=" + enc("收入") + "&amount=5000&category=" + enc("工资") + "&date=2025-03-10").statusCode());
+    }
+
+    @Test
+    @DisplayName("HTTP: 新增返回 201 和记录 JSON，字符串转义")
+    void testCreate() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/records",
+                "type=" + enc("支出") + "&amount=25.5&category=" + enc("餐饮") + "&date=2025-03-01&note=" + enc("午饭 \"加蛋\""));
+        assertEquals(201, created.statusCode(), created.body());
+        assertTrue(created.body().contains("\\\"加蛋\\\""), "字符串应转义");
+        assertEquals(200, send("GET", "/api/records/" + idOf(created.body()), null).statusCode());
+    }
+
+    @Test
+    @DisplayName("HTTP: 按日期和类型查询记录")
+    void testSearch() throws Exception {
+        String id = postLunch();
+        postSalary();
+        HttpResponse<String> search = send("GET", "/api/records?start=2025-03-01&end=2025-03-31&type=" + enc("支出"), null);
+        assertEquals(200, search.statusCode());
+        assertEquals(id, idOf(search.body()));
+        assertFalse(search.body().contains("工资"));
+    }
+
+    @Test
+    @DisplayName("HTTP: 修改后保留原 id，总额和月度统计跟着变")
+    void testUpdateAndStats() throws Exception {
+        String id = postLunch();
+        postSalary();
+        HttpResponse<String> updated = send("PUT", "/api/records/" + id, "type=" + enc("支出") + "&amount=30&category=" + enc("餐饮") + "&date=2025-03-02");
+        assertEquals(200, updated.statusCode());
+        assertEquals(id, idOf(updated.body()), "修改后保留原 id");
+        assertEquals("{\"收入\":5000.0,\"支出\":30.0}", send("GET", "/api/totals", null).body());
+        assertEquals("{\"2025-03\":30.0}", send("GET", "/api/stats/monthly?type=" + enc("支出"), null).body());
+    }
+
+    @Test
+    @DisplayName("HTTP: 删除后再取返回 404")
+    void testDelete() throws Exception {
+        String id = postLunch();
+        assertEquals(200, send("DELETE", "/api/records/" + id, null).statusCode());
+        assertEquals(404, send("GET", "/api/records/" + id, null).statusCode());
+        assertEquals(404, send("DELETE", "/api/records/" + id, null).statusCode());
+    }
+
+    @Test
+    @DisplayName("HTTP: 参数不合法 (含 NaN / Infinity 金额) 返回 400，未知路径返回 404")
+    void testBadRequests() throws Exception {
+        assertEquals(400, send("POST", "/api/records", "type=" + enc("支出") + "&amount=abc").statusCode());
+        assertEquals(400, send("POST", "/api/records", "type=" + enc("支出") + "&amount=NaN").statusCode());
+        assertEquals(400, send("POST", "/api/records", "type=" + enc("支出") + "&amount=Infinity").statusCode());
+        String id = postLunch();
+        assertEquals(400, send("PUT", "/api/records/" + id, "type=" + enc("支出") + "&amount=-Infinity").statusCode());
+        assertEquals("{\"支出\":25.5}", send("GET", "/api/totals?type=" + enc("支出"), null).body());
+        assertEquals(400, send("GET", "/api/records?start=2025-13-01", null).statusCode());
+        assertEquals(404, send("GET", "/api/unknown", null).statusCode());
+    }
+
+    @Test
+    @DisplayName("HTTP: 每个接口的请求数和延迟指标，失败的请求也计数")
+    void testMetrics() throws Exception {
+        postLunch();
+        postSalary();
+        assertEquals(400, send("POST", "/api/records", "type=" + enc("支出") + "&amount=abc").statusCode());
+
+        String metrics = send("GET", "/api/metrics", null).body();
+        assertTrue(metrics.contains("\"POST /api/records\":{\"count\":3"), metrics);
+        assertTrue(metrics.contains("p99Millis"));
+    }
+
+    @Test
+    @DisplayName("HTTP: 并发写入全部成功，执行器有界时不丢请求")
+    void testConcurrentRequests() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/api/records"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("type=" + enc("支出") + "&amount=1&date=2025-04-01"))
+                    .build();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> f : futures) {
+            assertEquals(201, f.get().statusCode());
+        }
+        assertEquals("{\"支出\":200.0}", send("GET", "/api/totals?type=" + enc("支出"), null).body());
+        assertEquals(200, server.getMetrics().count("POST /api/records"));
+    }
+
+    @Test
+    @DisplayName("HTTP: 记录列表按 offset/limit 分页，参数越界返回 400")
+    void testRecordsPaging() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(idOf(send("POST", "/api/records", "type=" + enc("支出") + "&amount=" + (i + 1) + "&date=2025-05-0" + (i + 1)).body()));
+        }
+        String page = send("GET", "/api/records?offset=1&limit=2", null).body();
+        Matcher m = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(page);
+        List<String> pageIds = new ArrayList<>();
+        while (m.find()) pageIds.add(m.group(1));
+        assertEquals(ids.subList(1, 3), pageIds);
+
+        assertEquals("[]", send("GET", "/api/records?offset=10", null).body());
+
+        // 带条件时在筛选结果上分页
+        send("POST", "/api/records", "type=" + enc("收入") + "&amount=9&date=2025-05-02");
+        String filtered = send("GET", "/api/records?type=" + enc("支出") + "&start=2025-05-02&offset=1&limit=10", null).body();
+        Matcher fm = Pattern.compile("\"id\":\"([^\"]+)\"").matcher(filtered);
+        List<String> filteredIds = new ArrayList<>();
+        while (fm.find()) filteredIds.add(fm.group(1));
+        assertEquals(ids.subList(2, 5), filteredIds);
+        assertEquals(400, send("GET", "/api/records?limit=-1", null).statusCode());
+        assertEquals(400, send("GET", "/api/records?limit=100000", null).statusCode());
+        assertEquals(400, send("GET", "/api/records?offset=abc", null).statusCode());
+    }
+}
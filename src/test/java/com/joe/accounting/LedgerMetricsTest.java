@@ -0,0 +1,138 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("直方图: 分桶边界正确")
+    void testHistogramBuckets() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100_000; i++) {
+            long v = random.nextLong(Long.MAX_VALUE >>> random.nextInt(63));
+            int b = LatencyHistogram.bucketOf(v);
+            assertTrue(v <= LatencyHistogram.upperBound(b), "v=" + v);
+            assertTrue(b == 0 || v > LatencyHistogram.upperBound(b - 1), "v=" + v);
+        }
+    }
+
+    @Test
+    @DisplayName("直方图: 计数、最大值、均值准确，分位数误差在 1/16 以内")
+    void testHistogramAccuracy() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) h.record(v);
+        assertEquals(100_000, h.count());
+        assertEquals(100_000, h.max());
+        assertEquals(50_000.5, h.mean(), 1e-9);
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double exact = q * 100_000;
+            assertEquals(exact, h.percentile(q), exact / 16, "q=" + q);
+        }
+        assertEquals(100_000, h.percentile(1.0));
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+
+    private LedgerConfig config() {
+        return new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL).setMetricsJmx(true);
+    }
+
+    // 新增 2 条 (另有 1 条失败)、修改 1 条、查询 2 次、统计 2 次、删除 1 条
+    private static AccountService exercise(AccountService service) {
+        LocalDate day = LocalDate.of(2025, 4, 1);
+        service.addRecord(new Record("支出", 10, "餐饮", day, null));
+        service.addRecord(new Record("收入", 500, "工资", day, null));
+        Record r = service.getAllRecords().get(0);
+        service.updateRecord(r, new Record("支出", 12, "餐饮", day, "午饭"));
+        service.searchRecords(day, day, "支出", null);
+        service.searchRecords(day, day, "支出", null);
+        service.calculateTotal("支出");
+        service.getMonthlyStats("收入");
+        service.deleteById(service.getAllRecords().get(1).getId());
+        assertThrows(NullPointerException.class, () -> service.addRecord(null));
+        return service;
+    }
+
+    @Test
+    @DisplayName("运行指标: 各操作计数、写出字节数、错误数和查询缓存命中率")
+    void testServiceMetrics() throws Exception {
+        AccountService service = exercise(new AccountService(config()));
+        LedgerMetrics metrics = service.getMetrics();
+        Map<String, Map<String, Object>> summary = metrics.summary();
+        assertEquals(3L, summary.get("add").get("count"));
+        assertEquals(1L, summary.get("add").get("errors"));
+        assertEquals(1L, summary.get("update").get("count"));
+        assertEquals(1L, summary.get("delete").get("count"));
+        assertEquals(2L, summary.get("search").get("count"));
+        assertEquals(2L, summary.get("aggregate").get("count"));
+        assertEquals(1L, summary.get("load").get("count"));
+        assertEquals(4L, summary.get("save").get("count"));
+        assertEquals(1L, summary.get("ledger").get("recordCount"));
+        assertTrue((Long) summary.get("ledger").get("bytesWritten") > 0);
+        assertEquals(0.5, (Double) summary.get("ledger").get("queryCacheHitRate"), 1e-9);
+        assertTrue(metrics.dump().contains("search"));
+        service.close();
+    }
+
+    @Test
+    @DisplayName("运行指标: 通过 JMX 可以读到，关闭后注销")
+    void testMetricsOverJmx() throws Exception {
+        LedgerConfig config = config();
+        AccountService service = exercise(new AccountService(config));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String ledger = ObjectName.quote(config.getDataFile().toAbsolutePath().toString());
+        ObjectName add = new ObjectName(LedgerMetrics.DOMAIN + ":type=Operation,ledger=" + ledger + ",name=add");
+        ObjectName overall = new ObjectName(LedgerMetrics.DOMAIN + ":type=Ledger,name=" + ledger);
+        assertEquals(3L, server.getAttribute(add, "Count"));
+        assertTrue((Double) server.getAttribute(add, "P99Millis") > 0);
+        assertEquals(1L, server.getAttribute(overall, "RecordCount"));
+        assertTrue((Long) server.getAttribute(overall, "HeapEstimateBytes") > 0);
+
+        service.close();
+        assertFalse(server.isRegistered(add));
+        assertFalse(server.isRegistered(overall));
+    }
+
+    @Test
+    @DisplayName("运行指标: 保存失败时计入错误并抛给调用方，不悄悄吞掉")
+    void testSaveFailureCounted() {
+        LedgerStore failing = new LedgerStore() {
+            @Override
+            public List<Record> load() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public void commit(List<LedgerOp> ops, Supplier<List<Record>> snapshot) throws IOException {
+                throw new IOException("磁盘满了");
+            }
+        };
+        AccountService service = new AccountService(failing);
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                () -> service.addRecord(new Record("支出", 10, "餐饮", LocalDate.of(2025, 4, 1), null)));
+        assertEquals("磁盘满了", e.getCause().getMessage());
+        Map<String, Map<String, Object>> summary = service.getMetrics().summary();
+        assertEquals(1L, summary.get("save").get("errors"));
+        assertEquals(1L, summary.get("add").get("errors"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService() {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setConcurrent(true));
+    }
+
+    // 5000 条记录，正好分成 5 段
+    private static List<String> addFiveSegments(AccountService service) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Record r = new Record("支出", 1.0, "餐饮", LocalDate.of(2025, 1, 1).plusDays(i % 300), "r" + i);
+            service.addRecord(r);
+            ids.add(r.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Snapshot: 没有写入时返回同一个快照，快照本身只读")
+    void testSnapshotReusedAndReadOnly() {
+        AccountService service = newService();
+        addFiveSegments(service);
+        LedgerSnapshot v1 = service.snapshot();
+        assertSame(v1, service.snapshot(), "没有写入时应返回同一个快照");
+        assertThrows(UnsupportedOperationException.class, () -> v1.add(null));
+        assertThrows(UnsupportedOperationException.class, () -> v1.remove(0));
+    }
+
+    @Test
+    @DisplayName("Snapshot: 修改后旧快照不变，新快照只复制改动过的段")
+    void testCopyOnWriteSegments() {
+        AccountService service = newService();
+        List<String> ids = addFiveSegments(service);
+        LedgerSnapshot v1 = service.snapshot();
+
+        service.updateById(ids.get(2500), new Record("支出", 100.0, "餐饮", LocalDate.of(2025, 1, 1), "改"));
+        LedgerSnapshot v2 = service.snapshot();
+        assertTrue(v2.getVersion() > v1.getVersion());
+        assertEquals("r2500", v1.get(2500).getNote(), "旧快照不受影响");
+        assertEquals("改", v2.get(2500).getNote());
+        assertEquals(4, v2.sharedSegments(v1), "5 段中只应复制被修改的那一段");
+        assertEquals(5099.0, service.calculateTotal("支出"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Snapshot: 删除后删除点之前的段全部共享")
+    void testDeleteSharesLeadingSegments() {
+        AccountService service = newService();
+        List<String> ids = addFiveSegments(service);
+        LedgerSnapshot v1 = service.snapshot();
+
+        service.deleteById(ids.get(4500));
+        LedgerSnapshot v2 = service.snapshot();
+        assertEquals(5000, v1.size());
+        assertEquals(4999, v2.size());
+        assertEquals(4, v2.sharedSegments(v1), "删除点之前的段全部共享");
+        assertEquals(4999.0, service.calculateTotal("支出"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Snapshot: 多线程读写时读到的每个快照都自洽")
+    void testConcurrentReadersAndWriter() throws Exception {
+        AccountService service = newService();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            try {
+                List<String> ids = new ArrayList<>();
+                for (int i = 0; i < 3000; i++) {
+                    Record r = new Record("支出", 2.0, "交通", LocalDate.of(2025, 2, 1), "w" + i);
+                    service.addRecord(r);
+                    ids.add(r.getId());
+                    if (i % 3 == 2) service.deleteById(ids.remove(0));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            } finally {
+                done.set(true);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            readers.add(new Thread(() -> {
+                try {
+                    long lastVersion = -1;
+                    while (!done.get()) {
+                        LedgerSnapshot snapshot = service.snapshot();
+                        assertTrue(snapshot.getVersion() >= lastVersion);
+                        lastVersion = snapshot.getVersion();
+                        long cents = 0;
+                        for (Record r : snapshot) cents += Money.toCents(r.getAmount());
+                        assertEquals(snapshot.totalCents("支出"), cents, "快照中的记录与总额应来自同一版本");
+                        service.searchRecords(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 1), "支出", "交通");
+                    }
+                } catch (Throwable t2) {
+                    failure.compareAndSet(null, t2);
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread reader : readers) reader.join();
+        if (failure.get() != null) fail(failure.get());
+        assertEquals(2000, service.getAllRecords().size());
+        assertEquals(4000.0, service.calculateTotal("支出"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Snapshot: 并发模式下筛选和统计不需要 AccountService 的锁，结果与普通模式一致")
+    void testFilteredReadsWithoutServiceLock() throws Exception {
+        AccountService service = newService();
+        service.addRecords(new LedgerGenerator(3, LocalDate.of(2024, 1, 1), 1).generate(2000));
+        service.snapshot();
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 5, 31);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (service) {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        holder.start();
+        held.await();
+        try {
+            CompletableFuture<Object[]> reads = CompletableFuture.supplyAsync(() -> new Object[]{
+                    service.searchRecordsAny(from, to, List.of("支出"), null).size(),
+                    service.getMonthlyStats("支出"),
+                    service.getCategoryBreakdown("支出", YearMonth.from(from), YearMonth.from(to)),
+                    service.getMonthlyCategoryStats("收入", null, null),
+                    service.summarizeRecords(from, to, null, List.of("餐饮")).getSum()});
+            Object[] concurrent = reads.get(10, TimeUnit.SECONDS);
+
+            AccountService plain = new AccountService(new LedgerConfig()
+                    .setDataFile(dir.resolve("account_data.dat")).setStorage(LedgerConfig.STORAGE_JOURNAL));
+            assertArrayEquals(new Object[]{
+                    plain.searchRecordsAny(from, to, List.of("支出"), null).size(),
+                    plain.getMonthlyStats("支出"),
+                    plain.getCategoryBreakdown("支出", YearMonth.from(from), YearMonth.from(to)),
+                    plain.getMonthlyCategoryStats("收入", null, null),
+                    plain.summarizeRecords(from, to, null, List.of("餐饮")).getSum()}, concurrent);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot: 并发模式下 calculateTotal(null) 返回 0 而不是抛异常")
+    void testTotalOfNullType() {
+        AccountService service = newService();
+        assertEquals(0.0, service.calculateTotal(null));
+        service.addRecord(new Record("支出", 5.0, "餐饮", LocalDate.of(2025, 1, 1), null));
+        assertEquals(0.0, service.calculateTotal(null));
+        assertEquals(5.0, service.calculateTotal("支出"), 0.001);
+    }
+}
@@ -0,0 +1,163 @@
+package com.joe.accounting;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerTableModelTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService(String memory) {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve(memory + ".dat"))
+                .setStorage(LedgerConfig.STORAGE_BINARY)
+                .setMemory(memory));
+    }
+
+    // 把每次变更事件记成 "add 3..4" / "remove 2..3" / "replace 1..2" 这种字符串
+    private static List<String> record(LedgerTableModel model) {
+        List<String> events = new ArrayList<>();
+        model.addListener((ListChangeListener<Record>) c -> {
+            while (c.next()) {
+                String kind = c.wasReplaced() ? "replace" : c.wasAdded() ? "add" : "remove";
+                int to = c.wasAdded() ? c.getTo() : c.getFrom() + c.getRemovedSize();
+                events.add(kind + " " + c.getFrom() + ".." + to);
+            }
+        });
+        return events;
+    }
+
+    // 5000 条记录，单数行是收入
+    private AccountService sampleService(String memory) {
+        AccountService service = newService(memory);
+        List<Record> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            batch.add(new Record(i % 2 == 0 ? "支出" : "收入", i, "餐饮", LocalDate.of(2025, 1, 1).plusDays(i % 30), null));
+        }
+        service.addRecords(batch);
+        return service;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {LedgerConfig.MEMORY_OBJECTS, LedgerConfig.MEMORY_COLUMNAR})
+    @DisplayName("表格模型: 新增只发出末尾的一行")
+    void testAddEvent(String memory) {
+        AccountService service = sampleService(memory);
+        LedgerTableModel model = new LedgerTableModel(service, Runnable::run);
+        List<String> events = record(model);
+        assertEquals(5000, model.size());
+
+        service.addRecord(new Record("支出", 1, "交通", LocalDate.of(2025, 2, 1), "新的"));
+        assertEquals(List.of("add 5000..5001"), events);
+        assertEquals("新的", model.get(5000).getNote());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {LedgerConfig.MEMORY_OBJECTS, LedgerConfig.MEMORY_COLUMNAR})
+    @DisplayName("表格模型: 修改和删除只发出变化的那一行，不整体替换")
+    void testUpdateAndDeleteEvents(String memory) {
+        AccountService service = sampleService(memory);
+        LedgerTableModel model = new LedgerTableModel(service, Runnable::run);
+        List<String> events = record(model);
+
+        String id = model.get(2500).getId();
+        service.updateById(id, new Record("支出", 99, "购物", LocalDate.of(2025, 1, 1), "改了"));
+        service.deleteById(model.get(10).getId());
+        assertEquals(List.of("replace 2500..2501", "remove 10..11"), events);
+        assertEquals("改了", model.get(2499).getNote());
+        assertEquals(4999, model.size());
+
+        model.refresh(); // 没有变化时不发事件
+        assertEquals(2, events.size());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {LedgerConfig.MEMORY_OBJECTS, LedgerConfig.MEMORY_COLUMNAR})
+    @DisplayName("表格模型: 筛选后不相关的修改不影响表格，dispose 后不再跟随")
+    void testFilterAndDispose(String memory) {
+        AccountService service = sampleService(memory);
+        service.addRecord(new Record("支出", 1, "交通", LocalDate.of(2025, 2, 1), "新的"));
+        LedgerTableModel model = new LedgerTableModel(service, Runnable::run);
+        List<String> events = record(model);
+
+        model.setFilter(null, null, "支出", "交通");
+        assertEquals(1, model.size());
+        service.addRecord(new Record("收入", 5, "工资", LocalDate.of(2025, 2, 2), null)); // 不在筛选结果里
+        assertEquals(1, events.size());
+        model.dispose();
+        service.addRecord(new Record("支出", 5, "交通", LocalDate.of(2025, 2, 2), null));
+        assertEquals(1, model.size());
+        assertDoesNotThrow(service::close);
+    }
+
+    // 五条记录，备注 a..e；c 没有日期和分类，e 的金额超过 int 能表示的分
+    private AccountService sortSample() {
+        AccountService service = newService(LedgerConfig.MEMORY_COLUMNAR);
+        service.addRecord(new Record("支出", 30, "交通", LocalDate.of(2025, 1, 3), "a"));
+        service.addRecord(new Record("收入", 10, "工资", LocalDate.of(2025, 1, 1), "b"));
+        service.addRecord(new Record("支出", 20, null, null, "c"));
+        service.addRecord(new Record("支出", 20, "餐饮", LocalDate.of(2025, 1, 2), "d"));
+        service.addRecord(new Record("支出", 5e7, "购物", LocalDate.of(2025, 1, 4), "e"));
+        return service;
+    }
+
+    @Test
+    @DisplayName("表格模型: 排序在账本的行号上完成，日期用日期索引的顺序")
+    void testSortPushdown() {
+        LedgerTableModel model = new LedgerTableModel(sortSample(), Runnable::run);
+        model.setSort(AccountService.SortKey.DATE, false);
+        assertEquals("cbdae", notes(model));
+        model.setSort(AccountService.SortKey.DATE, true);
+        assertEquals("eadbc", notes(model));
+        model.setSort(AccountService.SortKey.AMOUNT, false); // 5e7 元超过 int 能表示的分，走比较器
+        assertEquals("bcdae", notes(model));
+        model.setSort(AccountService.SortKey.CATEGORY, false);
+        assertEquals("cabed", notes(model)); // null 分类排最前
+        model.setSort(AccountService.SortKey.TYPE, true);
+        assertEquals("bedca", notes(model));
+    }
+
+    @Test
+    @DisplayName("表格模型: 备注列也能排序，空备注排最前")
+    void testSortByNote() {
+        AccountService service = sortSample();
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 5), null));
+        LedgerTableModel model = new LedgerTableModel(service, Runnable::run);
+        model.setSort(AccountService.SortKey.NOTE, true);
+        assertEquals("edcba", notes(model.subList(0, 5)));
+        assertNull(model.get(5).getNote());
+        model.setSort(AccountService.SortKey.NOTE, false);
+        assertNull(model.get(0).getNote());
+        assertEquals("abcde", notes(model.subList(1, 6)));
+    }
+
+    @Test
+    @DisplayName("表格模型: 筛选加排序，新增的记录插到排序后的位置")
+    void testSortWithFilter() {
+        AccountService service = sortSample();
+        LedgerTableModel model = new LedgerTableModel(service, Runnable::run);
+        model.setFilter(LocalDate.of(2025, 1, 2), null, "支出", null);
+        model.setSort(AccountService.SortKey.DATE, true);
+        assertEquals("ead", notes(model));
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 5), "f"));
+        assertEquals("fead", notes(model));
+    }
+
+    private static String notes(List<Record> rows) {
+        StringBuilder sb = new StringBuilder();
+        for (Record r : rows) sb.append(r.getNote());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,219 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedLedgerStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private PartitionedLedgerStore store() {
+        return new PartitionedLedgerStore(dir.resolve("account_data.segments"), PartitionedLedgerStore.Granularity.MONTH);
+    }
+
+    private Set<String> segmentFiles() throws Exception {
+        try (var files = Files.list(dir.resolve("account_data.segments"))) {
+            return files.map(f -> f.getFileName().toString()).filter(n -> n.endsWith(".ledger")).collect(Collectors.toSet());
+        }
+    }
+
+    // 五条记录分在 2019-03、2025-03、2025-04 (两条) 和无日期四个段里，写完后关闭
+    private void writeFiveRecords() throws Exception {
+        AccountService service = new AccountService(store());
+        service.addRecords(List.of(
+                new Record("支出", 10, "餐饮", LocalDate.of(2019, 3, 5), "旧账"),
+                new Record("支出", 20, "交通", LocalDate.of(2025, 3, 9), null),
+                new Record("收入", 500, "工资", LocalDate.of(2025, 4, 1), null),
+                new Record("支出", 30, "购物", LocalDate.of(2025, 4, 2), null),
+                new Record("支出", 40, "其他", null, "没有日期")));
+        service.close();
+    }
+
+    private static Record oldRecord(AccountService service) {
+        return service.searchRecords(LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31), null, null).get(0);
+    }
+
+    private static List<String> sorted(List<Record> records) {
+        return records.stream().map(Record::toString).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("分段存储: 每月一个段文件，没有日期的单独一段")
+    void testOneSegmentPerMonth() throws Exception {
+        writeFiveRecords();
+        PartitionedLedgerStore store = store();
+        AccountService service = new AccountService(store);
+        assertEquals(5, service.getRecordCount());
+        assertEquals(Map.of("2019-03", 1, "2025-03", 1, "2025-04", 2, "undated", 1), store.getSegmentRows());
+        assertEquals(4, segmentFiles().size());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段存储: 修改只重写涉及的段，其它段文件不动")
+    void testOnlyAffectedSegmentsRewritten() throws Exception {
+        writeFiveRecords();
+        PartitionedLedgerStore store = store();
+        AccountService service = new AccountService(store);
+        Set<String> before = segmentFiles();
+        Record old = oldRecord(service);
+        long written = store.getSegmentsWritten();
+        service.updateById(old.getId(), new Record("支出", 15, "餐饮", old.getDate(), "旧账"));
+        assertEquals(written + 1, store.getSegmentsWritten(), "只重写 2019-03");
+        Set<String> after = segmentFiles();
+        assertEquals(4, after.size());
+        assertEquals(3, after.stream().filter(before::contains).count(), "其它段文件没有动");
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段存储: 改日期跨段时旧段删掉、新段重写，删空的段文件也删掉")
+    void testMoveAndDeleteAcrossSegments() throws Exception {
+        writeFiveRecords();
+        PartitionedLedgerStore store = store();
+        AccountService service = new AccountService(store);
+        Record old = oldRecord(service);
+        service.updateById(old.getId(), new Record("支出", 15, "餐饮", LocalDate.of(2025, 4, 20), "旧账"));
+        assertEquals(Map.of("2025-03", 1, "2025-04", 3, "undated", 1), store.getSegmentRows());
+        assertEquals(3, segmentFiles().size());
+
+        service.deleteById(service.searchRecords(null, null, null, "交通").get(0).getId());
+        assertEquals(Map.of("2025-04", 3, "undated", 1), store.getSegmentRows());
+        assertEquals(2, segmentFiles().size());
+        List<Record> expected = service.getAllRecords();
+        service.close();
+
+        service = new AccountService(store());
+        assertEquals(sorted(expected), sorted(service.getAllRecords()));
+        assertEquals(15.0 + 500 + 30 + 40, service.calculateTotal("支出") + service.calculateTotal("收入"), 1e-9);
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段存储: 残留的临时段文件在启动时清理掉，内容不受影响")
+    void testStaleTempSegmentsRemoved() throws Exception {
+        writeFiveRecords();
+        Set<String> files = segmentFiles();
+        Files.writeString(dir.resolve("account_data.segments").resolve("2030-01.99.ledger"), "x");
+
+        AccountService service = new AccountService(store());
+        assertEquals(files, segmentFiles());
+        assertEquals(5, service.getRecordCount());
+        assertEquals(10 + 20 + 500 + 30 + 40, service.calculateTotal("支出") + service.calculateTotal("收入"), 1e-9);
+        service.close();
+    }
+
+    private AccountService partitionedService() throws Exception {
+        AccountService service = new AccountService(store());
+        service.addRecords(new LedgerGenerator(5, LocalDate.of(2020, 1, 1), 3).generate(20_000));
+        service.close();
+        return new AccountService(new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_PARTITIONED));
+    }
+
+    private static final LocalDate MARCH_FROM = LocalDate.of(2022, 3, 1);
+    private static final LocalDate MARCH_TO = LocalDate.of(2022, 3, 31);
+    private static final YearMonth MARCH = YearMonth.of(2022, 3);
+
+    @Test
+    @DisplayName("分段裁剪: 启动时不映射段文件，按月查询和统计只映射区间内的一段")
+    void testPartitionPruning() throws Exception {
+        AccountService service = partitionedService();
+        PartitionedRecordList records = (PartitionedRecordList) service.getAllRecords();
+        assertTrue(records.getSegmentCount() >= 36);
+        assertEquals(0, records.getMappedSegments());
+
+        List<Record> march = service.searchRecords(MARCH_FROM, MARCH_TO, "支出", null);
+        service.summarizeRecords(MARCH_FROM, MARCH_TO, List.of("支出"), null);
+        service.getCategoryBreakdown("支出", MARCH, MARCH);
+        assertEquals(1, records.getMappedSegments(), "只读了 2022-03 一段");
+        assertTrue(records.getDecodedSegments() <= 1);
+        assertFalse(march.isEmpty());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段裁剪: 内存中新增的记录在裁剪时也要算上")
+    void testPruningSeesAppendedRecords() throws Exception {
+        AccountService service = partitionedService();
+        int before = service.searchRecords(MARCH_FROM, MARCH_TO, "支出", null).size();
+        service.addRecord(new Record("支出", 99, "餐饮", LocalDate.of(2022, 3, 15), null));
+        assertEquals(before + 1, service.searchRecords(MARCH_FROM, MARCH_TO, "支出", null).size());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段裁剪: 建好全量索引后走索引，结果与裁剪时一致")
+    void testIndexedReadsMatchPruned() throws Exception {
+        AccountService service = partitionedService();
+        PartitionedRecordList records = (PartitionedRecordList) service.getAllRecords();
+        List<Record> march = service.searchRecords(MARCH_FROM, MARCH_TO, "支出", null);
+        LongSummaryStatistics marchStats = service.summarizeRecords(MARCH_FROM, MARCH_TO, List.of("支出"), null);
+        Map<String, Double> breakdown = service.getCategoryBreakdown("支出", MARCH, MARCH);
+        service.addRecord(new Record("支出", 99, "餐饮", LocalDate.of(2022, 3, 15), null));
+
+        service.calculateTotal("支出");
+        assertTrue(records.getMappedSegments() > 1);
+        assertEquals(march.size() + 1, service.searchRecords(MARCH_FROM, MARCH_TO, "支出", null).size());
+        assertEquals(marchStats.getSum() + 9900, service.summarizeRecords(MARCH_FROM, MARCH_TO, List.of("支出"), null).getSum());
+        Map<String, Double> indexedBreakdown = service.getCategoryBreakdown("支出", MARCH, MARCH);
+        assertEquals(breakdown.get("餐饮") + 99, indexedBreakdown.get("餐饮"), 1e-6);
+        assertEquals(breakdown.keySet(), indexedBreakdown.keySet());
+        service.close();
+    }
+
+    @Test
+    @DisplayName("分段存储: 已有清单的粒度优先于配置，换了配置也不会丢数据")
+    void testManifestGranularityWinsOverConfig() throws Exception {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_PARTITIONED).setPartitionGranularity(PartitionedLedgerStore.Granularity.YEAR);
+        AccountService service = new AccountService(config);
+        service.addRecords(new LedgerGenerator(1, LocalDate.of(2019, 1, 1), 1).generate(100));
+        service.close();
+
+        config.setPartitionGranularity(PartitionedLedgerStore.Granularity.MONTH);
+        service = new AccountService(config);
+        assertEquals(100, service.getRecordCount());
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2019, 6, 1), null));
+        service.close();
+
+        PartitionedLedgerStore store = (PartitionedLedgerStore) config.createStore();
+        assertEquals(101, store.load().size());
+        assertEquals(PartitionedLedgerStore.Granularity.YEAR, store.getGranularity());
+        assertEquals(Map.of("2019", 101), store.getSegmentRows());
+    }
+
+    @Test
+    @DisplayName("分段存储: 清单读不出来时启动失败，不提交也不清理段文件")
+    void testBrokenManifestStopsStartup() throws Exception {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_PARTITIONED);
+        AccountService service = new AccountService(config);
+        service.addRecord(new Record("支出", 10, "餐饮", LocalDate.of(2019, 3, 5), null));
+        service.close();
+        Set<String> files = segmentFiles();
+        Path manifest = config.segmentDirectory().resolve(PartitionedLedgerStore.MANIFEST);
+        Files.writeString(manifest, Files.readString(manifest).replace("\t1\t", "\tx\t"));
+
+        assertThrows(java.io.UncheckedIOException.class, () -> new AccountService(config));
+        PartitionedLedgerStore store = (PartitionedLedgerStore) config.createStore();
+        assertThrows(java.io.IOException.class, store::load);
+        assertThrows(java.io.IOException.class, () -> store.commit(
+                List.of(LedgerOp.add(new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 1), null))), List::of));
+        assertEquals(files, segmentFiles());
+    }
+}
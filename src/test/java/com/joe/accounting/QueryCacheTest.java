@@ -0,0 +1,109 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService(int entries) {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setQueryCacheEntries(entries));
+    }
+
+    private static final LocalDate JAN = LocalDate.of(2025, 1, 1);
+    private static final LocalDate JAN_END = LocalDate.of(2025, 1, 31);
+
+    // 100 天，每天一条；一月里有 16 条支出
+    private AccountService sampleService() {
+        AccountService service = newService(8);
+        for (int i = 0; i < 100; i++) {
+            service.addRecord(new Record(i % 2 == 0 ? "支出" : "收入", i, i % 3 == 0 ? "餐饮" : "交通",
+                    JAN.plusDays(i), null));
+        }
+        return service;
+    }
+
+    private static List<Record> janExpenses(AccountService service) {
+        return service.searchRecordsAny(JAN, JAN_END, List.of("支出"), List.of("餐饮", "交通"));
+    }
+
+    @Test
+    @DisplayName("查询缓存: 重复筛选命中缓存，取值顺序不同也是同一组条件")
+    void testHit() {
+        AccountService service = sampleService();
+        QueryCache cache = service.getQueryCache();
+        List<Record> first = janExpenses(service);
+        assertEquals(16, first.size());
+        assertEquals(1, cache.getMisses());
+        assertEquals(first, service.searchRecordsAny(JAN, JAN_END, List.of("支出"), List.of("交通", "餐饮")));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("查询缓存: 追加记录后命中时只检查新行，补上落在条件里的")
+    void testAppendPatches() {
+        AccountService service = sampleService();
+        QueryCache cache = service.getQueryCache();
+        janExpenses(service);
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2025, 1, 15), "新"));
+        service.addRecord(new Record("支出", 1, "餐饮", LocalDate.of(2025, 3, 15), "范围外"));
+        List<Record> patched = janExpenses(service);
+        assertEquals(17, patched.size());
+        assertEquals("新", patched.get(16).getNote());
+        assertEquals(1, cache.getPatches());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("查询缓存: 修改和删除后缓存作废，重新计算的结果与不用缓存时一致")
+    void testInvalidation() {
+        AccountService service = sampleService();
+        QueryCache cache = service.getQueryCache();
+        List<Record> before = janExpenses(service);
+        service.updateById(before.get(0).getId(), new Record("收入", 1, "工资", JAN, null));
+        service.deleteById(before.get(1).getId());
+        List<Record> after = janExpenses(service);
+        assertEquals(14, after.size());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+
+        AccountService fresh = newService(0); // 重新加载，不用缓存
+        assertEquals(after, janExpenses(fresh));
+        assertEquals(0, fresh.getQueryCache().getHits() + fresh.getQueryCache().getMisses());
+    }
+
+    @Test
+    @DisplayName("查询缓存: 超过条目数时淘汰最久没用的")
+    void testLruEviction() {
+        AccountService service = newService(2);
+        for (int i = 0; i < 30; i++) {
+            service.addRecord(new Record("支出", i, "餐饮", LocalDate.of(2025, 1, 1).plusDays(i), null));
+        }
+        QueryCache cache = service.getQueryCache();
+        LocalDate d1 = LocalDate.of(2025, 1, 1), d2 = LocalDate.of(2025, 1, 2), d3 = LocalDate.of(2025, 1, 3);
+        service.searchRecordsAny(d1, null, null, null);
+        service.searchRecordsAny(d2, null, null, null);
+        service.searchRecordsAny(d1, null, null, null); // d1 变成最近使用
+        service.searchRecordsAny(d3, null, null, null); // 淘汰 d2
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        long hits = cache.getHits();
+        service.searchRecordsAny(d1, null, null, null);
+        assertEquals(hits + 1, cache.getHits());
+        service.searchRecordsAny(d2, null, null, null);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(28, service.searchRecordsAny(d3, null, null, null).size());
+    }
+}
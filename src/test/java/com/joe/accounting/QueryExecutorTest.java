@@ -0,0 +1,143 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExecutorTest {
+
+    @TempDir
+    Path dir;
+
+    private ExecutorService ui;
+
+    @BeforeEach
+    void startUi() {
+        ui = Executors.newSingleThreadExecutor(r -> new Thread(r, "fake-ui"));
+    }
+
+    @AfterEach
+    void stopUi() {
+        ui.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("后台查询: 同一个 key 的新查询作废旧的，结果在结果线程上送达")
+    void testSupersede() throws Exception {
+        try (QueryExecutor queries = new QueryExecutor(ui)) {
+            List<String> results = new CopyOnWriteArrayList<>();
+            CountDownLatch slowStarted = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch slowFinished = new CountDownLatch(1);
+            queries.submit("table", () -> {
+                slowStarted.countDown();
+                try {
+                    release.await();
+                    return "slow";
+                } finally {
+                    slowFinished.countDown();
+                }
+            }, results::add, null);
+            assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+            // 旧查询还在跑时提交新查询：旧结果被丢弃
+            CountDownLatch done = new CountDownLatch(1);
+            queries.submit("table", () -> "fast", r -> {
+                assertEquals("fake-ui", Thread.currentThread().getName());
+                results.add(r);
+                done.countDown();
+            }, null);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            assertTrue(slowFinished.await(5, TimeUnit.SECONDS));
+
+            Thread.sleep(100);
+            assertEquals(List.of("fast"), results);
+        }
+    }
+
+    @Test
+    @DisplayName("后台查询: 边输入边查询，300ms 内的多次提交只执行最后一次")
+    void testDebounce() throws Exception {
+        try (QueryExecutor queries = new QueryExecutor(ui)) {
+            List<String> results = new CopyOnWriteArrayList<>();
+            AtomicInteger executed = new AtomicInteger();
+            CountDownLatch typed = new CountDownLatch(1);
+            for (String text : new String[]{"餐", "餐饮", "餐饮2"}) {
+                queries.submitDebounced("category", 300, () -> {
+                    executed.incrementAndGet();
+                    return text;
+                }, r -> {
+                    results.add(r);
+                    typed.countDown();
+                }, null);
+            }
+            assertTrue(typed.await(5, TimeUnit.SECONDS));
+
+            Thread.sleep(100);
+            assertEquals(List.of("餐饮2"), results);
+            assertEquals(1, executed.get());
+        }
+    }
+
+    @Test
+    @DisplayName("后台查询: 出错时交给 onError，不调用结果回调")
+    void testError() throws Exception {
+        try (QueryExecutor queries = new QueryExecutor(ui)) {
+            CountDownLatch failed = new CountDownLatch(1);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            queries.submit("stats", () -> {
+                throw new IllegalStateException("boom");
+            }, r -> fail(), e -> {
+                error.set(e);
+                failed.countDown();
+            });
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertTrue(error.get() instanceof IllegalStateException, String.valueOf(error.get()));
+        }
+    }
+
+    @Test
+    @DisplayName("后台查询: 表格模型在后台查询，事件在结果线程上发出")
+    void testTableModelInBackground() throws Exception {
+        AccountService service = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+        service.addRecord(new Record("支出", 10, "餐饮", LocalDate.of(2025, 1, 1), null));
+        service.addRecord(new Record("支出", 20, "交通", LocalDate.of(2025, 1, 2), null));
+
+        try (QueryExecutor queries = new QueryExecutor(ui)) {
+            LedgerTableModel model = ui.submit(() -> new LedgerTableModel(service, queries)).get();
+            awaitSize(ui, model, 2);
+
+            ui.submit(() -> model.setFilter(null, null, "全部", "交", 50)).get();
+            ui.submit(() -> model.setFilter(null, null, "全部", "交通", 50)).get();
+            awaitSize(ui, model, 1);
+            assertEquals("交通", ui.submit(() -> model.get(0).getCategory()).get());
+
+            service.addRecord(new Record("支出", 5, "交通", LocalDate.of(2025, 1, 3), null)); // 写入线程上的变更
+            awaitSize(ui, model, 2);
+            ui.submit(model::dispose).get();
+        }
+    }
+
+    private static void awaitSize(ExecutorService ui, LedgerTableModel model, int size) throws Exception {
+        for (int i = 0; i < 200 && ui.submit(model::size).get() != size; i++) Thread.sleep(10);
+        assertEquals(size, ui.submit(model::size).get());
+    }
+}
@@ -0,0 +1,200 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordIdIndexTest {
+
+    private static final int COMPACT_MIN = 1024;
+
+    @TempDir
+    Path dir;
+
+    private LedgerConfig config(String memory) {
+        return new LedgerConfig()
+                .setDataFile(dir.resolve(memory + ".dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL)
+                .setMemory(memory);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {LedgerConfig.MEMORY_OBJECTS, LedgerConfig.MEMORY_COLUMNAR})
+    @DisplayName("Id: 按 id 增删改与模型一致，墓碑压缩后顺序、索引和持久化都正确")
+    void testIdOperationsMatchModel(String memory) {
+        AccountService service = new AccountService(config(memory));
+        Map<String, Record> expected = new LinkedHashMap<>(); // 插入顺序即 records 顺序
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            int action = random.nextInt(10);
+            List<String> ids = new ArrayList<>(expected.keySet());
+            if (action < 5 || ids.isEmpty()) {
+                Record r = new Record(random.nextBoolean() ? "支出" : "收入", random.nextInt(10000) / 100.0,
+                        "分类" + random.nextInt(4), LocalDate.of(2025, 1, 1).plusDays(random.nextInt(90)), "n" + i);
+                service.addRecord(r);
+                expected.put(r.getId(), r);
+            } else if (action < 7) {
+                String id = ids.get(random.nextInt(ids.size()));
+                Record values = new Record("支出", i, "改过", LocalDate.of(2025, 2, 1), "u" + i);
+                assertTrue(service.updateById(id, values));
+                expected.put(id, new Record(id, "支出", i, "改过", LocalDate.of(2025, 2, 1), "u" + i));
+            } else if (action < 9) {
+                String id = ids.get(random.nextInt(ids.size()));
+                assertTrue(service.deleteById(id));
+                expected.remove(id);
+                assertNull(service.getById(id));
+                assertFalse(service.deleteById(id));
+            } else {
+                // 中途查询会触发压缩，之后继续按 id 操作
+                long count = expected.values().stream().filter(r -> r.getType().equals("支出")).count();
+                assertEquals(count, service.searchRecords(null, null, "支出", null).size());
+            }
+        }
+        String someId = expected.keySet().iterator().next();
+        assertEquals(expected.get(someId).getNote(), service.getById(someId).getNote());
+
+        double expense = expected.values().stream().filter(r -> r.getType().equals("支出"))
+                .mapToLong(r -> Money.toCents(r.getAmount())).sum() / 100.0;
+        assertEquals(expense, service.calculateTotal("支出"), 0.001);
+
+        List<Record> reloaded = new AccountService(config(memory)).getAllRecords();
+        assertEquals(new ArrayList<>(expected.keySet()), reloaded.stream().map(Record::getId).toList(), memory);
+        assertEquals(new ArrayList<>(expected.keySet()), service.getAllRecords().stream().map(Record::getId).toList(), memory);
+    }
+
+    private List<String> addTen(AccountService service) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Record r = new Record("支出", 10, "餐饮", LocalDate.of(2025, 3, i + 1), "r" + i);
+            service.addRecord(r);
+            ids.add(r.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Id: 批量删除一次提交，重复和不存在的 id 不计数")
+    void testBulkDelete() {
+        AccountService service = new AccountService(config(LedgerConfig.MEMORY_OBJECTS));
+        List<String> ids = addTen(service);
+        assertEquals(3, service.deleteByIds(List.of(ids.get(1), ids.get(5), ids.get(5), ids.get(8), "not-exist")));
+        assertEquals(70.0, service.calculateTotal("支出"), 0.001);
+        assertEquals(7, service.searchRecords(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), "支出", "餐饮").size());
+        assertEquals(7, new AccountService(config(LedgerConfig.MEMORY_OBJECTS)).getRecordCount());
+    }
+
+    @Test
+    @DisplayName("Id: updateById 保留原 id 和原位置")
+    void testUpdateKeepsId() {
+        AccountService service = new AccountService(config(LedgerConfig.MEMORY_OBJECTS));
+        List<String> ids = addTen(service);
+        assertTrue(service.updateById(ids.get(0), new Record("收入", 99, "奖金", LocalDate.of(2025, 3, 1), "改")));
+        assertEquals(ids.get(0), service.getAllRecords().get(0).getId());
+        assertEquals("奖金", service.getById(ids.get(0)).getCategory());
+        assertFalse(service.updateById("not-exist", new Record("收入", 1, "奖金", null, null)));
+    }
+
+    private LedgerConfig tombstoneConfig(String mode) {
+        LedgerConfig config = new LedgerConfig().setDataFile(dir.resolve(mode + ".dat"));
+        switch (mode) {
+            case "columnar" -> config.setMemory(LedgerConfig.MEMORY_COLUMNAR);
+            case "async" -> config.setStorage(LedgerConfig.STORAGE_BINARY).setAsync(true);
+            default -> { }
+        }
+        return config;
+    }
+
+    private static int storedRows(AccountService service) throws Exception {
+        Field recordsField = AccountService.class.getDeclaredField("records");
+        recordsField.setAccessible(true);
+        return ((List<?>) recordsField.get(service)).size();
+    }
+
+    // 加 3000 条再按 id 删 100 条，返回剩下的 id (按记录顺序)
+    private static List<String> addAndDelete(AccountService service) {
+        List<Record> added = new LedgerGenerator(9, LocalDate.of(2024, 1, 1), 1).generate(3000);
+        service.addRecords(added);
+        List<String> expected = new ArrayList<>(added.stream().map(Record::getId).toList());
+        for (int i = 0; i < 100; i++) {
+            String id = expected.remove((i * 37) % expected.size());
+            assertTrue(service.deleteById(id));
+            assertEquals(expected.size(), service.getAllRecords().size());
+        }
+        return expected;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"objects", "columnar", "async"})
+    @DisplayName("Id: 少量删除不触发压缩，取全部记录和筛选都跳过墓碑行")
+    void testReadsSkipTombstonesWithoutCompacting(String mode) throws Exception {
+        AccountService service = new AccountService(tombstoneConfig(mode));
+        List<String> expected = addAndDelete(service);
+        assertEquals(3000, storedRows(service), "墓碑没有达到阈值，不压缩");
+        assertEquals(expected, service.getAllRecords().stream().map(Record::getId).toList());
+        assertEquals(expected.size(), service.searchRecords(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), null, null).size()
+                + service.searchRecords(null, null, null, null).stream().filter(r -> r.getDate() == null).count());
+        service.close();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"objects", "columnar", "async"})
+    @DisplayName("Id: 带墓碑保存时跳过墓碑行，重启后内容一致")
+    void testSaveSkipsTombstones(String mode) throws Exception {
+        AccountService service = new AccountService(tombstoneConfig(mode));
+        List<String> expected = addAndDelete(service);
+        service.flush();
+        assertEquals(expected, new AccountService(tombstoneConfig(mode)).getAllRecords().stream().map(Record::getId).toList());
+        service.close();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"objects", "columnar", "async"})
+    @DisplayName("Id: 墓碑攒到阈值 (1024 条且超过总数的 1/8) 时才压缩")
+    void testCompactsAtThreshold(String mode) throws Exception {
+        AccountService service = new AccountService(tombstoneConfig(mode));
+        List<String> expected = addAndDelete(service);
+        for (String id : new ArrayList<>(expected.subList(0, COMPACT_MIN))) {
+            service.deleteById(id);
+            expected.remove(id);
+        }
+        assertEquals(expected, service.getAllRecords().stream().map(Record::getId).toList());
+        assertTrue(storedRows(service) <= 3000 - COMPACT_MIN, "达到阈值时压缩过");
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Id: 压缩墓碑后查询缓存作废，不返回错位的行")
+    void testCompactInvalidatesQueryCache() {
+        AccountService service = new AccountService(config(LedgerConfig.MEMORY_OBJECTS));
+        List<Record> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            added.add(new Record(i % 2 == 0 ? "支出" : "收入", 10 + i, i % 2 == 0 ? "餐饮" : "工资",
+                    LocalDate.of(2024, 1, 1).plusDays(i), "r" + i));
+        }
+        service.addRecords(added);
+        assertTrue(service.deleteById(added.get(0).getId()));
+        assertEquals(4, service.searchRecords(null, null, "支出", "餐饮").size()); // 缓存的行号里跳过了墓碑行
+        service.addRecord(new Record("收入", 100, "工资", LocalDate.of(2024, 2, 1), "后加的"));
+
+        // 取视图时发布快照会压缩墓碑，之后行号整体前移
+        List<Record> view = service.searchView(null, null, "支出", "餐饮");
+        assertEquals(4, view.size());
+        assertTrue(view.stream().allMatch(r -> r.getType().equals("支出") && r.getCategory().equals("餐饮")), view.toString());
+        List<Record> again = service.searchRecords(null, null, "支出", "餐饮");
+        assertEquals(added.subList(1, 10).stream().filter(r -> r.getType().equals("支出")).map(Record::getId).toList(),
+                again.stream().map(Record::getId).toList());
+    }
+}
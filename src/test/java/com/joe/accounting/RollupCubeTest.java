@@ -0,0 +1,74 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupCubeTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService sampleService() {
+        AccountService service = new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve("account_data.dat"))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+        service.addRecord(new Record("支出", 100.0, "餐饮", LocalDate.of(2025, 6, 30), "六月"));
+        service.addRecord(new Record("支出", 30.0, "餐饮", LocalDate.of(2025, 7, 2), "早餐"));
+        service.addRecord(new Record("支出", 20.0, "交通", LocalDate.of(2025, 8, 15), "地铁"));
+        service.addRecord(new Record("支出", 70.0, "餐饮", LocalDate.of(2025, 9, 30), "晚餐"));
+        service.addRecord(new Record("收入", 5000.0, "工资", LocalDate.of(2025, 7, 10), "工资"));
+        service.addRecord(new Record("收入", 800.0, "奖金", LocalDate.of(2025, 7, 20), "奖金"));
+        return service;
+    }
+
+    @Test
+    @DisplayName("Cube: 三季度支出的分类构成")
+    void testQuarterBreakdown() {
+        AccountService service = sampleService();
+        Map<String, Double> q3 = service.getCategoryBreakdown("支出", YearMonth.of(2025, 7), YearMonth.of(2025, 9));
+        assertEquals(2, q3.size());
+        assertEquals(100.0, q3.get("餐饮"), 0.001);
+        assertEquals(20.0, q3.get("交通"), 0.001);
+
+        Map<String, Double> all = service.getCategoryBreakdown("支出", null, null);
+        assertEquals(200.0, all.get("餐饮"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Cube: 每月收入按分类拆分")
+    void testMonthlyByCategory() {
+        AccountService service = sampleService();
+        Map<String, Map<String, Double>> income = service.getMonthlyCategoryStats("收入", null, null);
+        assertEquals(1, income.size());
+        assertEquals(5000.0, income.get("2025-07").get("工资"), 0.001);
+        assertEquals(800.0, income.get("2025-07").get("奖金"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Cube: 修改日期后分类金额移到新的月份")
+    void testUpdateMovesMonth() {
+        AccountService service = sampleService();
+        Record bonus = service.searchRecords(null, null, "收入", "奖金").get(0);
+        service.updateRecord(bonus, new Record("收入", 900.0, "奖金", LocalDate.of(2025, 8, 1), "奖金"));
+        Map<String, Map<String, Double>> income = service.getMonthlyCategoryStats("收入", null, null);
+        assertNull(income.get("2025-07").get("奖金"), "改到 8 月后 7 月不应再有奖金");
+        assertEquals(900.0, income.get("2025-08").get("奖金"), 0.001);
+    }
+
+    @Test
+    @DisplayName("Cube: 删空某月后该月从结果里去掉")
+    void testDeleteRemovesEmptyMonth() {
+        AccountService service = sampleService();
+        service.deleteRecord(service.searchRecords(null, null, "收入", "奖金").get(0));
+        service.deleteRecord(service.searchRecords(null, null, "收入", "工资").get(0));
+        assertFalse(service.getMonthlyCategoryStats("收入", null, null).containsKey("2025-07"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.joe.accounting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private AccountService newService(String file) {
+        return new AccountService(new LedgerConfig()
+                .setDataFile(dir.resolve(file))
+                .setStorage(LedgerConfig.STORAGE_JOURNAL));
+    }
+
+    private AccountService sampleService() {
+        AccountService service = newService("account_data.dat");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        service.addRecord(new Record("支出", 30, "餐饮", day, "午饭"));
+        service.addRecord(new Record("支出", 12, "交通", day, "打车去餐厅"));
+        service.addRecord(new Record("支出", 45, "餐饮外卖", day, null));
+        service.addRecord(new Record("收入", 8000, "工资", day, "Monthly Salary"));
+        service.addRecord(new Record("支出", 20, "日用品", day, "超市"));
+        return service;
+    }
+
+    @Test
+    @DisplayName("全文检索: 前缀匹配分类")
+    void testPrefix() {
+        AccountService service = sampleService();
+        assertEquals(List.of("餐饮", "餐饮外卖"), categories(service.searchText("餐饮", AccountService.TextMatch.PREFIX, 10)));
+    }
+
+    @Test
+    @DisplayName("全文检索: 包含匹配按相关度排序，结果条数受 limit 限制")
+    void testSubstringRanking() {
+        AccountService service = sampleService();
+        // 分类相等 > 分类前缀 (同级新的在前) > 备注包含
+        assertEquals(List.of("餐饮", "餐饮外卖"), categories(service.searchText("餐饮", AccountService.TextMatch.SUBSTRING, 10)));
+        assertEquals(List.of("餐饮外卖", "餐饮", "交通"), categories(service.searchText("餐", AccountService.TextMatch.SUBSTRING, 10)));
+        assertEquals(List.of("餐饮外卖"), categories(service.searchText("餐", AccountService.TextMatch.SUBSTRING, 1)));
+    }
+
+    @Test
+    @DisplayName("全文检索: 不区分大小写")
+    void testCaseInsensitive() {
+        AccountService service = sampleService();
+        assertEquals(List.of("工资"), categories(service.searchText("SALARY", AccountService.TextMatch.SUBSTRING, 10)));
+    }
+
+    @Test
+    @DisplayName("全文检索: 拼错一个字母时包含查不到，模糊可以，精确命中仍然排在前面")
+    void testFuzzy() {
+        AccountService service = sampleService();
+        assertTrue(service.searchText("salery", AccountService.TextMatch.SUBSTRING, 10).isEmpty());
+        assertEquals(List.of("工资"), categories(service.searchText("salery", AccountService.TextMatch.FUZZY, 10)));
+        List<String> fuzzy = categories(service.searchText("餐饮外", AccountService.TextMatch.FUZZY, 10));
+        assertEquals("餐饮外卖", fuzzy.get(0));
+        assertTrue(fuzzy.contains("餐饮"));
+    }
+
+    @Test
+    @DisplayName("全文检索: 空白关键词没有结果，子串编辑距离")
+    void testBlankQueryAndDistance() {
+        assertTrue(sampleService().searchText(" ", AccountService.TextMatch.FUZZY, 10).isEmpty());
+        assertEquals(0, TextIndex.substringDistance("salary", "monthly salary"));
+        assertEquals(1, TextIndex.substringDistance("salery", "monthly salary"));
+    }
+
+    @Test
+    @DisplayName("全文检索: 增量维护 (追加/修改/删除) 与重新建索引的结果一致")
+    void testIncrementalMaintenance() {
+        AccountService service = newService("account_data.dat");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        for (int i = 0; i < 50; i++) {
+            service.addRecord(new Record("支出", i + 1, i % 3 == 0 ? "餐饮" : "交通", day.plusDays(i), "第" + i + "笔"));
+        }
+        assertEquals(17, service.searchText("餐饮", AccountService.TextMatch.SUBSTRING, 100).size()); // 建立索引
+
+        service.addRecord(new Record("支出", 99, "餐饮", day, "加餐"));
+        service.updateRecord(service.getAllRecords().get(1), new Record("支出", 2, "餐饮", day, "改成餐饮"));
+        for (int i = 0; i < 10; i++) {
+            service.deleteRecord(service.getAllRecords().get(i * 3));
+        }
+
+        AccountService reloaded = newService("account_data.dat"); // 新实例从文件加载，全量建立索引
+        for (String query : new String[]{"餐", "餐饮", "交通", "第1", "加餐"}) {
+            for (AccountService.TextMatch match : AccountService.TextMatch.values()) {
+                assertEquals(ids(reloaded.searchText(query, match, 1000)), ids(service.searchText(query, match, 1000)),
+                        query + " " + match);
+            }
+        }
+        long expected = service.getAllRecords().stream().filter(r -> r.getCategory().startsWith("餐饮")).count();
+        assertEquals(expected, service.searchText("餐饮", AccountService.TextMatch.PREFIX, 1000).size());
+    }
+
+    private static List<String> categories(List<Record> records) {
+        List<String> result = new ArrayList<>();
+        for (Record r : records) result.add(r.getCategory());
+        return result;
+    }
+
+    private static List<String> ids(List<Record> records) {
+        List<String> result = new ArrayList<>();
+        for (Record r : records) result.add(r.getId());
+        return result;
+    }
+}